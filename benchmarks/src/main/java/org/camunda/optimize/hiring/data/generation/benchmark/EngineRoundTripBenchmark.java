@@ -0,0 +1,93 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.camunda.optimize.hiring.data.generation.benchmark;
+
+import org.camunda.optimize.hiring.data.generation.EngineRestClient;
+import org.camunda.optimize.hiring.data.generation.HiringProcess;
+import org.camunda.optimize.hiring.data.generation.RandomStreams;
+import org.camunda.optimize.hiring.data.generation.Scenario;
+import org.camunda.optimize.hiring.data.generation.TaskDurations;
+import org.camunda.optimize.hiring.data.generation.dto.MessageCorrelationDto;
+import org.camunda.optimize.hiring.data.generation.dto.TaskDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The calls of a generation run through {@link EngineRestClient} against a local stub engine. Throughput tells
+ * the calls per second, sample time the latency percentiles of a single call. Run with {@code -t} to measure
+ * several concurrent callers sharing the connection pool like the start and task workers do.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(1)
+@State(Scope.Benchmark)
+public class EngineRoundTripBenchmark {
+
+  private static final int TASK_PAGE_SIZE = 100;
+
+  private StubEngineServer server;
+  private EngineRestClient client;
+  private MessageCorrelationDto startCorrelation;
+
+  @Setup
+  public void setUp() throws IOException {
+    server = new StubEngineServer(TASK_PAGE_SIZE);
+    client = new EngineRestClient(server.getEngineUrl(), 64, 5000, 60000, 30000);
+    startCorrelation = new MessageCorrelationDto();
+    startCorrelation.setAll(true);
+    startCorrelation.setMessageName(HiringProcess.CANDIDATE_APPLICATION);
+    startCorrelation.setProcessVariables(
+      Scenario.HAPPY_PATH.createVariables(
+        new RandomStreams(42, 1).forScenario(Scenario.HAPPY_PATH, 0), TaskDurations.defaults()
+      )
+    );
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    client.close();
+    server.close();
+  }
+
+  @Benchmark
+  public boolean startInstance() throws IOException {
+    return client.correlateMessage(startCorrelation);
+  }
+
+  @Benchmark
+  public List<TaskDto> fetchTaskPage() throws IOException {
+    return client.getTasks(HiringProcess.SCREEN_APPLICATION, null, 0, TASK_PAGE_SIZE);
+  }
+
+  @Benchmark
+  public boolean claimAndCompleteTask() throws IOException {
+    return client.claimTask("1", "demo") & client.completeTask("1");
+  }
+}
@@ -0,0 +1,111 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.camunda.optimize.hiring.data.generation.benchmark;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.camunda.optimize.hiring.data.generation.HiringProcess;
+import org.camunda.optimize.hiring.data.generation.RandomStreams;
+import org.camunda.optimize.hiring.data.generation.Scenario;
+import org.camunda.optimize.hiring.data.generation.TaskDurations;
+import org.camunda.optimize.hiring.data.generation.TaskIdParser;
+import org.camunda.optimize.hiring.data.generation.dto.MessageCorrelationDto;
+import org.camunda.optimize.hiring.data.generation.dto.TaskDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The JSON work of the REST client: writing a start correlation the way the client sends it and reading a page
+ * of the task list the engine returns, either into task objects or as a stream of task ids.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SerializationBenchmark {
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final ObjectWriter correlationWriter = objectMapper.writerFor(MessageCorrelationDto.class);
+  private final ByteArrayOutputStream payload = new ByteArrayOutputStream(4096);
+  private final TaskIdParser taskIdParser = new TaskIdParser(objectMapper.getFactory());
+  private MessageCorrelationDto startCorrelation;
+
+  /**
+   * A task list response, only set up for the benchmarks that read one.
+   */
+  @State(Scope.Thread)
+  public static class TaskList {
+
+    @Param({"10", "100", "1000"})
+    public int taskCount;
+
+    private String json;
+    private byte[] bytes;
+
+    @Setup
+    public void setUp() {
+      json = StubEngineServer.taskListJson(0, taskCount);
+      bytes = json.getBytes(StandardCharsets.UTF_8);
+    }
+  }
+
+  @Setup
+  public void setUp() {
+    startCorrelation = new MessageCorrelationDto();
+    startCorrelation.setAll(true);
+    startCorrelation.setMessageName(HiringProcess.CANDIDATE_APPLICATION);
+    startCorrelation.setProcessVariables(
+      Scenario.HAPPY_PATH.createVariables(
+        new RandomStreams(42, 1).forScenario(Scenario.HAPPY_PATH, 0), TaskDurations.defaults()
+      )
+    );
+  }
+
+  @Benchmark
+  public int serializeStartCorrelation() throws IOException {
+    payload.reset();
+    correlationWriter.writeValue(payload, startCorrelation);
+    return payload.size();
+  }
+
+  @Benchmark
+  public List<TaskDto> deserializeTaskList(TaskList taskList) throws IOException {
+    return objectMapper.readValue(taskList.json, new TypeReference<List<TaskDto>>() {
+    });
+  }
+
+  @Benchmark
+  public int streamTaskIds(TaskList taskList, Blackhole blackhole) throws IOException {
+    return taskIdParser.parse(new ByteArrayInputStream(taskList.bytes), blackhole::consume);
+  }
+}
@@ -0,0 +1,99 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.camunda.optimize.hiring.data.generation.benchmark;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Answers the engine REST calls of the generator without doing any work, so the round-trip benchmarks measure
+ * the client side and the local network stack only. Posts are answered with 204, the task list with a fixed page.
+ */
+class StubEngineServer implements AutoCloseable {
+
+  private final HttpServer server;
+  private final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+    Thread thread = new Thread(runnable, "stub-engine");
+    thread.setDaemon(true);
+    return thread;
+  });
+  private final byte[] taskPage;
+
+  StubEngineServer(int taskPageSize) throws IOException {
+    taskPage = taskListJson(0, taskPageSize).getBytes(StandardCharsets.UTF_8);
+    // otherwise small responses wait for delayed acknowledgements
+    System.setProperty("sun.net.httpserver.nodelay", "true");
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 128);
+    server.createContext("/engine-rest/", this::handle);
+    server.setExecutor(executor);
+    server.start();
+  }
+
+  String getEngineUrl() {
+    return "http://localhost:" + server.getAddress().getPort() + "/engine-rest";
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    try {
+      InputStream body = exchange.getRequestBody();
+      byte[] discard = new byte[4096];
+      while (body.read(discard) >= 0) {
+        // the requests are not evaluated
+      }
+      if ("GET".equals(exchange.getRequestMethod())) {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, taskPage.length);
+        exchange.getResponseBody().write(taskPage);
+      } else {
+        exchange.sendResponseHeaders(204, -1);
+      }
+    } finally {
+      exchange.close();
+    }
+  }
+
+  /**
+   * @return a task list as the engine returns it, with all the fields the generator does not read
+   */
+  static String taskListJson(int firstId, int count) {
+    StringBuilder json = new StringBuilder(count * 600 + 2).append('[');
+    for (int i = firstId; i < firstId + count; i++) {
+      if (i > firstId) {
+        json.append(',');
+      }
+      json.append("{\"id\":\"").append(i).append("\",")
+        .append("\"name\":\"Screen application\",\"assignee\":null,")
+        .append("\"created\":\"2017-06-22T10:15:30.000+0200\",\"due\":null,\"followUp\":null,")
+        .append("\"delegationState\":null,\"description\":null,\"executionId\":\"").append(i + 1).append("\",")
+        .append("\"owner\":null,\"parentTaskId\":null,\"priority\":50,")
+        .append("\"processDefinitionId\":\"HiringProcess:1:4\",\"processInstanceId\":\"").append(i + 2).append("\",")
+        .append("\"taskDefinitionKey\":\"ScreenApplication\",\"caseExecutionId\":null,\"caseInstanceId\":null,")
+        .append("\"caseDefinitionId\":null,\"suspended\":false,\"formKey\":null,\"tenantId\":null}");
+    }
+    return json.append(']').toString();
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+    executor.shutdownNow();
+  }
+}
@@ -0,0 +1,62 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.camunda.optimize.hiring.data.generation.benchmark;
+
+import org.camunda.optimize.hiring.data.generation.RandomStreams;
+import org.camunda.optimize.hiring.data.generation.Scenario;
+import org.camunda.optimize.hiring.data.generation.TaskDurations;
+import org.camunda.optimize.hiring.data.generation.dto.VariableValue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creation of the variables of one instance, i.e. the path builders of {@code Main} behind the scenarios.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class VariablesBenchmark {
+
+  @Param({"HAPPY_PATH", "REJECT_AFTER_SCREENING", "REJECT_AFTER_ONSITE_INTERVIEW", "CANCEL_AT_ASSIGN_HIRING_MANAGER"})
+  public Scenario scenario;
+
+  private SplittableRandom random;
+  private TaskDurations taskDurations;
+
+  @Setup
+  public void setUp() {
+    random = new RandomStreams(42, 1).forScenario(scenario, 0);
+    taskDurations = TaskDurations.defaults();
+  }
+
+  @Benchmark
+  public Map<String, VariableValue> createVariables() {
+    return scenario.createVariables(random, taskDurations);
+  }
+}
@@ -0,0 +1,122 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.camunda.optimize.hiring.data.generation;
+
+import java.io.InterruptedIOException;
+
+/**
+ * Limits the requests in flight against the engine and adapts the limit with additive increase and multiplicative
+ * decrease: every answer in time raises the limit by one per limit answers, an overload answer (429, 503, no answer at
+ * all) halves it, and another error answer or a recent latency of more than {@code latencyTolerance} times the
+ * long-term latency lowers it by a tenth. Both latencies are exponentially smoothed, the recent one over some ten
+ * answers and the long-term one over some thousand, so single slow answers do not count and a lasting change becomes
+ * the new normal. The limit is lowered at most once per round-trip, so a burst of slow answers to requests sent at the
+ * same time counts as one signal.
+ * <p>
+ * Callers wait in {@link #acquire()} while the limit is reached, which pushes back on the workers instead of
+ * queueing requests in front of an engine that is already saturated.
+ */
+public class AimdLimiter {
+
+  private static final double RECENT_LATENCY_SMOOTHING = 0.1;
+  private static final double LONG_TERM_LATENCY_SMOOTHING = 0.001;
+
+  private final int minLimit;
+  private final int maxLimit;
+  private final double latencyTolerance;
+
+  private double limit;
+  private int inFlight = 0;
+  private double recentLatency = 0;
+  private double longTermLatency = 0;
+  private long lastDecrease = System.nanoTime();
+
+  /**
+   * @param latencyTolerance factor over the long-term latency at which the engine counts as congested, 0 to react
+   *                         to overload answers only
+   */
+  public AimdLimiter(int minLimit, int maxLimit, double latencyTolerance) {
+    this.minLimit = Math.max(1, minLimit);
+    this.maxLimit = Math.max(this.minLimit, maxLimit);
+    this.latencyTolerance = latencyTolerance;
+    this.limit = this.maxLimit;
+  }
+
+  public synchronized void acquire() throws InterruptedIOException {
+    try {
+      while (inFlight >= (int) limit) {
+        wait();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for a free engine request slot!");
+    }
+    inFlight++;
+  }
+
+  /**
+   * @param startNanos when the request was sent
+   * @param signal what the answer to the request says about the load of the engine
+   */
+  public synchronized void release(long startNanos, Signal signal) {
+    inFlight--;
+    long now = System.nanoTime();
+    long latency = now - startNanos;
+    if (signal == Signal.OVERLOADED) {
+      decrease(now, latency, 0.5);
+    } else if (signal == Signal.ERROR || isCongested(latency)) {
+      decrease(now, latency, 0.9);
+    } else {
+      limit = Math.min(maxLimit, limit + 1 / limit);
+    }
+    notifyAll();
+  }
+
+  private boolean isCongested(long latency) {
+    if (latencyTolerance <= 0) {
+      return false;
+    }
+    if (longTermLatency == 0) {
+      recentLatency = latency;
+      longTermLatency = latency;
+      return false;
+    }
+    recentLatency += RECENT_LATENCY_SMOOTHING * (latency - recentLatency);
+    longTermLatency += LONG_TERM_LATENCY_SMOOTHING * (latency - longTermLatency);
+    return recentLatency > latencyTolerance * longTermLatency;
+  }
+
+  private void decrease(long now, long latency, double factor) {
+    if (now - lastDecrease < latency) {
+      return;
+    }
+    lastDecrease = now;
+    limit = Math.max(minLimit, limit * factor);
+  }
+
+  public synchronized int getLimit() {
+    return (int) limit;
+  }
+
+  /**
+   * What the answer to a request says about the load of the engine, from the mildest to the most severe.
+   */
+  public enum Signal {
+    // answered, its latency tells whether the engine is congested
+    ANSWERED,
+    // answered with an error other than overload
+    ERROR,
+    // rejected for overload or not answered at all
+    OVERLOADED
+  }
+}
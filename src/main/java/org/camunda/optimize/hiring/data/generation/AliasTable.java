@@ -0,0 +1,83 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.camunda.optimize.hiring.data.generation;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Draws values with given weights in constant time, with Vose's alias method. Every column of the table holds
+ * one value with the probability to take it and an alias that is taken otherwise, so a draw is one random
+ * column and one random comparison, however many values there are.
+ */
+public class AliasTable<T> {
+
+  private final List<T> values;
+  private final double[] probabilities;
+  private final int[] aliases;
+
+  /**
+   * @param weights weights of the values, at least one of them positive
+   */
+  public AliasTable(Map<T, ? extends Number> weights) {
+    values = new ArrayList<>(weights.size());
+    List<Double> weightList = new ArrayList<>(weights.size());
+    double sum = 0;
+    for (Map.Entry<T, ? extends Number> weight : weights.entrySet()) {
+      double value = weight.getValue().doubleValue();
+      if (value > 0) {
+        values.add(weight.getKey());
+        weightList.add(value);
+        sum += value;
+      }
+    }
+    if (values.isEmpty()) {
+      throw new IllegalArgumentException("At least one positive weight is required!");
+    }
+
+    int size = values.size();
+    probabilities = new double[size];
+    aliases = new int[size];
+    double[] scaled = new double[size];
+    Deque<Integer> small = new ArrayDeque<>();
+    Deque<Integer> large = new ArrayDeque<>();
+    for (int i = 0; i < size; i++) {
+      scaled[i] = weightList.get(i) * size / sum;
+      (scaled[i] < 1 ? small : large).push(i);
+    }
+    while (!small.isEmpty() && !large.isEmpty()) {
+      int less = small.pop();
+      int more = large.pop();
+      probabilities[less] = scaled[less];
+      aliases[less] = more;
+      scaled[more] = scaled[more] + scaled[less] - 1;
+      (scaled[more] < 1 ? small : large).push(more);
+    }
+    // what is left is 1 up to rounding errors
+    while (!large.isEmpty()) {
+      probabilities[large.pop()] = 1;
+    }
+    while (!small.isEmpty()) {
+      probabilities[small.pop()] = 1;
+    }
+  }
+
+  public T sample(SplittableRandom random) {
+    int column = random.nextInt(values.size());
+    return random.nextDouble() < probabilities[column] ? values.get(column) : values.get(aliases[column]);
+  }
+}
@@ -0,0 +1,94 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.camunda.optimize.hiring.data.generation;
+
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.nio.ContentEncoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.entity.HttpAsyncContentProducer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * A request body that is sent from a buffer as it is, e.g. a slice of a memory mapped {@link PayloadCorpus}. The
+ * async transport writes the buffer to the connection directly, the blocking one copies it in small chunks.
+ */
+public class ByteBufferEntity extends AbstractHttpEntity implements HttpAsyncContentProducer {
+
+  private static final int CHUNK_SIZE = 8192;
+
+  private final ByteBuffer content;
+  // what is left to send of the current attempt of the async transport
+  private ByteBuffer sending;
+
+  public ByteBufferEntity(ByteBuffer content, ContentType contentType) {
+    this.content = content.duplicate();
+    this.sending = content.duplicate();
+    setContentType(contentType.toString());
+  }
+
+  @Override
+  public boolean isRepeatable() {
+    return true;
+  }
+
+  @Override
+  public long getContentLength() {
+    return content.remaining();
+  }
+
+  @Override
+  public InputStream getContent() {
+    return new PayloadCorpus.ByteBufferInputStream(content.duplicate());
+  }
+
+  @Override
+  public void writeTo(OutputStream out) throws IOException {
+    ByteBuffer buffer = content.duplicate();
+    if (buffer.hasArray()) {
+      out.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+      return;
+    }
+    byte[] chunk = new byte[Math.min(CHUNK_SIZE, buffer.remaining())];
+    while (buffer.hasRemaining()) {
+      int length = Math.min(chunk.length, buffer.remaining());
+      buffer.get(chunk, 0, length);
+      out.write(chunk, 0, length);
+    }
+  }
+
+  @Override
+  public boolean isStreaming() {
+    return false;
+  }
+
+  @Override
+  public void produceContent(ContentEncoder encoder, IOControl ioControl) throws IOException {
+    encoder.write(sending);
+    if (!sending.hasRemaining()) {
+      encoder.complete();
+    }
+  }
+
+  /**
+   * Rewinds the body, so the next attempt of the request sends it again from the start.
+   */
+  @Override
+  public void close() {
+    sending = content.duplicate();
+  }
+}
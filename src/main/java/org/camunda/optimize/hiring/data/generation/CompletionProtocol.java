@@ -0,0 +1,111 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.camunda.optimize.hiring.data.generation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * How a user task is finished: claimed by an assignee and completed, which costs two calls and shows the assignee
+ * in the user task reports, or completed right away with a single call and no assignee. The assignee of a task is
+ * picked from a pool by the hash of the task id, so the tasks spread evenly over the users and a task that is
+ * finished again is claimed by the same user.
+ * <p>
+ * A task whose claim failed is still completed, just without assignee, whether its calls are sent one after the
+ * other or pipelined, where the completion is on its way before the claim is answered.
+ */
+public class CompletionProtocol {
+
+  public static final String CLAIM_COMPLETE = "claim-complete";
+  public static final String COMPLETE = "complete";
+  public static final String DEFAULT_ASSIGNEE = "demo";
+
+  private final boolean claim;
+  private final List<String> assignees;
+
+  /**
+   * @param protocol {@link #CLAIM_COMPLETE} or {@link #COMPLETE}
+   * @param assignees the users that claim the tasks, not needed to complete them only
+   */
+  public CompletionProtocol(String protocol, List<String> assignees) {
+    switch (protocol) {
+      case CLAIM_COMPLETE:
+        claim = true;
+        break;
+      case COMPLETE:
+        claim = false;
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown task completion protocol " + protocol);
+    }
+    if (claim && assignees.isEmpty()) {
+      throw new IllegalArgumentException("The " + CLAIM_COMPLETE + " protocol needs at least one assignee");
+    }
+    this.assignees = Collections.unmodifiableList(new ArrayList<>(assignees));
+  }
+
+  public static CompletionProtocol claimAndComplete(String assignee) {
+    return new CompletionProtocol(CLAIM_COMPLETE, Collections.singletonList(assignee));
+  }
+
+  /**
+   * @return whether a task is claimed before it is completed
+   */
+  public boolean isClaim() {
+    return claim;
+  }
+
+  public String getAssignee(String taskId) {
+    if (assignees.size() == 1) {
+      return assignees.get(0);
+    }
+    // the ids of consecutive tasks differ in their last digits only, so they are mixed before they pick a user
+    int hash = taskId.hashCode() * 0x9e3779b9;
+    return assignees.get(Math.floorMod(hash ^ hash >>> 16, assignees.size()));
+  }
+
+  /**
+   * Finishes the task with one call after the other, each sent once the one before was answered.
+   *
+   * @return completes with true if the task was completed
+   */
+  public CompletableFuture<Boolean> finish(EngineClient engineClient, String taskId) {
+    if (!claim) {
+      return complete(engineClient, taskId);
+    }
+    return engineClient.claimTaskAsync(taskId, getAssignee(taskId))
+      .handle((claimed, failure) -> failure == null && claimed)
+      .thenCompose(claimed -> {
+        if (!claimed) {
+          System.out.println("Warning: Could not claim user task " + taskId + ", it is completed without assignee");
+        }
+        return complete(engineClient, taskId);
+      });
+  }
+
+  private static CompletableFuture<Boolean> complete(EngineClient engineClient, String taskId) {
+    return engineClient.completeTaskAsync(taskId).thenApply(completed -> {
+      if (!completed) {
+        System.out.println("Warning: Could not complete user task " + taskId);
+      }
+      return completed;
+    });
+  }
+
+  @Override
+  public String toString() {
+    return claim ? CLAIM_COMPLETE + " by " + assignees.size() + " user(s)" : COMPLETE;
+  }
+}
@@ -0,0 +1,133 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.camunda.optimize.hiring.data.generation;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * How long a candidate stays in a stage, in milliseconds. Durations in a scenario spec are written like
+ * {@code "1d 2h"} with the units {@code w}, {@code d}, {@code h}, {@code m}, {@code s} and {@code ms}.
+ */
+public abstract class DurationDistribution {
+
+  private static final Pattern DURATION_PART = Pattern.compile("(\\d+(?:\\.\\d+)?)\\s*(ms|w|d|h|m|s)");
+
+  public abstract long sample(SplittableRandom random);
+
+  public static DurationDistribution normal(long mean, long deviation) {
+    return new DurationDistribution() {
+      @Override
+      public long sample(SplittableRandom random) {
+        return Math.round(RandomStreams.nextGaussian(random) * deviation) + mean;
+      }
+    };
+  }
+
+  public static DurationDistribution fixed(long duration) {
+    return new DurationDistribution() {
+      @Override
+      public long sample(SplittableRandom random) {
+        return duration;
+      }
+    };
+  }
+
+  public static DurationDistribution uniform(long min, long max) {
+    return new DurationDistribution() {
+      @Override
+      public long sample(SplittableRandom random) {
+        return min + (long) (random.nextDouble() * (max - min));
+      }
+    };
+  }
+
+  public static DurationDistribution exponential(long mean) {
+    return new DurationDistribution() {
+      @Override
+      public long sample(SplittableRandom random) {
+        return Math.round(-mean * Math.log(1 - random.nextDouble()));
+      }
+    };
+  }
+
+  /**
+   * Reads a distribution like {@code {"distribution": "normal", "mean": "4d", "deviation": "1d"}}. The other
+   * distributions are {@code fixed} with {@code duration}, {@code uniform} with {@code min} and {@code max} and
+   * {@code exponential} with {@code mean}.
+   */
+  public static DurationDistribution fromJson(JsonNode json) {
+    String distribution = json.path("distribution").asText("normal");
+    switch (distribution) {
+      case "normal":
+        return normal(parseDuration(json, "mean"), json.has("deviation") ? parseDuration(json, "deviation") : 0);
+      case "fixed":
+        return fixed(parseDuration(json, "duration"));
+      case "uniform":
+        return uniform(parseDuration(json, "min"), parseDuration(json, "max"));
+      case "exponential":
+        return exponential(parseDuration(json, "mean"));
+      default:
+        throw new IllegalArgumentException("Unknown duration distribution " + distribution);
+    }
+  }
+
+  private static long parseDuration(JsonNode json, String field) {
+    JsonNode value = json.get(field);
+    if (value == null) {
+      throw new IllegalArgumentException("Duration distribution " + json + " lacks the field " + field);
+    }
+    return value.isNumber() ? value.longValue() : parseDuration(value.asText());
+  }
+
+  /**
+   * @return the milliseconds of a duration like {@code "1d 2h"}
+   */
+  public static long parseDuration(String duration) {
+    Matcher part = DURATION_PART.matcher(duration);
+    double millis = 0;
+    int end = 0;
+    while (part.find()) {
+      if (!duration.substring(end, part.start()).trim().isEmpty()) {
+        break;
+      }
+      millis += Double.parseDouble(part.group(1)) * unitMillis(part.group(2));
+      end = part.end();
+    }
+    if (end == 0 || !duration.substring(end).trim().isEmpty()) {
+      throw new IllegalArgumentException("Invalid duration " + duration + ", expected e.g. 1d 2h");
+    }
+    return Math.round(millis);
+  }
+
+  private static long unitMillis(String unit) {
+    switch (unit) {
+      case "w":
+        return TimeUnit.DAYS.toMillis(7);
+      case "d":
+        return TimeUnit.DAYS.toMillis(1);
+      case "h":
+        return TimeUnit.HOURS.toMillis(1);
+      case "m":
+        return TimeUnit.MINUTES.toMillis(1);
+      case "s":
+        return TimeUnit.SECONDS.toMillis(1);
+      default:
+        return 1;
+    }
+  }
+}
@@ -0,0 +1,157 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.camunda.optimize.hiring.data.generation;
+
+import org.camunda.bpm.engine.ProcessEngine;
+import org.camunda.bpm.engine.ProcessEngineConfiguration;
+import org.camunda.bpm.engine.ProcessEngineException;
+import org.camunda.bpm.engine.RuntimeService;
+import org.camunda.bpm.engine.TaskService;
+import org.camunda.bpm.engine.runtime.MessageCorrelationBuilder;
+import org.camunda.bpm.engine.task.Task;
+import org.camunda.bpm.engine.task.TaskQuery;
+import org.camunda.optimize.hiring.data.generation.dto.MessageCorrelationDto;
+import org.camunda.optimize.hiring.data.generation.dto.TaskDto;
+import org.camunda.optimize.hiring.data.generation.dto.VariableValue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs the hiring process on a process engine in the same JVM. Messages and task operations are passed to the
+ * engine services directly, so there is neither serialization nor a network round-trip per call.
+ */
+public class EmbeddedEngineClient implements EngineClient {
+
+  public static final String HIRING_PROCESS_RESOURCE = "hiring-process.bpmn";
+
+  private final ProcessEngine processEngine;
+  private final RuntimeService runtimeService;
+  private final TaskService taskService;
+
+  public EmbeddedEngineClient(GenerationConfig config) {
+    this(config.getEmbeddedJdbcUrl());
+  }
+
+  public EmbeddedEngineClient(String jdbcUrl) {
+    processEngine = ProcessEngineConfiguration.createStandaloneProcessEngineConfiguration()
+      .setProcessEngineName("hiring-data-generation")
+      .setJdbcUrl(jdbcUrl)
+      .setJdbcDriver("org.h2.Driver")
+      .setJdbcUsername("sa")
+      .setJdbcPassword("")
+      .setDatabaseSchemaUpdate(ProcessEngineConfiguration.DB_SCHEMA_UPDATE_TRUE)
+      .setHistory(ProcessEngineConfiguration.HISTORY_FULL)
+      .setJobExecutorActivate(false)
+      .buildProcessEngine();
+    runtimeService = processEngine.getRuntimeService();
+    taskService = processEngine.getTaskService();
+
+    processEngine.getRepositoryService()
+      .createDeployment()
+      .name("hiring-process")
+      .addClasspathResource(HIRING_PROCESS_RESOURCE)
+      .enableDuplicateFiltering(true)
+      .deploy();
+  }
+
+  public ProcessEngine getProcessEngine() {
+    return processEngine;
+  }
+
+  @Override
+  public boolean correlateMessage(MessageCorrelationDto message) {
+    MessageCorrelationBuilder correlation = runtimeService.createMessageCorrelation(message.getMessageName())
+      .setVariables(toEngineVariables(message.getProcessVariables()));
+    if (message.getBusinessKey() != null) {
+      correlation.processInstanceBusinessKey(message.getBusinessKey());
+    }
+    try {
+      if (message.isAll()) {
+        // like the REST API, a message for all instances is delivered even if no instance waits for it
+        correlation.correlateAllWithResult();
+        return true;
+      }
+      // fails if no instance or start event takes the message
+      return correlation.correlateWithResult() != null;
+    } catch (ProcessEngineException e) {
+      System.out.println("Warning: Could not correlate message " + message.getMessageName() + ": " + e.getMessage());
+      return false;
+    }
+  }
+
+  @Override
+  public List<TaskDto> getTasks(String taskDefinitionKey, String businessKeyLike, int firstResult, int maxResults) {
+    TaskQuery query = taskService.createTaskQuery();
+    if (taskDefinitionKey != null) {
+      query.taskDefinitionKey(taskDefinitionKey);
+    }
+    if (businessKeyLike != null) {
+      query.processInstanceBusinessKeyLike(businessKeyLike);
+    }
+    return toTaskDtos(query.orderByTaskId().asc().listPage(firstResult, maxResults));
+  }
+
+  @Override
+  public List<TaskDto> getTasksOfInstance(String businessKey) {
+    return toTaskDtos(taskService.createTaskQuery().processInstanceBusinessKey(businessKey).list());
+  }
+
+  private static List<TaskDto> toTaskDtos(List<Task> tasks) {
+    List<TaskDto> taskDtos = new ArrayList<>(tasks.size());
+    for (Task task : tasks) {
+      TaskDto taskDto = new TaskDto();
+      taskDto.setId(task.getId());
+      taskDto.setTaskDefinitionKey(task.getTaskDefinitionKey());
+      taskDtos.add(taskDto);
+    }
+    return taskDtos;
+  }
+
+  @Override
+  public boolean claimTask(String taskId, String userId) {
+    try {
+      taskService.claim(taskId, userId);
+      return true;
+    } catch (ProcessEngineException e) {
+      return false;
+    }
+  }
+
+  @Override
+  public boolean completeTask(String taskId) {
+    try {
+      taskService.complete(taskId);
+      return true;
+    } catch (ProcessEngineException e) {
+      return false;
+    }
+  }
+
+  static Map<String, Object> toEngineVariables(Map<String, VariableValue> variables) {
+    Map<String, Object> engineVariables = new HashMap<>();
+    if (variables != null) {
+      for (Map.Entry<String, VariableValue> variable : variables.entrySet()) {
+        engineVariables.put(variable.getKey(), variable.getValue().getValue());
+      }
+    }
+    return engineVariables;
+  }
+
+  @Override
+  public void close() {
+    processEngine.close();
+  }
+}
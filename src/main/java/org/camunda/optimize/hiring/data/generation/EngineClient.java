@@ -0,0 +1,129 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.camunda.optimize.hiring.data.generation;
+
+import org.camunda.optimize.hiring.data.generation.dto.MessageCorrelationDto;
+import org.camunda.optimize.hiring.data.generation.dto.TaskDto;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The calls the data generation makes against an engine, independent of how the engine is reached.
+ * <p>
+ * The calls that move single instances also come as async variants, so a non-blocking client can keep many
+ * instances in flight on a few threads. By default they make the blocking call on the calling thread and return a
+ * completed future.
+ */
+public interface EngineClient extends Closeable {
+
+  /**
+   * @return true if the message was correlated, false if the engine rejected it
+   */
+  boolean correlateMessage(MessageCorrelationDto message) throws IOException;
+
+  /**
+   * Correlates a message that was serialized before, e.g. recorded in a {@link PayloadCorpus}. A client that
+   * talks JSON sends the body as it is, the others read it back into a message.
+   *
+   * @param messageName the name of the message in the body
+   * @param body the serialized {@link MessageCorrelationDto}, not changed by the call
+   */
+  default boolean correlateMessage(String messageName, ByteBuffer body) throws IOException {
+    return correlateMessage(PayloadCorpus.readMessage(body));
+  }
+
+  /**
+   * Fetches one page of the open user tasks, ordered by id so that consecutive pages do not overlap.
+   *
+   * @param taskDefinitionKey only tasks of this stage, or null for all stages
+   * @param businessKeyLike only tasks of instances whose business key matches this SQL like pattern, or null
+   */
+  List<TaskDto> getTasks(String taskDefinitionKey, String businessKeyLike, int firstResult, int maxResults)
+    throws IOException;
+
+  /**
+   * Fetches the same page as {@link #getTasks} and hands the id of every task to the consumer as soon as it has
+   * been read, so the caller can work on the first tasks while the rest of the page is still arriving.
+   *
+   * @return the number of tasks on the page
+   */
+  default int forEachTaskId(String taskDefinitionKey, String businessKeyLike, int firstResult, int maxResults,
+                            TaskIdParser.TaskIdConsumer consumer) throws IOException {
+    List<TaskDto> tasks = getTasks(taskDefinitionKey, businessKeyLike, firstResult, maxResults);
+    for (TaskDto task : tasks) {
+      consumer.accept(task.getId());
+    }
+    return tasks.size();
+  }
+
+  /**
+   * @return the open user tasks of the process instance with the given business key
+   */
+  List<TaskDto> getTasksOfInstance(String businessKey) throws IOException;
+
+  boolean claimTask(String taskId, String userId) throws IOException;
+
+  boolean completeTask(String taskId) throws IOException;
+
+  default CompletableFuture<Boolean> correlateMessageAsync(MessageCorrelationDto message) {
+    return Futures.now(() -> correlateMessage(message));
+  }
+
+  default CompletableFuture<Boolean> correlateMessageAsync(String messageName, ByteBuffer body) {
+    return Futures.now(() -> correlateMessage(messageName, body));
+  }
+
+  default CompletableFuture<List<TaskDto>> getTasksOfInstanceAsync(String businessKey) {
+    return Futures.now(() -> getTasksOfInstance(businessKey));
+  }
+
+  default CompletableFuture<Boolean> claimTaskAsync(String taskId, String userId) {
+    return Futures.now(() -> claimTask(taskId, userId));
+  }
+
+  default CompletableFuture<Boolean> completeTaskAsync(String taskId) {
+    return Futures.now(() -> completeTask(taskId));
+  }
+
+  /**
+   * Finishes user tasks that do not depend on each other as the protocol says. By default every task is finished
+   * on its own; a client that pipelines sends the calls of all tasks back to back on one connection instead.
+   *
+   * @return per task, in the order of the ids, completes with true if the task was completed
+   */
+  default List<CompletableFuture<Boolean>> finishTasksAsync(List<String> taskIds, CompletionProtocol protocol) {
+    List<CompletableFuture<Boolean>> finished = new ArrayList<>(taskIds.size());
+    for (String taskId : taskIds) {
+      finished.add(protocol.finish(this, taskId));
+    }
+    return finished;
+  }
+
+  default CompletableFuture<Boolean> finishTaskAsync(String taskId, CompletionProtocol protocol) {
+    return finishTasksAsync(Collections.singletonList(taskId), protocol).get(0);
+  }
+
+  /**
+   * @return whether {@link #finishTasksAsync} pipelines the calls of the tasks
+   */
+  default boolean isPipelining() {
+    return false;
+  }
+
+}
@@ -0,0 +1,851 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.camunda.optimize.hiring.data.generation;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.utils.URIBuilder;
+import org.apache.http.client.utils.URIUtils;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.message.BasicHttpEntityEnclosingRequest;
+import org.apache.http.util.EntityUtils;
+import org.camunda.optimize.hiring.data.generation.dto.MessageCorrelationDto;
+import org.camunda.optimize.hiring.data.generation.dto.TaskDto;
+import org.camunda.optimize.hiring.data.generation.dto.UserIdDto;
+import org.camunda.optimize.hiring.data.generation.metrics.EngineMetrics;
+
+import javax.ws.rs.core.MediaType;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Client for the engine REST API that is shared by all calls of a generation run. Connections are pooled and
+ * kept alive, so consecutive requests reuse the same TCP connections instead of opening a new one per call.
+ * <p>
+ * Configured from a {@link GenerationConfig}, the requests in flight are limited by an {@link AimdLimiter}, and
+ * requests the engine rejected for overload (429, 503) or that got no connection are sent again after a jittered
+ * exponential backoff, since the engine did not process them. Requests that may have reached the engine without
+ * an answer, or that got another 5xx answer, which may come after the engine committed them, are only sent again if
+ * that does no harm: task queries, claims and completions, but not messages, which would start or move an instance
+ * twice.
+ * <p>
+ * With the {@code async} transport the requests are sent by a non-blocking client on a few I/O threads instead of
+ * blocking the calling thread, so thousands of requests can be in flight. Answers are read on a small pool of
+ * callback threads, which also run whatever the caller chained to the returned futures, and retries are scheduled
+ * on that pool instead of sleeping. The blocking calls then wait for their async counterparts. With
+ * {@code tasks.pipeline} set as well, the calls that finish independent user tasks are pipelined, see
+ * {@link #finishTasksAsync}.
+ */
+public class EngineRestClient implements EngineClient {
+
+  private final String engineUrl;
+  // either the blocking or the async client is set, depending on the transport
+  private final PoolingHttpClientConnectionManager connectionManager;
+  private final CloseableHttpClient client;
+  private final PoolingNHttpClientConnectionManager asyncConnectionManager;
+  private final CloseableHttpAsyncClient asyncClient;
+  // set if task calls are pipelined, with connections and I/O threads of its own
+  private final HttpPipeline pipeline;
+  private final ScheduledExecutorService callbacks;
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final ObjectWriter correlationWriter = objectMapper.writerFor(MessageCorrelationDto.class);
+  private final ObjectWriter claimWriter = objectMapper.writerFor(UserIdDto.class);
+  private final ObjectReader taskListReader = objectMapper.readerFor(new TypeReference<List<TaskDto>>() {
+  });
+  private final TaskIdParser taskIdParser = new TaskIdParser(objectMapper.getFactory());
+  // blocking requests are executed on the thread that serialized them, so every thread can reuse its own buffer
+  private final ThreadLocal<PayloadBuffer> payloadBuffers = ThreadLocal.withInitial(PayloadBuffer::new);
+  private EngineMetrics metrics;
+  private AimdLimiter limiter;
+  private int maxAttempts = 1;
+  private long retryBackoffMs;
+  private long maxRetryBackoffMs;
+
+  public EngineRestClient(GenerationConfig config) throws IOException {
+    this(
+      config.getEngineUrl(),
+      config.getMaxConnections(),
+      config.getConnectTimeoutMs(),
+      config.getSocketTimeoutMs(),
+      config.getKeepAliveMs(),
+      GenerationConfig.TRANSPORT_ASYNC.equals(config.getEngineTransport()) ? config.getIoThreads() : 0,
+      config.getCallbackThreads(),
+      config.getTaskPipeline() > 0
+    );
+    if (config.isAdaptiveConcurrency()) {
+      limiter = new AimdLimiter(config.getMinConcurrency(), config.getMaxConnections(), config.getLatencyTolerance());
+    }
+    maxAttempts = Math.max(1, config.getMaxAttempts());
+    retryBackoffMs = config.getRetryBackoffMs();
+    maxRetryBackoffMs = config.getMaxRetryBackoffMs();
+  }
+
+  public EngineRestClient(String engineUrl, int maxConnections, int connectTimeoutMs, int socketTimeoutMs,
+                          long keepAliveMs) throws IOException {
+    this(engineUrl, maxConnections, connectTimeoutMs, socketTimeoutMs, keepAliveMs, 0, 0, false);
+  }
+
+  /**
+   * @param ioThreads threads of the async transport, 0 for the blocking transport
+   * @param pipelining whether to pipeline task calls, only done by the async transport
+   */
+  private EngineRestClient(String engineUrl, int maxConnections, int connectTimeoutMs, int socketTimeoutMs,
+                           long keepAliveMs, int ioThreads, int callbackThreads, boolean pipelining)
+    throws IOException {
+    this.engineUrl = engineUrl.endsWith("/") ? engineUrl.substring(0, engineUrl.length() - 1) : engineUrl;
+
+    RequestConfig requestConfig = RequestConfig.custom()
+      .setConnectTimeout(connectTimeoutMs)
+      .setConnectionRequestTimeout(connectTimeoutMs)
+      .setSocketTimeout(socketTimeoutMs)
+      .build();
+
+    // use the keep alive the engine announces, otherwise keep idle connections for the configured time
+    ConnectionKeepAliveStrategy keepAliveStrategy = (response, context) -> {
+      long announced = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+      return announced > 0 ? announced : keepAliveMs;
+    };
+
+    if (ioThreads <= 0) {
+      connectionManager = new PoolingHttpClientConnectionManager(keepAliveMs, TimeUnit.MILLISECONDS);
+      connectionManager.setMaxTotal(maxConnections);
+      connectionManager.setDefaultMaxPerRoute(maxConnections);
+      connectionManager.setValidateAfterInactivity(1000);
+
+      client = HttpClients.custom()
+        .setConnectionManager(connectionManager)
+        .setDefaultRequestConfig(requestConfig)
+        .setKeepAliveStrategy(keepAliveStrategy)
+        .evictExpiredConnections()
+        .evictIdleConnections(keepAliveMs, TimeUnit.MILLISECONDS)
+        // requests are sent again by this client only, where it knows whether that is safe
+        .disableAutomaticRetries()
+        .build();
+      asyncConnectionManager = null;
+      asyncClient = null;
+      pipeline = null;
+      callbacks = null;
+      return;
+    }
+
+    IOReactorConfig ioReactorConfig = IOReactorConfig.custom()
+      .setIoThreadCount(ioThreads)
+      .setConnectTimeout(connectTimeoutMs)
+      .setSoTimeout(socketTimeoutMs)
+      .build();
+    asyncConnectionManager = new PoolingNHttpClientConnectionManager(new DefaultConnectingIOReactor(ioReactorConfig));
+    asyncConnectionManager.setMaxTotal(maxConnections);
+    asyncConnectionManager.setDefaultMaxPerRoute(maxConnections);
+
+    // the async client does not retry on its own
+    asyncClient = HttpAsyncClients.custom()
+      .setConnectionManager(asyncConnectionManager)
+      .setDefaultRequestConfig(requestConfig)
+      .setKeepAliveStrategy(keepAliveStrategy)
+      .build();
+    asyncClient.start();
+    if (pipelining) {
+      HttpHost engineHost = URIUtils.extractHost(URI.create(this.engineUrl));
+      pipeline = new HttpPipeline(engineHost, maxConnections, ioThreads, connectTimeoutMs, socketTimeoutMs);
+    } else {
+      pipeline = null;
+    }
+    AtomicInteger threadCount = new AtomicInteger();
+    callbacks = Executors.newScheduledThreadPool(Math.max(1, callbackThreads), runnable -> {
+      Thread thread = new Thread(runnable, "engine-callback-" + threadCount.getAndIncrement());
+      thread.setDaemon(true);
+      return thread;
+    });
+    // the async pool has no eviction of its own
+    callbacks.scheduleWithFixedDelay(() -> {
+      asyncConnectionManager.closeExpiredConnections();
+      asyncConnectionManager.closeIdleConnections(keepAliveMs, TimeUnit.MILLISECONDS);
+      if (pipeline != null) {
+        pipeline.closeIdle(keepAliveMs);
+      }
+    }, keepAliveMs, keepAliveMs, TimeUnit.MILLISECONDS);
+    connectionManager = null;
+    client = null;
+  }
+
+  public String getEngineUrl() {
+    return engineUrl;
+  }
+
+  /**
+   * Counts the bytes of every request body sent from now on in the given metrics.
+   */
+  public void setMetrics(EngineMetrics metrics) {
+    this.metrics = metrics;
+    if (limiter != null) {
+      metrics.setConcurrencyLimit(limiter::getLimit);
+    }
+  }
+
+  @Override
+  public boolean correlateMessage(MessageCorrelationDto message) throws IOException {
+    return send(correlation(message));
+  }
+
+  @Override
+  public CompletableFuture<Boolean> correlateMessageAsync(MessageCorrelationDto message) {
+    try {
+      return sendAsync(correlation(message));
+    } catch (IOException e) {
+      return Futures.failed(e);
+    }
+  }
+
+  /**
+   * Sends the body as it is, without reading or copying it.
+   */
+  @Override
+  public boolean correlateMessage(String messageName, ByteBuffer body) throws IOException {
+    return send(correlation(messageName, new ByteBufferEntity(body, ContentType.APPLICATION_JSON)));
+  }
+
+  @Override
+  public CompletableFuture<Boolean> correlateMessageAsync(String messageName, ByteBuffer body) {
+    return sendAsync(correlation(messageName, new ByteBufferEntity(body, ContentType.APPLICATION_JSON)));
+  }
+
+  private Call<Boolean> correlation(MessageCorrelationDto message) throws IOException {
+    PayloadBuffer payload = payloadBuffers.get();
+    payload.reset();
+    correlationWriter.writeValue(payload, message);
+    // an async request is sent later on another thread, so it needs a copy of the buffer
+    return correlation(message.getMessageName(), asyncClient != null
+      ? new ByteArrayEntity(payload.toByteArray(), ContentType.APPLICATION_JSON)
+      : payload.toEntity());
+  }
+
+  private Call<Boolean> correlation(String messageName, HttpEntity body) {
+    HttpPost post = new HttpPost(engineUrl + "/message/");
+    post.setEntity(body);
+    String endpoint = EngineMetrics.MESSAGE_PREFIX + messageName;
+    if (metrics != null) {
+      metrics.endpoint(endpoint).recordBytesSent(body.getContentLength());
+    }
+    return new Call<>(post, endpoint, false, (response, resent) -> isNoContent(response));
+  }
+
+  @Override
+  public List<TaskDto> getTasks(String taskDefinitionKey, String businessKeyLike, int firstResult, int maxResults)
+    throws IOException {
+    return send(taskQuery(
+      taskPageRequest(taskDefinitionKey, businessKeyLike, firstResult, maxResults), EngineMetrics.TASK_QUERY
+    ));
+  }
+
+  /**
+   * Parses the page while it is received and hands out every task id right away. The async transport has the
+   * whole answer in memory already, its page is parsed on the calling thread, which may block in the consumer.
+   */
+  @Override
+  public int forEachTaskId(String taskDefinitionKey, String businessKeyLike, int firstResult, int maxResults,
+                           TaskIdParser.TaskIdConsumer consumer) throws IOException {
+    HttpGet get = taskPageRequest(taskDefinitionKey, businessKeyLike, firstResult, maxResults);
+    if (asyncClient != null) {
+      HttpResponse response = Futures.get(sendAsync(
+        new Call<>(get, EngineMetrics.TASK_QUERY, true, (answer, resent) -> answer)
+      ));
+      return readTaskIds(response, consumer);
+    }
+    return execute(
+      new Call<>(get, EngineMetrics.TASK_QUERY, true, (response, resent) -> readTaskIds(response, consumer))
+    );
+  }
+
+  private int readTaskIds(HttpResponse response, TaskIdParser.TaskIdConsumer consumer) throws IOException {
+    checkTaskListStatus(response);
+    return taskIdParser.parse(response.getEntity().getContent(), consumer);
+  }
+
+  private HttpGet taskPageRequest(String taskDefinitionKey, String businessKeyLike, int firstResult, int maxResults)
+    throws IOException {
+    HttpGet get = new HttpGet(engineUrl + "/task/");
+    try {
+      URIBuilder uriBuilder = new URIBuilder(get.getURI())
+        .addParameter("sortBy", "id")
+        .addParameter("sortOrder", "asc")
+        .addParameter("firstResult", String.valueOf(firstResult))
+        .addParameter("maxResults", String.valueOf(maxResults));
+      if (taskDefinitionKey != null) {
+        uriBuilder.addParameter("taskDefinitionKey", taskDefinitionKey);
+      }
+      if (businessKeyLike != null) {
+        uriBuilder.addParameter("processInstanceBusinessKeyLike", businessKeyLike);
+      }
+      get.setURI(uriBuilder.build());
+    } catch (URISyntaxException e) {
+      throw new IOException("Could not build uri!", e);
+    }
+    return get;
+  }
+
+  @Override
+  public List<TaskDto> getTasksOfInstance(String businessKey) throws IOException {
+    return send(instanceTaskQuery(businessKey));
+  }
+
+  @Override
+  public CompletableFuture<List<TaskDto>> getTasksOfInstanceAsync(String businessKey) {
+    try {
+      return sendAsync(instanceTaskQuery(businessKey));
+    } catch (IOException e) {
+      return Futures.failed(e);
+    }
+  }
+
+  private Call<List<TaskDto>> instanceTaskQuery(String businessKey) throws IOException {
+    HttpGet get = new HttpGet(engineUrl + "/task/");
+    try {
+      get.setURI(new URIBuilder(get.getURI()).addParameter("processInstanceBusinessKey", businessKey).build());
+    } catch (URISyntaxException e) {
+      throw new IOException("Could not build uri!", e);
+    }
+    return taskQuery(get, EngineMetrics.INSTANCE_TASK_QUERY);
+  }
+
+  private Call<List<TaskDto>> taskQuery(HttpGet get, String endpoint) {
+    return new Call<>(get, endpoint, true, (response, resent) -> {
+      checkTaskListStatus(response);
+      try (InputStream content = response.getEntity().getContent()) {
+        return taskListReader.readValue(content);
+      }
+    });
+  }
+
+  private static void checkTaskListStatus(HttpResponse response) throws IOException {
+    if (response.getStatusLine().getStatusCode() != 200) {
+      EntityUtils.consume(response.getEntity());
+      throw new IOException("Could not fetch user tasks, engine responded with " + response.getStatusLine());
+    }
+  }
+
+  @Override
+  public boolean claimTask(String taskId, String userId) throws IOException {
+    return send(claim(taskId, userId));
+  }
+
+  @Override
+  public CompletableFuture<Boolean> claimTaskAsync(String taskId, String userId) {
+    try {
+      return sendAsync(claim(taskId, userId));
+    } catch (IOException e) {
+      return Futures.failed(e);
+    }
+  }
+
+  private Call<Boolean> claim(String taskId, String userId) throws IOException {
+    HttpPost claimPost = new HttpPost(engineUrl + "/task/" + taskId + "/claim");
+    ByteArrayEntity claim =
+      new ByteArrayEntity(claimWriter.writeValueAsBytes(new UserIdDto(userId)), ContentType.APPLICATION_JSON);
+    claimPost.setEntity(claim);
+    if (metrics != null) {
+      metrics.endpoint(EngineMetrics.CLAIM).recordBytesSent(claim.getContentLength());
+    }
+    // claiming a task again for the same user succeeds
+    return new Call<>(claimPost, EngineMetrics.CLAIM, true, (response, resent) -> isNoContent(response));
+  }
+
+  @Override
+  public boolean completeTask(String taskId) throws IOException {
+    return send(completion(taskId));
+  }
+
+  @Override
+  public CompletableFuture<Boolean> completeTaskAsync(String taskId) {
+    return sendAsync(completion(taskId));
+  }
+
+  private Call<Boolean> completion(String taskId) {
+    HttpPost completePost = new HttpPost(engineUrl + "/task/" + taskId + "/complete");
+    StringEntity complete = new StringEntity("{}", StandardCharsets.UTF_8);
+    completePost.setEntity(complete);
+    completePost.addHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON);
+    if (metrics != null) {
+      metrics.endpoint(EngineMetrics.COMPLETE).recordBytesSent(complete.getContentLength());
+    }
+    // a task that is gone after an attempt without answer was completed by that attempt
+    return new Call<>(completePost, EngineMetrics.COMPLETE, true,
+                      (response, resent) -> isNoContent(response) || resent && isNotFound(response));
+  }
+
+  /**
+   * Sends the claims and completions of the tasks as one pipeline: the requests go out back to back on a single
+   * connection and the engine answers them in order, so the tasks share one round trip and a task is claimed
+   * before it is completed without waiting for the answer of the claim. A task whose claim failed is still
+   * completed, just without assignee, as {@link CompletionProtocol#finish} does.
+   */
+  @Override
+  public List<CompletableFuture<Boolean>> finishTasksAsync(List<String> taskIds, CompletionProtocol protocol) {
+    if (pipeline == null) {
+      return EngineClient.super.finishTasksAsync(taskIds, protocol);
+    }
+    List<Call<Boolean>> calls = new ArrayList<>();
+    try {
+      for (String taskId : taskIds) {
+        if (protocol.isClaim()) {
+          calls.add(claim(taskId, protocol.getAssignee(taskId)));
+        }
+        calls.add(completion(taskId));
+      }
+    } catch (IOException e) {
+      List<CompletableFuture<Boolean>> failed = new ArrayList<>(taskIds.size());
+      for (int i = 0; i < taskIds.size(); i++) {
+        failed.add(Futures.failed(e));
+      }
+      return failed;
+    }
+    List<CompletableFuture<Boolean>> answers = sendPipelined(calls);
+    List<CompletableFuture<Boolean>> finished = new ArrayList<>(taskIds.size());
+    int answer = 0;
+    for (String taskId : taskIds) {
+      CompletableFuture<Boolean> claimed = protocol.isClaim()
+        ? answers.get(answer++).handle((success, failure) -> failure == null && success)
+        : CompletableFuture.completedFuture(true);
+      finished.add(claimed.thenCombine(answers.get(answer++), (claimedTask, completed) -> {
+        if (!claimedTask) {
+          System.out.println("Warning: Could not claim user task " + taskId + ", it is completed without assignee");
+        }
+        if (!completed) {
+          System.out.println("Warning: Could not complete user task " + taskId);
+        }
+        return completed;
+      }));
+    }
+    return finished;
+  }
+
+  @Override
+  public boolean isPipelining() {
+    return pipeline != null;
+  }
+
+  /**
+   * Sends the requests as one pipeline, which takes a single slot of the limiter. Requests the engine rejected
+   * for overload, or all requests of a pipeline whose connection failed, are sent again one after the other in
+   * their order, so a completion is never sent again before the claim of its task.
+   */
+  private List<CompletableFuture<Boolean>> sendPipelined(List<Call<Boolean>> calls) {
+    List<CompletableFuture<Boolean>> results = new ArrayList<>(calls.size());
+    List<HttpRequest> requests = new ArrayList<>(calls.size());
+    long start = System.nanoTime();
+    for (Call<Boolean> call : calls) {
+      CompletableFuture<Boolean> result = new CompletableFuture<>();
+      if (metrics != null) {
+        // the calls of a pipeline do not pass an instrumented client, so they are measured here
+        EngineMetrics.Endpoint endpoint = metrics.endpoint(call.endpoint);
+        result.whenComplete((success, failure) -> {
+          if (failure == null) {
+            endpoint.record(start, success);
+          } else {
+            endpoint.recordError(start);
+          }
+        });
+      }
+      results.add(result);
+      requests.add(pipelined(call.request));
+    }
+    try {
+      if (limiter != null) {
+        limiter.acquire();
+      }
+    } catch (InterruptedIOException e) {
+      results.forEach(result -> result.completeExceptionally(e));
+      return results;
+    }
+    pipeline.execute(requests, new FutureCallback<List<HttpResponse>>() {
+      @Override
+      public void completed(List<HttpResponse> responses) {
+        // the most severe answer of the pipeline counts
+        AimdLimiter.Signal signal = AimdLimiter.Signal.ANSWERED;
+        for (HttpResponse response : responses) {
+          AimdLimiter.Signal answer = signal(response);
+          if (answer.compareTo(signal) > 0) {
+            signal = answer;
+          }
+        }
+        if (limiter != null) {
+          limiter.release(start, signal);
+        }
+        callbacks.execute(() -> {
+          List<Integer> resend = new ArrayList<>();
+          for (int i = 0; i < calls.size(); i++) {
+            HttpResponse response = responses.get(i);
+            if (isResendable(calls.get(i), response) && maxAttempts > 1) {
+              resend.add(i);
+              continue;
+            }
+            try {
+              results.get(i).complete(calls.get(i).reader.read(response, false));
+            } catch (IOException | RuntimeException e) {
+              results.get(i).completeExceptionally(e);
+            }
+          }
+          resendInOrder(calls, results, resend, 0, false);
+        });
+      }
+
+      @Override
+      public void failed(Exception e) {
+        if (limiter != null) {
+          limiter.release(start, AimdLimiter.Signal.OVERLOADED);
+        }
+        List<Integer> resend = new ArrayList<>();
+        for (int i = 0; i < calls.size(); i++) {
+          resend.add(i);
+        }
+        if (maxAttempts > 1) {
+          // the requests may have reached the engine, which only claims and completions can take
+          callbacks.execute(() -> resendInOrder(calls, results, resend, 0, !isNotSent(e)));
+        } else {
+          callbacks.execute(() -> results.forEach(result -> result.completeExceptionally(Futures.toIOException(e))));
+        }
+      }
+
+      @Override
+      public void cancelled() {
+        if (limiter != null) {
+          limiter.release(start, AimdLimiter.Signal.OVERLOADED);
+        }
+        results.forEach(result -> result.completeExceptionally(
+          new InterruptedIOException("The request to the engine was cancelled!")
+        ));
+      }
+    });
+    return results;
+  }
+
+  private void resendInOrder(List<Call<Boolean>> calls, List<CompletableFuture<Boolean>> results,
+                             List<Integer> resend, int next, boolean resent) {
+    if (next >= resend.size()) {
+      return;
+    }
+    int index = resend.get(next);
+    recordRetry(calls.get(index));
+    CompletableFuture<Boolean> result = results.get(index);
+    result.whenComplete((success, failure) -> resendInOrder(calls, results, resend, next + 1, resent));
+    executeAsync(calls.get(index), 2, resent, result);
+  }
+
+  /**
+   * @return the request with the path as its target, as a pipeline sends it on a connection to the engine
+   */
+  private static HttpRequest pipelined(HttpUriRequest request) {
+    URI uri = request.getURI();
+    String target = uri.getRawQuery() != null ? uri.getRawPath() + "?" + uri.getRawQuery() : uri.getRawPath();
+    BasicHttpEntityEnclosingRequest pipelined = new BasicHttpEntityEnclosingRequest(request.getMethod(), target);
+    pipelined.setHeaders(request.getAllHeaders());
+    if (request instanceof HttpEntityEnclosingRequest) {
+      pipelined.setEntity(((HttpEntityEnclosingRequest) request).getEntity());
+    }
+    return pipelined;
+  }
+
+  private interface ResponseReader<T> {
+    /**
+     * @param resent whether an earlier attempt of the request may have reached the engine
+     */
+    T read(HttpResponse response, boolean resent) throws IOException;
+  }
+
+  /**
+   * A request with what is needed to send it again and to read its answer.
+   */
+  private static final class Call<T> {
+    private final HttpUriRequest request;
+    private final String endpoint;
+    // whether the request may be sent again if it is unknown whether the engine received it
+    private final boolean idempotent;
+    private final ResponseReader<T> reader;
+
+    private Call(HttpUriRequest request, String endpoint, boolean idempotent, ResponseReader<T> reader) {
+      this.request = request;
+      this.endpoint = endpoint;
+      this.idempotent = idempotent;
+      this.reader = reader;
+    }
+  }
+
+  private <T> T send(Call<T> call) throws IOException {
+    return asyncClient != null ? Futures.get(sendAsync(call)) : execute(call);
+  }
+
+  private <T> CompletableFuture<T> sendAsync(Call<T> call) {
+    if (asyncClient == null) {
+      return Futures.now(() -> execute(call));
+    }
+    CompletableFuture<T> result = new CompletableFuture<>();
+    executeAsync(call, 1, false, result);
+    return result;
+  }
+
+  /**
+   * Sends the request until the engine answers without overload or the attempts are used up, and reads the last
+   * answer.
+   */
+  private <T> T execute(Call<T> call) throws IOException {
+    boolean resent = false;
+    for (int attempt = 1; ; attempt++) {
+      long retryAfterMs = 0;
+      if (limiter != null) {
+        limiter.acquire();
+      }
+      long start = System.nanoTime();
+      AimdLimiter.Signal signal = AimdLimiter.Signal.OVERLOADED;
+      boolean answered = false;
+      boolean released = false;
+      try (CloseableHttpResponse response = client.execute(call.request)) {
+        signal = signal(response);
+        // the engine is done with the request once it answers, reading a streamed answer must not hold the slot
+        released = true;
+        if (limiter != null) {
+          limiter.release(start, signal);
+        }
+        if (!isResendable(call, response) || attempt >= maxAttempts) {
+          answered = true;
+          return call.reader.read(response, resent);
+        }
+        resent |= !isNotProcessed(response);
+        retryAfterMs = parseRetryAfterMs(response);
+        // the body has to be consumed, otherwise the connection is not released back to the pool
+        EntityUtils.consume(response.getEntity());
+      } catch (IOException e) {
+        boolean notSent = isNotSent(e);
+        if (answered || attempt >= maxAttempts || !notSent && !call.idempotent
+          || Thread.currentThread().isInterrupted()) {
+          throw e;
+        }
+        resent |= !notSent;
+      } finally {
+        if (limiter != null && !released) {
+          limiter.release(start, signal);
+        }
+      }
+      recordRetry(call);
+      try {
+        Thread.sleep(backoffMs(attempt, retryAfterMs));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while waiting to send a request again!");
+      }
+    }
+  }
+
+  /**
+   * Sends one attempt of the request with the async client and completes the result, or schedules the next
+   * attempt, once the engine answered. Waiting for a free slot of the limiter blocks the calling thread, which is
+   * a caller of the client or a callback thread, but never an I/O thread.
+   */
+  private <T> void executeAsync(Call<T> call, int attempt, boolean resent, CompletableFuture<T> result) {
+    try {
+      if (limiter != null) {
+        limiter.acquire();
+      }
+    } catch (InterruptedIOException e) {
+      result.completeExceptionally(e);
+      return;
+    }
+    long start = System.nanoTime();
+    asyncClient.execute(call.request, new FutureCallback<HttpResponse>() {
+      @Override
+      public void completed(HttpResponse response) {
+        AimdLimiter.Signal signal = signal(response);
+        if (limiter != null) {
+          limiter.release(start, signal);
+        }
+        if (!isResendable(call, response) || attempt >= maxAttempts) {
+          // answers are read on a callback thread, so the I/O threads only move bytes
+          callbacks.execute(() -> {
+            try {
+              result.complete(call.reader.read(response, resent));
+            } catch (IOException | RuntimeException e) {
+              result.completeExceptionally(e);
+            }
+          });
+          return;
+        }
+        retryAsync(call, attempt, resent || !isNotProcessed(response), parseRetryAfterMs(response), result);
+      }
+
+      @Override
+      public void failed(Exception e) {
+        if (limiter != null) {
+          limiter.release(start, AimdLimiter.Signal.OVERLOADED);
+        }
+        boolean notSent = isNotSent(e);
+        if (attempt >= maxAttempts || !notSent && !call.idempotent) {
+          callbacks.execute(() -> result.completeExceptionally(Futures.toIOException(e)));
+          return;
+        }
+        retryAsync(call, attempt, resent || !notSent, 0, result);
+      }
+
+      @Override
+      public void cancelled() {
+        if (limiter != null) {
+          limiter.release(start, AimdLimiter.Signal.OVERLOADED);
+        }
+        result.completeExceptionally(new InterruptedIOException("The request to the engine was cancelled!"));
+      }
+    });
+  }
+
+  private <T> void retryAsync(Call<T> call, int attempt, boolean resent, long retryAfterMs,
+                              CompletableFuture<T> result) {
+    recordRetry(call);
+    callbacks.schedule(
+      () -> executeAsync(call, attempt + 1, resent, result), backoffMs(attempt, retryAfterMs), TimeUnit.MILLISECONDS
+    );
+  }
+
+  private static boolean isNotSent(Exception e) {
+    // a timeout of the async pool means the request never got a connection
+    return e instanceof ConnectException || e instanceof ConnectTimeoutException
+      || e instanceof ConnectionPoolTimeoutException || e instanceof TimeoutException;
+  }
+
+  private void recordRetry(Call<?> call) {
+    if (metrics != null) {
+      metrics.endpoint(call.endpoint).recordRetry();
+    }
+  }
+
+  private long backoffMs(int attempt, long retryAfterMs) {
+    long cap = Math.min(maxRetryBackoffMs, retryBackoffMs << Math.min(attempt - 1, 20));
+    // half of the backoff is drawn at random, so workers that failed together do not come back together
+    return Math.max(retryAfterMs, cap / 2 + ThreadLocalRandom.current().nextLong(cap / 2 + 1));
+  }
+
+  private static long parseRetryAfterMs(HttpResponse response) {
+    Header retryAfter = response.getFirstHeader(HttpHeaders.RETRY_AFTER);
+    if (retryAfter != null) {
+      try {
+        return TimeUnit.SECONDS.toMillis(Long.parseLong(retryAfter.getValue().trim()));
+      } catch (NumberFormatException e) {
+        // an HTTP date, the backoff is used instead
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * Other 5xx answers than 503 may come after the engine committed the request, so only requests that do no harm
+   * when they reach the engine twice are sent again after them.
+   */
+  private static boolean isResendable(Call<?> call, HttpResponse response) {
+    return isNotProcessed(response) || call.idempotent && response.getStatusLine().getStatusCode() >= 500;
+  }
+
+  /**
+   * @return whether the engine answered that it did not process the request
+   */
+  private static boolean isNotProcessed(HttpResponse response) {
+    int status = response.getStatusLine().getStatusCode();
+    return status == 429 || status == 503;
+  }
+
+  private static AimdLimiter.Signal signal(HttpResponse response) {
+    if (isNotProcessed(response)) {
+      return AimdLimiter.Signal.OVERLOADED;
+    }
+    return response.getStatusLine().getStatusCode() >= 500 ? AimdLimiter.Signal.ERROR : AimdLimiter.Signal.ANSWERED;
+  }
+
+  private static boolean isNoContent(HttpResponse response) throws IOException {
+    EntityUtils.consume(response.getEntity());
+    return response.getStatusLine().getStatusCode() == 204;
+  }
+
+  private static boolean isNotFound(HttpResponse response) {
+    return response.getStatusLine().getStatusCode() == 404;
+  }
+
+  /**
+   * Keeps the serialized request body between requests, so it does not have to be copied into a new array.
+   */
+  private static class PayloadBuffer extends ByteArrayOutputStream {
+
+    private PayloadBuffer() {
+      super(4096);
+    }
+
+    private ByteArrayEntity toEntity() {
+      return new ByteArrayEntity(buf, 0, count, ContentType.APPLICATION_JSON);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (asyncClient != null) {
+      try {
+        if (pipeline != null) {
+          pipeline.close();
+        }
+        asyncClient.close();
+      } finally {
+        callbacks.shutdown();
+      }
+      return;
+    }
+    client.close();
+    connectionManager.close();
+  }
+}
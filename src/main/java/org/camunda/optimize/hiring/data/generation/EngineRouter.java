@@ -0,0 +1,300 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.camunda.optimize.hiring.data.generation;
+
+import org.camunda.optimize.hiring.data.generation.dto.MessageCorrelationDto;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Spreads the instances of a run over one or more engines. Every instance belongs to the engine its business key
+ * hashes to on a ring of virtual nodes, so all calls for an instance reach the same engine, the instances are
+ * spread evenly, and adding an engine to the list moves only the share of instances the new engine takes over.
+ * <p>
+ * Every engine has its own client with its own connections and concurrency limit, its own instance driver and its
+ * own task completer, so a slow engine does not hold back the calls to the others. The task sweeps of all engines
+ * run side by side. An engine that failed {@code failureThreshold} calls in a row is taken as down for a while:
+ * calls for its instances fail right away instead of waiting for timeouts, and the first call after that time
+ * finds out whether it is back.
+ */
+public class EngineRouter implements Closeable {
+
+  private static final int VIRTUAL_NODES = 128;
+
+  private final List<Engine> engines;
+  private final long[] ringHashes;
+  private final Engine[] ringEngines;
+  private final ExecutorService sweepers;
+
+  public EngineRouter(List<Engine> engines) {
+    if (engines.isEmpty()) {
+      throw new IllegalArgumentException("At least one engine is required!");
+    }
+    this.engines = Collections.unmodifiableList(new ArrayList<>(engines));
+    List<long[]> ring = new ArrayList<>();
+    for (int i = 0; i < engines.size(); i++) {
+      for (int node = 0; node < VIRTUAL_NODES; node++) {
+        ring.add(new long[]{hash(engines.get(i).getName() + "#" + node), i});
+      }
+    }
+    ring.sort((first, second) -> Long.compare(first[0], second[0]));
+    ringHashes = new long[ring.size()];
+    ringEngines = new Engine[ring.size()];
+    for (int i = 0; i < ring.size(); i++) {
+      ringHashes[i] = ring.get(i)[0];
+      ringEngines[i] = engines.get((int) ring.get(i)[1]);
+    }
+    AtomicInteger threadCount = new AtomicInteger();
+    sweepers = Executors.newFixedThreadPool(engines.size(), runnable -> {
+      Thread thread = new Thread(runnable, "engine-sweeper-" + threadCount.getAndIncrement());
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  public List<Engine> getEngines() {
+    return engines;
+  }
+
+  /**
+   * @return the engine the instance with the given business key belongs to
+   */
+  public Engine route(String businessKey) {
+    if (engines.size() == 1) {
+      return engines.get(0);
+    }
+    int index = Arrays.binarySearch(ringHashes, hash(businessKey));
+    if (index < 0) {
+      // the first node after the hash, wrapping around at the end of the ring
+      index = -index - 1;
+    }
+    return ringEngines[index % ringEngines.length];
+  }
+
+  /**
+   * Completes the tasks of all engines at the same time, each with its own completer.
+   *
+   * @param businessKeyLike only tasks of instances whose business key matches this SQL like pattern, or null
+   * @return the number of completed tasks of all engines
+   */
+  public long completeUserTasks(String businessKeyLike) {
+    if (engines.size() == 1) {
+      return engines.get(0).completer.completeUserTasks(null, businessKeyLike);
+    }
+    List<CompletableFuture<Long>> sweeps = new ArrayList<>();
+    for (Engine engine : engines) {
+      sweeps.add(CompletableFuture.supplyAsync(
+        () -> engine.completer.completeUserTasks(null, businessKeyLike), sweepers
+      ));
+    }
+    long completed = 0;
+    for (CompletableFuture<Long> sweep : sweeps) {
+      completed += sweep.join();
+    }
+    return completed;
+  }
+
+  /**
+   * Sends a message that is not meant for a single instance to all engines.
+   *
+   * @return whether every engine correlated it
+   */
+  public boolean correlateEverywhere(MessageCorrelationDto message) {
+    return correlateEverywhere(message.getMessageName(), engine -> engine.client.correlateMessageAsync(message));
+  }
+
+  public boolean correlateEverywhere(String messageName, ByteBuffer body) {
+    return correlateEverywhere(messageName, engine -> engine.client.correlateMessageAsync(messageName, body));
+  }
+
+  private boolean correlateEverywhere(String messageName, Function<Engine, CompletableFuture<Boolean>> correlation) {
+    List<CompletableFuture<Boolean>> calls = new ArrayList<>();
+    for (Engine engine : engines) {
+      calls.add(engine.guard(() -> correlation.apply(engine)));
+    }
+    boolean correlated = true;
+    for (int i = 0; i < calls.size(); i++) {
+      try {
+        correlated &= Futures.get(calls.get(i));
+      } catch (IOException | RuntimeException e) {
+        System.out.println("Warning: Could not send the " + messageName + " message to " + engines.get(i).getName() +
+                             ": " + e.getMessage());
+        correlated = false;
+      }
+    }
+    return correlated;
+  }
+
+  /**
+   * 64 bit FNV-1a of the UTF-8 bytes, mixed with the finalizer of MurmurHash3 so that keys which differ in their
+   * last characters only still land far apart on the ring.
+   */
+  static long hash(String value) {
+    long hash = 0xcbf29ce484222325L;
+    for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+      hash ^= b & 0xff;
+      hash *= 0x100000001b3L;
+    }
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9fe1a85ec53L;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+
+  /**
+   * Prints what every engine got and closes their completers and clients.
+   */
+  @Override
+  public void close() throws IOException {
+    sweepers.shutdown();
+    IOException failure = null;
+    for (Engine engine : engines) {
+      if (engines.size() > 1) {
+        System.out.println(engine.summary());
+      }
+      try {
+        engine.close();
+      } catch (IOException e) {
+        if (failure == null) {
+          failure = e;
+        } else {
+          failure.addSuppressed(e);
+        }
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  /**
+   * One engine of the run with everything that talks to it.
+   */
+  public static class Engine implements Closeable {
+
+    private final String name;
+    private final EngineClient client;
+    private final InstanceDriver driver;
+    private final UserTaskCompleter completer;
+    private final CompletionProtocol protocol;
+    private final int failureThreshold;
+    private final long downtimeNanos;
+    private final AtomicInteger failuresInRow = new AtomicInteger();
+    private volatile long downUntilNanos;
+    private final LongAdder succeeded = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * @param failureThreshold failed calls in a row after which the engine is taken as down, 0 to never
+     * @param downtimeMs how long calls fail right away once the engine is taken as down
+     */
+    public Engine(String name, EngineClient client, UserTaskCompleter completer, CompletionProtocol protocol,
+                  int failureThreshold, long downtimeMs) {
+      this.name = name;
+      this.client = client;
+      this.driver = new InstanceDriver(client, protocol);
+      this.completer = completer;
+      this.protocol = protocol;
+      this.failureThreshold = failureThreshold;
+      this.downtimeNanos = TimeUnit.MILLISECONDS.toNanos(downtimeMs);
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public EngineClient getClient() {
+      return client;
+    }
+
+    public InstanceDriver getDriver() {
+      return driver;
+    }
+
+    /**
+     * @return how the tasks of the instances of this engine are finished
+     */
+    public CompletionProtocol getProtocol() {
+      return protocol;
+    }
+
+    /**
+     * Makes the call unless the engine is taken as down, and takes it as down if the call fails once too often.
+     * A call that the engine answered, even with a rejection, shows that it is up.
+     */
+    public <T> CompletableFuture<T> guard(Supplier<CompletableFuture<T>> call) {
+      long downUntil = downUntilNanos;
+      if (downUntil != 0 && System.nanoTime() - downUntil < 0) {
+        rejected.increment();
+        return Futures.failed(new IOException("The engine " + name + " is taken as down after " + failureThreshold +
+                                                " failed calls in a row"));
+      }
+      CompletableFuture<T> result;
+      try {
+        result = call.get();
+      } catch (RuntimeException e) {
+        result = Futures.failed(e);
+      }
+      return result.whenComplete((value, failure) -> {
+        if (failure == null) {
+          succeeded.increment();
+          failuresInRow.set(0);
+          downUntilNanos = 0;
+          return;
+        }
+        failed.increment();
+        if (failureThreshold > 0 && failuresInRow.incrementAndGet() >= failureThreshold) {
+          if (downUntilNanos == 0) {
+            System.out.println("Warning: The engine " + name + " failed " + failureThreshold + " calls in a row, " +
+                                 "its instances are skipped for " + TimeUnit.NANOSECONDS.toMillis(downtimeNanos) +
+                                 " ms");
+          }
+          failuresInRow.set(0);
+          downUntilNanos = System.nanoTime() + downtimeNanos;
+        }
+      });
+    }
+
+    private String summary() {
+      return "Engine " + name + ": " + succeeded.sum() + " messages answered, " + failed.sum() + " failed, " +
+        rejected.sum() + " skipped while it was down";
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        completer.close();
+      } finally {
+        client.close();
+      }
+    }
+  }
+}
@@ -0,0 +1,82 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.camunda.optimize.hiring.data.generation;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Bridges blocking engine calls, which throw {@link IOException}, and the futures of the async transport.
+ */
+public final class Futures {
+
+  public interface IoCall<T> {
+    T call() throws IOException;
+  }
+
+  private Futures() {
+  }
+
+  /**
+   * Makes the call on the calling thread.
+   *
+   * @return a future that is already completed with the result or the failure of the call
+   */
+  public static <T> CompletableFuture<T> now(IoCall<T> call) {
+    try {
+      return CompletableFuture.completedFuture(call.call());
+    } catch (IOException | RuntimeException e) {
+      return failed(e);
+    }
+  }
+
+  public static <T> CompletableFuture<T> failed(Throwable failure) {
+    CompletableFuture<T> future = new CompletableFuture<>();
+    future.completeExceptionally(failure);
+    return future;
+  }
+
+  /**
+   * Waits for the future and throws its failure as it was thrown by a blocking call.
+   */
+  public static <T> T get(CompletableFuture<T> future) throws IOException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for the engine!");
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      if (e.getCause() instanceof Error) {
+        throw (Error) e.getCause();
+      }
+      throw toIOException(e.getCause());
+    }
+  }
+
+  /**
+   * @return the failure a future completed with as {@link IOException}, unwrapped from the
+   * {@link CompletionException} of a dependent stage
+   */
+  public static IOException toIOException(Throwable failure) {
+    Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+      ? failure.getCause()
+      : failure;
+    return cause instanceof IOException ? (IOException) cause : new IOException(cause.toString(), cause);
+  }
+}
@@ -0,0 +1,514 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.camunda.optimize.hiring.data.generation;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Settings of a data generation run. Every setting can be given as program argument in the form
+ * {@code --key=value} or as system property {@code -Dkey=value}, arguments take precedence.
+ */
+public class GenerationConfig {
+
+  public static final String GENERATION_MODE = "generation.mode";
+  public static final String ENGINE_MODE = "engine.mode";
+  public static final String ENGINE_URL = "engine.url";
+  public static final String ENGINE_URLS = "engine.urls";
+  public static final String FAILURE_THRESHOLD = "engine.failureThreshold";
+  public static final String DOWNTIME = "engine.downtimeMs";
+  public static final String ENGINE_TRANSPORT = "engine.transport";
+  public static final String IO_THREADS = "engine.ioThreads";
+  public static final String CALLBACK_THREADS = "engine.callbackThreads";
+  public static final String MAX_CONNECTIONS = "engine.maxConnections";
+  public static final String CONNECT_TIMEOUT = "engine.connectTimeoutMs";
+  public static final String SOCKET_TIMEOUT = "engine.socketTimeoutMs";
+  public static final String KEEP_ALIVE = "engine.keepAliveMs";
+  public static final String ADAPTIVE_CONCURRENCY = "engine.adaptiveConcurrency";
+  public static final String MIN_CONCURRENCY = "engine.minConcurrency";
+  public static final String LATENCY_TOLERANCE = "engine.latencyTolerance";
+  public static final String MAX_ATTEMPTS = "engine.maxAttempts";
+  public static final String RETRY_BACKOFF = "engine.retryBackoffMs";
+  public static final String MAX_RETRY_BACKOFF = "engine.maxRetryBackoffMs";
+  public static final String START_WORKERS = "start.workers";
+  public static final String START_QUEUE_SIZE = "start.queueSize";
+  public static final String START_MAX_IN_FLIGHT = "start.maxInFlight";
+  public static final String START_BUSINESS_KEY_PREFIX = "start.businessKeyPrefix";
+  public static final String SHARD = "shard";
+  public static final String TASK_WORKERS = "tasks.workers";
+  public static final String TASK_PAGE_SIZE = "tasks.pageSize";
+  public static final String TASK_PROTOCOL = "tasks.protocol";
+  public static final String TASK_ASSIGNEES = "tasks.assignees";
+  public static final String TASK_PIPELINE = "tasks.pipeline";
+  public static final String METRICS_INTERVAL = "metrics.intervalSeconds";
+  public static final String METRICS_DIRECTORY = "metrics.directory";
+  public static final String STUB_ENGINES = "stub.engines";
+  public static final String STUB_PORT = "stub.port";
+  public static final String STUB_THREADS = "stub.threads";
+  public static final String STUB_LATENCY = "stub.latency";
+  public static final String STUB_RATE_LIMIT = "stub.rateLimit";
+  public static final String STUB_ERROR_RATE = "stub.errorRate";
+  public static final String STUB_TIMEOUT_RATE = "stub.timeoutRate";
+  public static final String STUB_TIMEOUT = "stub.timeoutMs";
+  public static final String STUB_SEED = "stub.seed";
+  public static final String EMBEDDED_JDBC_URL = "embedded.jdbcUrl";
+  public static final String SCENARIO_SPEC = "scenario.spec";
+  public static final String SCENARIO_SCALE = "scenario.scale";
+  public static final String RANDOM_SEED = "random.seed";
+  public static final String JOURNAL_FILE = "journal.file";
+  public static final String JOURNAL_SYNC_INTERVAL = "journal.syncIntervalMs";
+  public static final String CORPUS_MODE = "corpus.mode";
+  public static final String CORPUS_FILE = "corpus.file";
+  public static final String LOAD_RATE = "load.rate";
+  public static final String LOAD_DURATION = "load.durationSeconds";
+  public static final String LOAD_PROFILE = "load.profile";
+  public static final String SOAK_POPULATION = "soak.population";
+  public static final String SOAK_TIME_SCALE = "soak.timeScale";
+  public static final String SOAK_DURATION = "soak.durationSeconds";
+  public static final String SOAK_RAMP = "soak.rampSeconds";
+  public static final String SOAK_REPORT_INTERVAL = "soak.reportSeconds";
+  public static final String SIMULATION_DAYS = "simulation.days";
+  public static final String EXPORT_DIRECTORY = "export.directory";
+  public static final String EXPORT_FORMATS = "export.formats";
+  public static final String EXPORT_CHUNK_SIZE = "export.chunkSize";
+  public static final String EXPORT_SQL_BATCH_SIZE = "export.sqlBatchSize";
+  public static final String EXPORT_PROCESS_DEFINITION_ID = "export.processDefinitionId";
+  public static final String EXPORT_ID_PREFIX = "export.idPrefix";
+
+  public static final String GENERATION_PHASED = "phased";
+  public static final String GENERATION_INTERLEAVED = "interleaved";
+  public static final String GENERATION_SIMULATED = "simulated";
+  public static final String GENERATION_EXPORT = "export";
+  public static final String GENERATION_LOAD = "load";
+  public static final String GENERATION_SOAK = "soak";
+
+  public static final String CORPUS_OFF = "off";
+  public static final String CORPUS_RECORD = "record";
+  public static final String CORPUS_REPLAY = "replay";
+
+  public static final String MODE_REST = "rest";
+  public static final String MODE_EMBEDDED = "embedded";
+  public static final String MODE_STUB = "stub";
+
+  public static final String TRANSPORT_BLOCKING = "blocking";
+  public static final String TRANSPORT_ASYNC = "async";
+
+  private final Map<String, String> settings = new HashMap<>();
+  private boolean randomSeedDrawn;
+
+  public static GenerationConfig fromArgs(String[] args) {
+    GenerationConfig config = new GenerationConfig();
+    for (String arg : args) {
+      if (!arg.startsWith("--")) {
+        throw new IllegalArgumentException("Unknown argument " + arg + ", expected --key=value");
+      }
+      int separator = arg.indexOf('=');
+      if (separator < 0) {
+        config.set(arg.substring(2), "true");
+      } else {
+        config.set(arg.substring(2, separator), arg.substring(separator + 1));
+      }
+    }
+    if (config.getString(RANDOM_SEED, null) == null) {
+      // drawn once here, so every part of the run gets the seed that is printed
+      config.set(RANDOM_SEED, Long.toString(new SplittableRandom().nextLong()));
+      config.randomSeedDrawn = true;
+    }
+    return config;
+  }
+
+  /**
+   * @return a config with the same settings, which can be changed without changing this one
+   */
+  public GenerationConfig copy() {
+    GenerationConfig copy = new GenerationConfig();
+    copy.settings.putAll(settings);
+    copy.randomSeedDrawn = randomSeedDrawn;
+    return copy;
+  }
+
+  public GenerationConfig set(String key, String value) {
+    settings.put(key, value);
+    return this;
+  }
+
+  public String getString(String key, String defaultValue) {
+    String value = settings.get(key);
+    if (value == null) {
+      value = System.getProperty(key);
+    }
+    return value != null ? value : defaultValue;
+  }
+
+  public int getInt(String key, int defaultValue) {
+    String value = getString(key, null);
+    return value != null ? Integer.parseInt(value.trim()) : defaultValue;
+  }
+
+  public long getLong(String key, long defaultValue) {
+    String value = getString(key, null);
+    return value != null ? Long.parseLong(value.trim()) : defaultValue;
+  }
+
+  public double getDouble(String key, double defaultValue) {
+    String value = getString(key, null);
+    return value != null ? Double.parseDouble(value.trim()) : defaultValue;
+  }
+
+  public boolean getBoolean(String key, boolean defaultValue) {
+    String value = getString(key, null);
+    return value != null ? Boolean.parseBoolean(value.trim()) : defaultValue;
+  }
+
+  public String getGenerationMode() {
+    return getString(GENERATION_MODE, GENERATION_PHASED);
+  }
+
+  public String getEngineMode() {
+    return getString(ENGINE_MODE, MODE_REST);
+  }
+
+  public String getEngineUrl() {
+    return getString(ENGINE_URL, "http://localhost:8080/engine-rest");
+  }
+
+  /**
+   * @return the engines the instances are spread over, by default the one engine of {@code engine.url}
+   */
+  public List<String> getEngineUrls() {
+    String urls = getString(ENGINE_URLS, null);
+    return urls != null ? Arrays.asList(urls.trim().split("\\s*,\\s*")) : Collections.singletonList(getEngineUrl());
+  }
+
+  /**
+   * @return failed calls in a row after which an engine of several is skipped for {@code engine.downtimeMs}, 0 to
+   * never skip an engine
+   */
+  public int getFailureThreshold() {
+    return getInt(FAILURE_THRESHOLD, 20);
+  }
+
+  public long getDowntimeMs() {
+    return getLong(DOWNTIME, 10000);
+  }
+
+  /**
+   * @return {@code blocking} for one thread per request in flight, {@code async} for non-blocking requests on a few
+   * I/O threads
+   */
+  public String getEngineTransport() {
+    return getString(ENGINE_TRANSPORT, TRANSPORT_BLOCKING);
+  }
+
+  public int getIoThreads() {
+    return getInt(IO_THREADS, Math.min(4, Runtime.getRuntime().availableProcessors()));
+  }
+
+  /**
+   * @return threads that read the answers of the async transport and run the next step of every instance
+   */
+  public int getCallbackThreads() {
+    return getInt(CALLBACK_THREADS, 4);
+  }
+
+  public int getMaxConnections() {
+    return getInt(MAX_CONNECTIONS, 20);
+  }
+
+  public int getConnectTimeoutMs() {
+    return getInt(CONNECT_TIMEOUT, 5000);
+  }
+
+  public int getSocketTimeoutMs() {
+    return getInt(SOCKET_TIMEOUT, 60000);
+  }
+
+  public long getKeepAliveMs() {
+    return getLong(KEEP_ALIVE, 30000);
+  }
+
+  /**
+   * @return whether the requests in flight are limited adaptively between the minimum concurrency and the maximum
+   * number of connections, otherwise only the connections limit them
+   */
+  public boolean isAdaptiveConcurrency() {
+    return getBoolean(ADAPTIVE_CONCURRENCY, true);
+  }
+
+  public int getMinConcurrency() {
+    return getInt(MIN_CONCURRENCY, 1);
+  }
+
+  /**
+   * @return factor over the long-term latency at which the engine counts as congested, 0 to react to errors only
+   */
+  public double getLatencyTolerance() {
+    return getDouble(LATENCY_TOLERANCE, 2);
+  }
+
+  /**
+   * @return how often a request is sent at most, the first attempt included
+   */
+  public int getMaxAttempts() {
+    return getInt(MAX_ATTEMPTS, 5);
+  }
+
+  public long getRetryBackoffMs() {
+    return getLong(RETRY_BACKOFF, 100);
+  }
+
+  public long getMaxRetryBackoffMs() {
+    return getLong(MAX_RETRY_BACKOFF, 10000);
+  }
+
+  public int getStartWorkers() {
+    return getInt(START_WORKERS, 1);
+  }
+
+  public int getStartQueueSize() {
+    return getInt(START_QUEUE_SIZE, 100);
+  }
+
+  /**
+   * @return how many instances all start workers together drive at the same time with the async transport
+   */
+  public int getStartMaxInFlight() {
+    return getInt(START_MAX_IN_FLIGHT, 1000);
+  }
+
+  /**
+   * @return the part of the run this process generates, all of it by default
+   */
+  public Shard getShard() {
+    String shard = getString(SHARD, null);
+    return shard != null ? Shard.parse(shard) : Shard.ALL;
+  }
+
+  /**
+   * @return the prefix of the business keys of the started instances, by default one that is unique per run, so
+   * messages for an instance never reach an instance of an earlier run. The shards of a run cannot agree on a
+   * time, so for them the default is derived from the seed they share.
+   */
+  public String getStartBusinessKeyPrefix(long seed) {
+    String unique = getShard().isAll() ? Long.toString(System.currentTimeMillis(), 36) : Long.toHexString(seed);
+    return getString(START_BUSINESS_KEY_PREFIX, "candidate-" + unique + "-");
+  }
+
+  public int getTaskWorkers() {
+    return getInt(TASK_WORKERS, 1);
+  }
+
+  public int getTaskPageSize() {
+    return getInt(TASK_PAGE_SIZE, 100);
+  }
+
+  /**
+   * @return how user tasks are finished: {@code tasks.protocol} by the users of {@code tasks.assignees}
+   */
+  public CompletionProtocol getCompletionProtocol() {
+    return new CompletionProtocol(
+      getString(TASK_PROTOCOL, CompletionProtocol.CLAIM_COMPLETE).trim(),
+      Arrays.asList(getString(TASK_ASSIGNEES, CompletionProtocol.DEFAULT_ASSIGNEE).trim().split("\\s*,\\s*"))
+    );
+  }
+
+  /**
+   * @return the number of tasks whose calls are pipelined on one connection, 0 to not pipeline
+   */
+  public int getTaskPipeline() {
+    return getInt(TASK_PIPELINE, 0);
+  }
+
+  /**
+   * @return the path of the scenario spec file, or null to use the default scenarios
+   */
+  public String getScenarioSpec() {
+    return getString(SCENARIO_SPEC, null);
+  }
+
+  /**
+   * @return the scale overriding the one of the scenario spec, or null
+   */
+  public Double getScenarioScale() {
+    String scale = getString(SCENARIO_SCALE, null);
+    return scale != null ? Double.valueOf(scale.trim()) : null;
+  }
+
+  /**
+   * @return seconds between two progress lines, 0 to only report at the end
+   */
+  public long getMetricsIntervalSeconds() {
+    return getLong(METRICS_INTERVAL, 10);
+  }
+
+  public String getMetricsDirectory() {
+    return getString(METRICS_DIRECTORY, "metrics");
+  }
+
+  /**
+   * @return how many stub engines the {@code stub} engine mode starts, to try a run with several engines
+   */
+  public int getStubEngines() {
+    return getInt(STUB_ENGINES, 1);
+  }
+
+  /**
+   * @return the port of the stub engine, 0 picks a free port
+   */
+  public int getStubPort() {
+    return getInt(STUB_PORT, MODE_STUB.equals(getEngineMode()) ? 0 : 8080);
+  }
+
+  public int getStubThreads() {
+    return getInt(STUB_THREADS, 64);
+  }
+
+  public String getStubLatency() {
+    return getString(STUB_LATENCY, "none");
+  }
+
+  public long getStubRateLimit() {
+    return getLong(STUB_RATE_LIMIT, 0);
+  }
+
+  public double getStubErrorRate() {
+    return getDouble(STUB_ERROR_RATE, 0);
+  }
+
+  public double getStubTimeoutRate() {
+    return getDouble(STUB_TIMEOUT_RATE, 0);
+  }
+
+  public long getStubTimeoutMs() {
+    return getLong(STUB_TIMEOUT, getSocketTimeoutMs() + 1000);
+  }
+
+  public long getStubSeed() {
+    return getLong(STUB_SEED, 0);
+  }
+
+  public String getEmbeddedJdbcUrl() {
+    return getString(EMBEDDED_JDBC_URL, "jdbc:h2:mem:hiring-data;DB_CLOSE_DELAY=-1");
+  }
+
+  /**
+   * @return {@code record} to write the messages of a phased or interleaved run to the corpus file instead of
+   * sending them, {@code replay} to send the messages of the corpus file to the engine, or {@code off}
+   */
+  public String getCorpusMode() {
+    return getString(CORPUS_MODE, CORPUS_OFF);
+  }
+
+  public String getCorpusFile() {
+    return getString(CORPUS_FILE, "corpus.bin");
+  }
+
+  /**
+   * @return the arrival rate of the {@code load} mode: {@code load.rate} starts per second, for
+   * {@code load.durationSeconds} or changed by the stages of {@code load.profile}
+   */
+  public LoadProfile getLoadProfile() {
+    double rate = getDouble(LOAD_RATE, 10);
+    String profile = getString(LOAD_PROFILE, null);
+    return profile != null
+      ? LoadProfile.parse(rate, profile)
+      : LoadProfile.constant(rate, getDouble(LOAD_DURATION, 60));
+  }
+
+  public int getSoakPopulation() {
+    return getInt(SOAK_POPULATION, 1000);
+  }
+
+  /**
+   * @return the factor the stage durations of the {@code soak} mode are shortened by, 1 for real time
+   */
+  public double getSoakTimeScale() {
+    return getDouble(SOAK_TIME_SCALE, 3600);
+  }
+
+  /**
+   * @return how long the {@code soak} mode runs, 0 to run until it is stopped
+   */
+  public long getSoakDurationSeconds() {
+    return getLong(SOAK_DURATION, 0);
+  }
+
+  public long getSoakRampSeconds() {
+    return getLong(SOAK_RAMP, 60);
+  }
+
+  public long getSoakReportSeconds() {
+    return getLong(SOAK_REPORT_INTERVAL, 60);
+  }
+
+  public int getSimulationDays() {
+    return getInt(SIMULATION_DAYS, 365);
+  }
+
+  public String getExportDirectory() {
+    return getString(EXPORT_DIRECTORY, "export");
+  }
+
+  public List<String> getExportFormats() {
+    return Arrays.asList(getString(EXPORT_FORMATS, "ndjson,sql").split("\\s*,\\s*"));
+  }
+
+  public long getExportChunkSize() {
+    return getLong(EXPORT_CHUNK_SIZE, 1_000_000);
+  }
+
+  public int getExportSqlBatchSize() {
+    return getInt(EXPORT_SQL_BATCH_SIZE, 1000);
+  }
+
+  public String getExportProcessDefinitionId() {
+    return getString(EXPORT_PROCESS_DEFINITION_ID, HiringProcess.PROCESS_DEFINITION_KEY + ":1:1");
+  }
+
+  public String getExportIdPrefix() {
+    return getString(EXPORT_ID_PREFIX, "gen-");
+  }
+
+  /**
+   * @return the configured seed, or the one drawn for this run if none is configured
+   */
+  public long getRandomSeed() {
+    String seed = getString(RANDOM_SEED, null);
+    if (seed == null) {
+      throw new IllegalStateException("No " + RANDOM_SEED + " configured or drawn");
+    }
+    return Long.parseLong(seed.trim());
+  }
+
+  /**
+   * @return whether the seed was configured, as opposed to drawn for this run
+   */
+  public boolean isRandomSeedConfigured() {
+    return !randomSeedDrawn && getString(RANDOM_SEED, null) != null;
+  }
+
+  /**
+   * @return the progress journal that makes a run resumable, or null to run without one
+   */
+  public String getJournalFile() {
+    return getString(JOURNAL_FILE, null);
+  }
+
+  public long getJournalSyncIntervalMs() {
+    return getLong(JOURNAL_SYNC_INTERVAL, 1000);
+  }
+}
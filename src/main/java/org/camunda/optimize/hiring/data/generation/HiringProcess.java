@@ -0,0 +1,59 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.camunda.optimize.hiring.data.generation;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Ids and names of the hiring process model the data is generated for.
+ */
+public final class HiringProcess {
+
+  public static final String PROCESS_DEFINITION_KEY = "HiringProcess";
+
+  // message names
+  public static final String CANDIDATE_APPLICATION = "candidate_application";
+  public static final String CANDIDATE_REPLIED_MESSAGE = "candidate_replied";
+  public static final String CANDIDATE_CANCELLED = "candidate_cancelled";
+
+  // Task ids
+  public static final String ASSIGN_HIRING_MANAGER = "Task_HiringManager";
+  public static final String SCREEN_APPLICATION = "Task_ScreenApplication";
+  public static final String CONDUCT_PHONE_INTERVIEW = "Task_ConductPhoneInterview";
+  public static final String CONDUCT_FIRST_ONSITE_INTERVIEW = "Task_Conduct1OnsiteInterview";
+  public static final String CONDUCT_SECOND_ONSITE_INTERVIEW = "Task_Conduct2OnsiteInterview";
+  public static final String MAKE_AN_OFFER = "Task_MakeOffer";
+  public static final String CANDIDATE_REPLIED = "Task_CandidateReplied";
+
+  /**
+   * The wait states of the process in the order an instance passes them. All of them are user tasks except
+   * {@link #CANDIDATE_REPLIED}, which waits for the {@link #CANDIDATE_REPLIED_MESSAGE} message.
+   */
+  public static final List<String> STAGES = Collections.unmodifiableList(Arrays.asList(
+    ASSIGN_HIRING_MANAGER, SCREEN_APPLICATION, CONDUCT_PHONE_INTERVIEW, CONDUCT_FIRST_ONSITE_INTERVIEW,
+    CONDUCT_SECOND_ONSITE_INTERVIEW, MAKE_AN_OFFER, CANDIDATE_REPLIED
+  ));
+
+  // variable names
+  public static final String TASK_AUTOMATICALLY_ASSIGNED = "Task_automatically_assigned";
+  public static final String TASK_SCREEN_PROCEED = "Task_screen_proceed";
+  public static final String TASK_PHONE_PROCEED = "Task_phone_proceed";
+  public static final String TASK_ONSITE_INTERVIEW = "Task_onsite_interview";
+  public static final String TASK_MAKE_OFFER = "Task_make_offer";
+  public static final String TASK_OFFER_ACCEPTED = "Task_offer_accepted";
+
+  private HiringProcess() {
+  }
+}
@@ -0,0 +1,182 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.camunda.optimize.hiring.data.generation;
+
+import org.camunda.optimize.hiring.data.generation.dto.VariableValue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.camunda.optimize.hiring.data.generation.HiringProcess.ASSIGN_HIRING_MANAGER;
+import static org.camunda.optimize.hiring.data.generation.HiringProcess.CANDIDATE_REPLIED;
+import static org.camunda.optimize.hiring.data.generation.HiringProcess.CONDUCT_FIRST_ONSITE_INTERVIEW;
+import static org.camunda.optimize.hiring.data.generation.HiringProcess.CONDUCT_PHONE_INTERVIEW;
+import static org.camunda.optimize.hiring.data.generation.HiringProcess.CONDUCT_SECOND_ONSITE_INTERVIEW;
+import static org.camunda.optimize.hiring.data.generation.HiringProcess.MAKE_AN_OFFER;
+import static org.camunda.optimize.hiring.data.generation.HiringProcess.SCREEN_APPLICATION;
+import static org.camunda.optimize.hiring.data.generation.HiringProcess.TASK_AUTOMATICALLY_ASSIGNED;
+import static org.camunda.optimize.hiring.data.generation.HiringProcess.TASK_MAKE_OFFER;
+import static org.camunda.optimize.hiring.data.generation.HiringProcess.TASK_OFFER_ACCEPTED;
+import static org.camunda.optimize.hiring.data.generation.HiringProcess.TASK_ONSITE_INTERVIEW;
+import static org.camunda.optimize.hiring.data.generation.HiringProcess.TASK_PHONE_PROCEED;
+import static org.camunda.optimize.hiring.data.generation.HiringProcess.TASK_SCREEN_PROCEED;
+
+/**
+ * The flow of hiring-process.bpmn in plain Java. It tells which activities an instance passes for a given set
+ * of variables without asking an engine, so instances can be followed or produced where no engine is involved.
+ */
+public final class HiringProcessModel {
+
+  public static final class Activity {
+    private final String id;
+    private final String type;
+
+    private Activity(String id, String type) {
+      this.id = id;
+      this.type = type;
+    }
+
+    public String getId() {
+      return id;
+    }
+
+    /**
+     * @return the activity type as the engine reports it in the history
+     */
+    public String getType() {
+      return type;
+    }
+
+    /**
+     * @return true if instances wait in this activity, i.e. it is one of the {@link HiringProcess#STAGES}
+     */
+    public boolean isStage() {
+      return HiringProcess.STAGES.contains(id);
+    }
+
+    public boolean isUserTask() {
+      return "userTask".equals(type);
+    }
+  }
+
+  public static final Activity START = new Activity("StartEvent_Application", "messageStartEvent");
+  public static final Activity AUTOMATICALLY_ASSIGNED_GATEWAY =
+    new Activity("Gateway_AutomaticallyAssigned", "exclusiveGateway");
+  public static final Activity HIRING_MANAGER_TASK = new Activity(ASSIGN_HIRING_MANAGER, "userTask");
+  public static final Activity HIRING_MANAGER_ASSIGNED_GATEWAY =
+    new Activity("Gateway_HiringManagerAssigned", "exclusiveGateway");
+  public static final Activity SCREEN_APPLICATION_TASK = new Activity(SCREEN_APPLICATION, "userTask");
+  public static final Activity SCREEN_PROCEED_GATEWAY = new Activity("Gateway_ScreenProceed", "exclusiveGateway");
+  public static final Activity REJECTED_AFTER_SCREENING_END =
+    new Activity("EndEvent_RejectedAfterScreening", "noneEndEvent");
+  public static final Activity PHONE_INTERVIEW_TASK = new Activity(CONDUCT_PHONE_INTERVIEW, "userTask");
+  public static final Activity PHONE_PROCEED_GATEWAY = new Activity("Gateway_PhoneProceed", "exclusiveGateway");
+  public static final Activity REJECTED_AFTER_PHONE_END = new Activity("EndEvent_RejectedAfterPhone", "noneEndEvent");
+  public static final Activity FIRST_ONSITE_INTERVIEW_TASK = new Activity(CONDUCT_FIRST_ONSITE_INTERVIEW, "userTask");
+  public static final Activity SECOND_ONSITE_INTERVIEW_GATEWAY =
+    new Activity("Gateway_SecondOnsiteInterview", "exclusiveGateway");
+  public static final Activity SECOND_ONSITE_INTERVIEW_TASK =
+    new Activity(CONDUCT_SECOND_ONSITE_INTERVIEW, "userTask");
+  public static final Activity ONSITE_INTERVIEWS_DONE_GATEWAY =
+    new Activity("Gateway_OnsiteInterviewsDone", "exclusiveGateway");
+  public static final Activity MAKE_OFFER_GATEWAY = new Activity("Gateway_MakeOffer", "exclusiveGateway");
+  public static final Activity REJECTED_AFTER_ONSITE_END = new Activity("EndEvent_RejectedAfterOnsite", "noneEndEvent");
+  public static final Activity MAKE_OFFER_TASK = new Activity(MAKE_AN_OFFER, "userTask");
+  public static final Activity CANDIDATE_REPLIED_TASK = new Activity(CANDIDATE_REPLIED, "receiveTask");
+  public static final Activity OFFER_ACCEPTED_GATEWAY = new Activity("Gateway_OfferAccepted", "exclusiveGateway");
+  public static final Activity CANDIDATE_HIRED_END = new Activity("EndEvent_CandidateHired", "noneEndEvent");
+  public static final Activity CANDIDATE_LOST_END = new Activity("EndEvent_CandidateLost", "noneEndEvent");
+
+  public static final Activity CANCELLED_SUB_PROCESS = new Activity("SubProcess_CandidateCancelled", "subProcess");
+  public static final Activity CANCELLED_START = new Activity("StartEvent_CandidateCancelled", "messageStartEvent");
+  public static final Activity CANCELLED_END = new Activity("EndEvent_Cancelled", "noneEndEvent");
+
+  private HiringProcessModel() {
+  }
+
+  /**
+   * Lists the activities of the main flow an instance with the given variables passes until one of the end
+   * events, in order.
+   */
+  public static List<Activity> route(Map<String, VariableValue> variables) {
+    return route(variables, null);
+  }
+
+  /**
+   * Lists the activities of the main flow an instance with the given variables passes, in order. For a
+   * scenario that is cancelled the route ends with the stage the instance is cancelled in; the activities of
+   * the cancellation event sub process are not part of it.
+   */
+  public static List<Activity> route(Map<String, VariableValue> variables, Scenario scenario) {
+    List<Activity> route = new ArrayList<>(16);
+    route.add(START);
+    route.add(AUTOMATICALLY_ASSIGNED_GATEWAY);
+    if (!isTrue(variables, TASK_AUTOMATICALLY_ASSIGNED)) {
+      if (addStage(route, HIRING_MANAGER_TASK, scenario)) {
+        return route;
+      }
+    }
+    route.add(HIRING_MANAGER_ASSIGNED_GATEWAY);
+    if (addStage(route, SCREEN_APPLICATION_TASK, scenario)) {
+      return route;
+    }
+    route.add(SCREEN_PROCEED_GATEWAY);
+    if (!isTrue(variables, TASK_SCREEN_PROCEED)) {
+      route.add(REJECTED_AFTER_SCREENING_END);
+      return route;
+    }
+    if (addStage(route, PHONE_INTERVIEW_TASK, scenario)) {
+      return route;
+    }
+    route.add(PHONE_PROCEED_GATEWAY);
+    if (!isTrue(variables, TASK_PHONE_PROCEED)) {
+      route.add(REJECTED_AFTER_PHONE_END);
+      return route;
+    }
+    if (addStage(route, FIRST_ONSITE_INTERVIEW_TASK, scenario)) {
+      return route;
+    }
+    route.add(SECOND_ONSITE_INTERVIEW_GATEWAY);
+    if (isTrue(variables, TASK_ONSITE_INTERVIEW)) {
+      if (addStage(route, SECOND_ONSITE_INTERVIEW_TASK, scenario)) {
+        return route;
+      }
+    }
+    route.add(ONSITE_INTERVIEWS_DONE_GATEWAY);
+    route.add(MAKE_OFFER_GATEWAY);
+    if (!isTrue(variables, TASK_MAKE_OFFER)) {
+      route.add(REJECTED_AFTER_ONSITE_END);
+      return route;
+    }
+    if (addStage(route, MAKE_OFFER_TASK, scenario)) {
+      return route;
+    }
+    if (addStage(route, CANDIDATE_REPLIED_TASK, scenario)) {
+      return route;
+    }
+    route.add(OFFER_ACCEPTED_GATEWAY);
+    route.add(isTrue(variables, TASK_OFFER_ACCEPTED) ? CANDIDATE_HIRED_END : CANDIDATE_LOST_END);
+    return route;
+  }
+
+  private static boolean addStage(List<Activity> route, Activity stage, Scenario scenario) {
+    route.add(stage);
+    return scenario != null && scenario.isCancelledAt(stage.getId());
+  }
+
+  private static boolean isTrue(Map<String, VariableValue> variables, String variableName) {
+    VariableValue variable = variables.get(variableName);
+    return variable != null && Boolean.TRUE.equals(variable.getValue());
+  }
+}
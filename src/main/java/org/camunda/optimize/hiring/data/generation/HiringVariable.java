@@ -0,0 +1,83 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.camunda.optimize.hiring.data.generation;
+
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+
+/**
+ * The variables a hiring process instance is started with. Each has a fixed index, so the values of an
+ * instance fit into a primitive array instead of a map of boxed values.
+ */
+public enum HiringVariable {
+
+  AUTOMATICALLY_ASSIGNED(HiringProcess.TASK_AUTOMATICALLY_ASSIGNED, true),
+  SCREEN_PROCEED(HiringProcess.TASK_SCREEN_PROCEED, true),
+  PHONE_PROCEED(HiringProcess.TASK_PHONE_PROCEED, true),
+  ONSITE_INTERVIEW(HiringProcess.TASK_ONSITE_INTERVIEW, true),
+  MAKE_OFFER(HiringProcess.TASK_MAKE_OFFER, true),
+  OFFER_ACCEPTED(HiringProcess.TASK_OFFER_ACCEPTED, true),
+
+  // durations of the stages, named after the stage
+  ASSIGN_HIRING_MANAGER_DURATION(HiringProcess.ASSIGN_HIRING_MANAGER, false),
+  SCREEN_APPLICATION_DURATION(HiringProcess.SCREEN_APPLICATION, false),
+  CONDUCT_PHONE_INTERVIEW_DURATION(HiringProcess.CONDUCT_PHONE_INTERVIEW, false),
+  CONDUCT_FIRST_ONSITE_INTERVIEW_DURATION(HiringProcess.CONDUCT_FIRST_ONSITE_INTERVIEW, false),
+  CONDUCT_SECOND_ONSITE_INTERVIEW_DURATION(HiringProcess.CONDUCT_SECOND_ONSITE_INTERVIEW, false),
+  MAKE_AN_OFFER_DURATION(HiringProcess.MAKE_AN_OFFER, false),
+  CANDIDATE_REPLIED_DURATION(HiringProcess.CANDIDATE_REPLIED, false);
+
+  private final String variableName;
+  private final boolean booleanVariable;
+  private final SerializableString serializedName;
+  private final SerializableString serializedType;
+
+  HiringVariable(String variableName, boolean booleanVariable) {
+    this.variableName = variableName;
+    this.booleanVariable = booleanVariable;
+    this.serializedName = new SerializedString(variableName);
+    this.serializedType = new SerializedString(getType());
+  }
+
+  public static HiringVariable forStage(String stage) {
+    for (HiringVariable variable : values()) {
+      if (!variable.booleanVariable && variable.variableName.equals(stage)) {
+        return variable;
+      }
+    }
+    throw new IllegalArgumentException("Unknown stage " + stage);
+  }
+
+  public String getVariableName() {
+    return variableName;
+  }
+
+  public boolean isBoolean() {
+    return booleanVariable;
+  }
+
+  /**
+   * @return the variable type as the engine REST API expects it
+   */
+  public String getType() {
+    return booleanVariable ? "Boolean" : "Long";
+  }
+
+  SerializableString getSerializedName() {
+    return serializedName;
+  }
+
+  SerializableString getSerializedType() {
+    return serializedType;
+  }
+}
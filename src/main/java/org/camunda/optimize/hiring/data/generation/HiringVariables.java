@@ -0,0 +1,237 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.camunda.optimize.hiring.data.generation;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import org.camunda.optimize.hiring.data.generation.dto.VariableValue;
+
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import static org.camunda.optimize.hiring.data.generation.VariableHelper.createBooleanVariable;
+import static org.camunda.optimize.hiring.data.generation.VariableHelper.createLongVariable;
+
+/**
+ * The variables of one hiring process instance, stored by {@link HiringVariable} index in a primitive array.
+ * It can be used wherever a variable map is expected, but it is serialized straight from the array, without
+ * creating a {@link VariableValue} per variable.
+ * <p>
+ * Variables are serialized in the order a {@link HashMap} holding the same variables iterates them, so the
+ * JSON is byte for byte the one produced when the variables were collected in a {@link HashMap}.
+ */
+@JsonSerialize(using = HiringVariables.Serializer.class)
+public class HiringVariables extends AbstractMap<String, VariableValue> {
+
+  private static final HiringVariable[] VARIABLES = HiringVariable.values();
+  private static final Map<String, HiringVariable> VARIABLES_BY_NAME = new HashMap<>();
+  // a HashMap with the default capacity has 16 buckets and grows to 32 once it holds more than 12 entries
+  private static final int HASH_MAP_RESIZE_THRESHOLD = 12;
+  private static final HiringVariable[] SMALL_MAP_ORDER = hashMapOrder(16);
+  private static final HiringVariable[] LARGE_MAP_ORDER = hashMapOrder(32);
+
+  static {
+    for (HiringVariable variable : VARIABLES) {
+      VARIABLES_BY_NAME.put(variable.getVariableName(), variable);
+    }
+  }
+
+  private final long[] values = new long[VARIABLES.length];
+  private int presentVariables = 0;
+
+  public HiringVariables setBoolean(HiringVariable variable, boolean value) {
+    requireType(variable, true);
+    return set(variable, value ? 1 : 0);
+  }
+
+  public HiringVariables setLong(HiringVariable variable, long value) {
+    requireType(variable, false);
+    return set(variable, value);
+  }
+
+  public boolean isSet(HiringVariable variable) {
+    return (presentVariables & (1 << variable.ordinal())) != 0;
+  }
+
+  /**
+   * @return the value of a boolean variable, false if it is not set
+   */
+  public boolean getBoolean(HiringVariable variable) {
+    requireType(variable, true);
+    return isSet(variable) && values[variable.ordinal()] != 0;
+  }
+
+  public long getLong(HiringVariable variable) {
+    requireType(variable, false);
+    return values[variable.ordinal()];
+  }
+
+  @Override
+  public int size() {
+    return Integer.bitCount(presentVariables);
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    HiringVariable variable = VARIABLES_BY_NAME.get(key);
+    return variable != null && isSet(variable);
+  }
+
+  @Override
+  public VariableValue get(Object key) {
+    HiringVariable variable = VARIABLES_BY_NAME.get(key);
+    return variable != null && isSet(variable) ? toVariableValue(variable) : null;
+  }
+
+  @Override
+  public VariableValue put(String key, VariableValue value) {
+    HiringVariable variable = VARIABLES_BY_NAME.get(key);
+    if (variable == null) {
+      throw new IllegalArgumentException("Unknown hiring variable " + key);
+    }
+    VariableValue previous = get(key);
+    if (variable.isBoolean()) {
+      setBoolean(variable, (Boolean) value.getValue());
+    } else {
+      setLong(variable, ((Number) value.getValue()).longValue());
+    }
+    return previous;
+  }
+
+  @Override
+  public Set<Entry<String, VariableValue>> entrySet() {
+    return new AbstractSet<Entry<String, VariableValue>>() {
+      @Override
+      public Iterator<Entry<String, VariableValue>> iterator() {
+        return new Iterator<Entry<String, VariableValue>>() {
+          private final HiringVariable[] order = serializationOrder();
+          private int next = advance(0);
+
+          private int advance(int index) {
+            while (index < order.length && !isSet(order[index])) {
+              index++;
+            }
+            return index;
+          }
+
+          @Override
+          public boolean hasNext() {
+            return next < order.length;
+          }
+
+          @Override
+          public Entry<String, VariableValue> next() {
+            if (!hasNext()) {
+              throw new NoSuchElementException();
+            }
+            HiringVariable variable = order[next];
+            next = advance(next + 1);
+            return new SimpleImmutableEntry<>(variable.getVariableName(), toVariableValue(variable));
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return HiringVariables.this.size();
+      }
+    };
+  }
+
+  private HiringVariables set(HiringVariable variable, long value) {
+    values[variable.ordinal()] = value;
+    presentVariables |= 1 << variable.ordinal();
+    return this;
+  }
+
+  private VariableValue toVariableValue(HiringVariable variable) {
+    long value = values[variable.ordinal()];
+    return variable.isBoolean() ? createBooleanVariable(value != 0) : createLongVariable(value);
+  }
+
+  private HiringVariable[] serializationOrder() {
+    return size() > HASH_MAP_RESIZE_THRESHOLD ? LARGE_MAP_ORDER : SMALL_MAP_ORDER;
+  }
+
+  private static void requireType(HiringVariable variable, boolean booleanVariable) {
+    if (variable.isBoolean() != booleanVariable) {
+      throw new IllegalArgumentException(
+        "Variable " + variable.getVariableName() + " is of type " + variable.getType()
+      );
+    }
+  }
+
+  /**
+   * Sorts the variables by the bucket a {@link HashMap} with the given number of buckets puts them in. Variables
+   * in the same bucket stay in declaration order, which is the order the path builders set them in.
+   */
+  private static HiringVariable[] hashMapOrder(int buckets) {
+    HiringVariable[] order = VARIABLES.clone();
+    Arrays.sort(order, Comparator
+      .comparingInt((HiringVariable variable) -> hashMapBucket(variable.getVariableName(), buckets))
+      .thenComparingInt(Enum::ordinal));
+    return order;
+  }
+
+  private static int hashMapBucket(String key, int buckets) {
+    int hash = key.hashCode();
+    return (hash ^ (hash >>> 16)) & (buckets - 1);
+  }
+
+  public static class Serializer extends StdSerializer<HiringVariables> {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final SerializableString VALUE = new SerializedString("value");
+    private static final SerializableString TYPE = new SerializedString("type");
+
+    public Serializer() {
+      super(HiringVariables.class);
+    }
+
+    @Override
+    public void serialize(HiringVariables variables, JsonGenerator generator, SerializerProvider provider)
+      throws IOException {
+      generator.writeStartObject();
+      for (HiringVariable variable : variables.serializationOrder()) {
+        if (variables.isSet(variable)) {
+          long value = variables.values[variable.ordinal()];
+          generator.writeFieldName(variable.getSerializedName());
+          generator.writeStartObject();
+          generator.writeFieldName(VALUE);
+          if (variable.isBoolean()) {
+            generator.writeBoolean(value != 0);
+          } else {
+            generator.writeNumber(value);
+          }
+          generator.writeFieldName(TYPE);
+          generator.writeString(variable.getSerializedType());
+          generator.writeEndObject();
+        }
+      }
+      generator.writeEndObject();
+    }
+  }
+}
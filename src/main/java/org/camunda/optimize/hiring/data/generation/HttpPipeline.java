@@ -0,0 +1,121 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.camunda.optimize.hiring.data.generation;
+
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.config.ConnectionConfig;
+import org.apache.http.impl.nio.DefaultHttpClientIODispatch;
+import org.apache.http.impl.nio.pool.BasicNIOConnPool;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.protocol.BasicAsyncRequestProducer;
+import org.apache.http.nio.protocol.BasicAsyncResponseConsumer;
+import org.apache.http.nio.protocol.HttpAsyncRequestExecutor;
+import org.apache.http.nio.protocol.HttpAsyncRequester;
+import org.apache.http.protocol.HttpCoreContext;
+import org.apache.http.protocol.HttpProcessor;
+import org.apache.http.protocol.HttpProcessorBuilder;
+import org.apache.http.protocol.RequestConnControl;
+import org.apache.http.protocol.RequestContent;
+import org.apache.http.protocol.RequestTargetHost;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends HTTP/1.1 pipelines to a single host on persistent connections of its own: the requests of a pipeline go
+ * out back to back on one connection and the answers are read in their order. The pipelining client of the async
+ * HTTP client closes its connection after every pipeline, which costs a connect per pipeline and more than the
+ * round trips it saves, so the pipelines are sent by the requester of the HTTP core instead, which puts the
+ * connection back into its pool.
+ */
+class HttpPipeline implements Closeable {
+
+  private static final long SHUTDOWN_GRACE_MS = 1000;
+
+  private final HttpHost host;
+  private final DefaultConnectingIOReactor ioReactor;
+  private final BasicNIOConnPool pool;
+  private final HttpAsyncRequester requester;
+
+  /**
+   * @param maxConnections connections to the host at most, each carrying one pipeline at a time
+   * @param ioThreads threads that send and read the pipelines
+   */
+  HttpPipeline(HttpHost host, int maxConnections, int ioThreads, int connectTimeoutMs, int socketTimeoutMs)
+    throws IOException {
+    this.host = host;
+    ioReactor = new DefaultConnectingIOReactor(IOReactorConfig.custom()
+                                                 .setIoThreadCount(ioThreads)
+                                                 .setConnectTimeout(connectTimeoutMs)
+                                                 .setSoTimeout(socketTimeoutMs)
+                                                 .build());
+    pool = new BasicNIOConnPool(ioReactor, connectTimeoutMs, ConnectionConfig.DEFAULT);
+    pool.setMaxTotal(maxConnections);
+    pool.setDefaultMaxPerRoute(maxConnections);
+    HttpProcessor processor = HttpProcessorBuilder.create()
+      .add(new RequestContent())
+      .add(new RequestTargetHost())
+      .add(new RequestConnControl())
+      .build();
+    requester = new HttpAsyncRequester(processor);
+    DefaultHttpClientIODispatch dispatch =
+      new DefaultHttpClientIODispatch(new HttpAsyncRequestExecutor(), ConnectionConfig.DEFAULT);
+    Thread reactorThread = new Thread(() -> {
+      try {
+        ioReactor.execute(dispatch);
+      } catch (InterruptedIOException e) {
+        Thread.currentThread().interrupt();
+      } catch (IOException e) {
+        System.out.println("Warning: The I/O reactor of the task pipelines stopped: " + e.getMessage());
+      }
+    }, "engine-pipeline-reactor");
+    reactorThread.setDaemon(true);
+    reactorThread.start();
+  }
+
+  /**
+   * Sends the requests as one pipeline on a pooled connection, waiting for a free one if all are busy.
+   *
+   * @param requests requests with the path as their target
+   */
+  void execute(List<HttpRequest> requests, FutureCallback<List<HttpResponse>> callback) {
+    List<BasicAsyncRequestProducer> producers = new ArrayList<>(requests.size());
+    List<BasicAsyncResponseConsumer> consumers = new ArrayList<>(requests.size());
+    for (HttpRequest request : requests) {
+      producers.add(new BasicAsyncRequestProducer(host, request));
+      consumers.add(new BasicAsyncResponseConsumer());
+    }
+    requester.executePipelined(host, producers, consumers, pool, HttpCoreContext.create(), callback);
+  }
+
+  /**
+   * Closes the connections that were idle for longer than the given time.
+   */
+  void closeIdle(long idleMs) {
+    pool.closeExpired();
+    pool.closeIdle(idleMs, TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public void close() throws IOException {
+    ioReactor.shutdown(SHUTDOWN_GRACE_MS);
+  }
+}
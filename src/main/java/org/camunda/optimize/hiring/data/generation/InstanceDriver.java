@@ -0,0 +1,82 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.camunda.optimize.hiring.data.generation;
+
+import org.camunda.optimize.hiring.data.generation.dto.MessageCorrelationDto;
+import org.camunda.optimize.hiring.data.generation.dto.TaskDto;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.camunda.optimize.hiring.data.generation.HiringProcess.CANDIDATE_CANCELLED;
+import static org.camunda.optimize.hiring.data.generation.HiringProcess.STAGES;
+
+/**
+ * Moves a single process instance, found by its business key, through the process stage by stage: the open task
+ * of the instance is completed until the instance waits in the stage its scenario ends in, and the cancellation
+ * is correlated to that instance alone. Driving an instance costs the same however many other instances are
+ * open, so the instances of all cancellation scenarios can be driven at the same time.
+ */
+public class InstanceDriver {
+
+  private final EngineClient engineClient;
+  private final CompletionProtocol protocol;
+
+  public InstanceDriver(EngineClient engineClient, CompletionProtocol protocol) {
+    this.engineClient = engineClient;
+    this.protocol = protocol;
+  }
+
+  /**
+   * Completes the tasks of the instance until it reaches the cancellation stage of the scenario and cancels it.
+   * Every step is chained to the answer of the one before, so no thread waits while the instance is driven.
+   *
+   * @return completes with true if the instance was cancelled in that stage
+   */
+  public CompletableFuture<Boolean> cancelAtStage(String businessKey, Scenario scenario) {
+    return driveFrom(0, businessKey, scenario);
+  }
+
+  private CompletableFuture<Boolean> driveFrom(int stage, String businessKey, Scenario scenario) {
+    // every stage is passed at most once, so the instance is given up even if the engine answers unexpectedly
+    if (stage >= STAGES.size()) {
+      System.out.println("Warning: Instance " + businessKey + " did not reach " + scenario.getCancelAtStage());
+      return CompletableFuture.completedFuture(false);
+    }
+    return engineClient.getTasksOfInstanceAsync(businessKey).thenCompose(tasks -> {
+      if (tasks.isEmpty()) {
+        System.out.println("Warning: Instance " + businessKey + " left the user tasks before reaching " +
+                             scenario.getCancelAtStage());
+        return CompletableFuture.completedFuture(false);
+      }
+      TaskDto task = tasks.get(0);
+      if (scenario.isCancelledAt(task.getTaskDefinitionKey())) {
+        return cancel(businessKey);
+      }
+      return engineClient.finishTaskAsync(task.getId(), protocol).thenCompose(
+        completed -> completed ? driveFrom(stage + 1, businessKey, scenario) : CompletableFuture.completedFuture(false)
+      );
+    });
+  }
+
+  private CompletableFuture<Boolean> cancel(String businessKey) {
+    MessageCorrelationDto message = new MessageCorrelationDto();
+    message.setMessageName(CANDIDATE_CANCELLED);
+    message.setBusinessKey(businessKey);
+    return engineClient.correlateMessageAsync(message).thenApply(cancelled -> {
+      if (!cancelled) {
+        System.out.println("Warning: Could not cancel instance " + businessKey);
+      }
+      return cancelled;
+    });
+  }
+}
@@ -0,0 +1,276 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.camunda.optimize.hiring.data.generation;
+
+import org.camunda.optimize.hiring.data.generation.dto.VariableValue;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Starts process instances with a fixed number of workers. With a blocking engine client every worker sends one
+ * request at a time, so at most as many correlations as there are workers are in flight. With the async transport
+ * a worker only sends the start of an instance and moves on, and all workers together keep up to
+ * {@code maxInFlight} instances in flight. Each worker has a bounded queue and the producer blocks as soon as it is
+ * full, so requests never pile up ahead of the engine. An instance that cannot be started even after the retries
+ * of the engine client is counted as failed and the others are started regardless.
+ * <p>
+ * The workers create the variables themselves, each from the random streams of its own lane. Requests are
+ * distributed round robin, so the same seed and worker count always give every instance the same variables.
+ * Every instance gets a business key made of a prefix, its lane and its number in the run, by which it can be
+ * found later. A pipeline of a {@link Shard} runs the workers of the lanes it owns only and skips the requests of
+ * the other lanes, so it creates exactly the instances these lanes create in a run of all lanes.
+ * <p>
+ * Every call of {@link #startInstances} is a phase of the {@link ProgressJournal}. The workers record how many
+ * instances of the phase they handled, and skip as many as the journal of an earlier attempt of the run recorded;
+ * they still draw the variables of the skipped instances, so the following ones get the same variables as before.
+ * An instance only counts as handled once it and all instances of the lane before it are done, so instances that
+ * were in flight when a run died are started again.
+ */
+public class InstanceStartPipeline implements Closeable {
+
+  public interface InstanceStarter {
+    /**
+     * @return completes once the instance is started and driven as far as its scenario requires
+     */
+    CompletableFuture<?> start(String businessKey, Scenario scenario, Map<String, VariableValue> variables);
+  }
+
+  private static final StartRequest POISON_PILL = new StartRequest(null, null, null);
+
+  private final InstanceStarter starter;
+  private final TaskDurations taskDurations;
+  private final Shard shard;
+  private final ProgressJournal journal;
+  private final String businessKeyPrefix;
+  private final Semaphore inFlightPermits;
+  private final AtomicLong instanceCount = new AtomicLong();
+  private final List<BlockingQueue<StartRequest>> queues = new ArrayList<>();
+  private final List<Thread> workers = new ArrayList<>();
+
+  /**
+   * Starts one worker per lane of the given random streams that the shard owns.
+   *
+   * @param taskDurations the distributions the stage durations of the variables are sampled from
+   * @param maxInFlight instances all workers together wait for at most, if the starter does not block
+   */
+  public InstanceStartPipeline(InstanceStarter starter, RandomStreams randomStreams, TaskDurations taskDurations,
+                               int queueSize, int maxInFlight, Shard shard, ProgressJournal journal) {
+    this.starter = starter;
+    this.taskDurations = taskDurations;
+    this.inFlightPermits = new Semaphore(Math.max(1, maxInFlight));
+    this.shard = shard;
+    this.journal = journal;
+    this.businessKeyPrefix = journal.getBusinessKeyPrefix();
+    shard.checkLanes(randomStreams.getLanes());
+    for (int i = 0; i < randomStreams.getLanes(); i++) {
+      if (!shard.owns(i)) {
+        queues.add(null);
+        continue;
+      }
+      BlockingQueue<StartRequest> queue = new ArrayBlockingQueue<>(Math.max(1, queueSize));
+      int lane = i;
+      Thread worker = new Thread(() -> work(queue, randomStreams, lane), "instance-starter-" + i);
+      worker.setDaemon(true);
+      queues.add(queue);
+      workers.add(worker);
+      worker.start();
+    }
+  }
+
+  /**
+   * Starts {@code count} instances of the given scenario and returns once all of them have been started, so the
+   * caller can safely continue with the follow-up steps of the phase.
+   */
+  public long startInstances(long count, Scenario scenario) throws IOException {
+    return startInstances(count, () -> scenario);
+  }
+
+  /**
+   * Starts {@code count} instances, each of the scenario the given supplier yields next, and returns once all of
+   * them have been started or failed. The supplier is called on the calling thread only.
+   *
+   * @return the number of instances that could not be started
+   */
+  public long startInstances(long count, Supplier<Scenario> scenarios) throws IOException {
+    int lanes = queues.size();
+    long ownedCount = 0;
+    for (int lane = 0; lane < lanes; lane++) {
+      if (shard.owns(lane)) {
+        ownedCount += count / lanes + (lane < count % lanes ? 1 : 0);
+      }
+    }
+    Phase phase = new Phase(journal.beginPhase(), ownedCount, lanes);
+    try {
+      for (long i = 0; i < count; i++) {
+        int lane = (int) (i % lanes);
+        long number = instanceCount.getAndIncrement();
+        // the scenario is drawn for every instance, so the mix of the owned lanes is the same as in a full run
+        Scenario scenario = scenarios.get();
+        if (queues.get(lane) != null) {
+          queues.get(lane).put(new StartRequest(businessKeyPrefix + lane + "-" + number, scenario, phase));
+        }
+      }
+      phase.done.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while starting process instances!");
+    }
+    journal.recordPhaseDone(phase.id, ownedCount);
+    long failed = phase.failed.get();
+    if (failed > 0) {
+      System.out.println("Warning: " + failed + " of " + ownedCount + " instances could not be started, the first " +
+                           "failure was: " + phase.failure.get().getMessage());
+    }
+    return failed;
+  }
+
+  private void work(BlockingQueue<StartRequest> queue, RandomStreams randomStreams, int lane) {
+    // the instances of the lane in the order they were handed out, to record the progress up to the first one
+    // that is still in flight
+    Deque<InFlight> inFlight = new ArrayDeque<>();
+    try {
+      StartRequest request;
+      while ((request = queue.take()) != POISON_PILL) {
+        Phase phase = request.phase;
+        long handled = ++phase.handledByLane[lane];
+        CompletableFuture<?> started;
+        try {
+          SplittableRandom random = randomStreams.forScenario(request.scenario, lane);
+          Map<String, VariableValue> variables = request.scenario.createVariables(random, taskDurations);
+          started = handled > journal.getRecordedProgress(phase.id, lane)
+            ? start(request, variables)
+            : CompletableFuture.completedFuture(null);
+        } catch (RuntimeException e) {
+          started = Futures.failed(e);
+        }
+        started.whenComplete((result, failure) -> {
+          if (failure != null) {
+            phase.fail(Futures.toIOException(failure));
+          }
+          phase.countDown();
+        });
+        inFlight.add(new InFlight(phase.id, handled, started));
+        while (!inFlight.isEmpty() && inFlight.peek().started.isDone()) {
+          InFlight done = inFlight.poll();
+          journal.recordProgress(done.phase, lane, done.handled);
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private CompletableFuture<?> start(StartRequest request, Map<String, VariableValue> variables)
+    throws InterruptedException {
+    inFlightPermits.acquire();
+    CompletableFuture<?> started;
+    try {
+      started = starter.start(request.businessKey, request.scenario, variables);
+    } catch (RuntimeException e) {
+      started = Futures.failed(e);
+    }
+    return started.whenComplete((result, failure) -> inFlightPermits.release());
+  }
+
+  @Override
+  public void close() {
+    for (BlockingQueue<StartRequest> queue : queues) {
+      if (queue == null) {
+        continue;
+      }
+      try {
+        queue.put(POISON_PILL);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+    for (Thread worker : workers) {
+      try {
+        worker.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+  }
+
+  private static class Phase {
+    private final int id;
+    // every lane counts only its own slot
+    private final long[] handledByLane;
+    // a latch counts int only, so the instances of a phase are counted separately
+    private final AtomicLong remaining;
+    private final CountDownLatch done;
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicReference<IOException> failure = new AtomicReference<>();
+
+    private Phase(int id, long count, int lanes) {
+      this.id = id;
+      this.handledByLane = new long[lanes];
+      remaining = new AtomicLong(count);
+      done = new CountDownLatch(count > 0 ? 1 : 0);
+    }
+
+    private void fail(IOException e) {
+      failed.incrementAndGet();
+      failure.compareAndSet(null, e);
+    }
+
+    private void countDown() {
+      if (remaining.decrementAndGet() == 0) {
+        done.countDown();
+      }
+    }
+  }
+
+  private static class InFlight {
+    private final int phase;
+    private final long handled;
+    private final CompletableFuture<?> started;
+
+    private InFlight(int phase, long handled, CompletableFuture<?> started) {
+      this.phase = phase;
+      this.handled = handled;
+      this.started = started;
+    }
+  }
+
+  private static class StartRequest {
+    private final String businessKey;
+    private final Scenario scenario;
+    private final Phase phase;
+
+    private StartRequest(String businessKey, Scenario scenario, Phase phase) {
+      this.businessKey = businessKey;
+      this.scenario = scenario;
+      this.phase = phase;
+    }
+  }
+}
@@ -0,0 +1,170 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.camunda.optimize.hiring.data.generation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The target arrival rate of a load run over time: a start rate, followed by stages that each move the rate
+ * linearly to their own rate within their duration. A constant rate is a single stage that keeps the start rate.
+ * The arrivals are spread exactly by the rate, the n-th arrival is due when the integral of the rate reaches n.
+ */
+public class LoadProfile {
+
+  private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+  private final double startRate;
+  private final List<Stage> stages;
+  private final long totalArrivals;
+
+  private LoadProfile(double startRate, List<Stage> stages) {
+    this.startRate = startRate;
+    this.stages = Collections.unmodifiableList(stages);
+    double arrivals = 0;
+    double rate = startRate;
+    for (Stage stage : stages) {
+      arrivals += (rate + stage.rate) / 2 * stage.seconds;
+      rate = stage.rate;
+    }
+    this.totalArrivals = (long) Math.floor(arrivals);
+  }
+
+  public static LoadProfile constant(double rate, double seconds) {
+    return parse(rate, rate + ":" + seconds);
+  }
+
+  /**
+   * @param startRate arrivals per second at the start
+   * @param profile comma separated stages in the form {@code rate:seconds}, e.g. {@code 100:60,500:300,500:600}
+   * for a ramp to 100/s within a minute, then to 500/s within five minutes, then ten minutes at 500/s
+   */
+  public static LoadProfile parse(double startRate, String profile) {
+    if (startRate < 0) {
+      throw new IllegalArgumentException("Negative start rate " + startRate);
+    }
+    List<Stage> stages = new ArrayList<>();
+    for (String stage : profile.split("\\s*,\\s*")) {
+      String[] parts = stage.trim().split("\\s*:\\s*");
+      if (parts.length != 2) {
+        throw new IllegalArgumentException("Stage " + stage + " of the load profile is not in the form rate:seconds");
+      }
+      double rate = Double.parseDouble(parts[0]);
+      double seconds = Double.parseDouble(parts[1]);
+      if (rate < 0 || seconds <= 0) {
+        throw new IllegalArgumentException("Stage " + stage + " of the load profile needs a rate of at least 0 " +
+                                             "and a positive duration");
+      }
+      stages.add(new Stage(rate, seconds));
+    }
+    return new LoadProfile(startRate, stages);
+  }
+
+  /**
+   * @return the number of arrivals of the whole profile
+   */
+  public long getTotalArrivals() {
+    return totalArrivals;
+  }
+
+  public double getDurationSeconds() {
+    return stages.stream().mapToDouble(stage -> stage.seconds).sum();
+  }
+
+  /**
+   * @return the average rate the profile asks for
+   */
+  public double getAverageRate() {
+    return totalArrivals / getDurationSeconds();
+  }
+
+  /**
+   * @return the times the arrivals are due at, in nanoseconds from the start of the run, in order
+   */
+  public Schedule schedule() {
+    return new Schedule();
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder profile = new StringBuilder().append(startRate).append("/s");
+    double rate = startRate;
+    for (Stage stage : stages) {
+      profile.append(stage.rate == rate ? ", held for " : ", ramped to " + stage.rate + "/s within ")
+        .append(stage.seconds).append(" s");
+      rate = stage.rate;
+    }
+    return profile.toString();
+  }
+
+  /**
+   * Walks through the stages once; not thread safe.
+   */
+  public class Schedule {
+
+    private int stage = 0;
+    // arrivals and seconds before the current stage, and the rate the stage starts with
+    private double stageArrivals = 0;
+    private double stageStartSeconds = 0;
+    private double stageStartRate = startRate;
+
+    private Schedule() {
+    }
+
+    /**
+     * @param arrival number of the arrival, counting from 0 and never lower than in the call before
+     * @return when the arrival is due, or -1 if it is beyond the profile
+     */
+    public long dueNanos(long arrival) {
+      if (arrival >= totalArrivals) {
+        return -1;
+      }
+      while (stage < stages.size()) {
+        Stage current = stages.get(stage);
+        double arrivalsInStage = (stageStartRate + current.rate) / 2 * current.seconds;
+        double left = arrival - stageArrivals;
+        if (left < arrivalsInStage) {
+          return (long) ((stageStartSeconds + secondsInStage(current, left)) * NANOS_PER_SECOND);
+        }
+        stageArrivals += arrivalsInStage;
+        stageStartSeconds += current.seconds;
+        stageStartRate = current.rate;
+        stage++;
+      }
+      return -1;
+    }
+
+    /**
+     * Solves {@code startRate * t + (rate - startRate) / (2 * seconds) * t^2 = arrivals} for the time t.
+     */
+    private double secondsInStage(Stage current, double arrivals) {
+      double slope = (current.rate - stageStartRate) / (2 * current.seconds);
+      if (Math.abs(slope) < 1e-12) {
+        return arrivals / stageStartRate;
+      }
+      double discriminant = stageStartRate * stageStartRate + 4 * slope * arrivals;
+      return (-stageStartRate + Math.sqrt(Math.max(0, discriminant))) / (2 * slope);
+    }
+  }
+
+  private static class Stage {
+    private final double rate;
+    private final double seconds;
+
+    private Stage(double rate, double seconds) {
+      this.rate = rate;
+      this.seconds = seconds;
+    }
+  }
+}
@@ -12,45 +12,68 @@
  */
 package org.camunda.optimize.hiring.data.generation;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import org.apache.http.HttpResponse;
-import org.apache.http.client.methods.HttpPost;
-import org.apache.http.entity.StringEntity;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClientBuilder;
 import org.camunda.optimize.hiring.data.generation.dto.MessageCorrelationDto;
 import org.camunda.optimize.hiring.data.generation.dto.VariableValue;
+import org.camunda.optimize.hiring.data.generation.export.CompositeHistorySink;
+import org.camunda.optimize.hiring.data.generation.export.HistoryExporter;
+import org.camunda.optimize.hiring.data.generation.export.HistorySink;
+import org.camunda.optimize.hiring.data.generation.export.NdjsonHistorySink;
+import org.camunda.optimize.hiring.data.generation.export.SqlHistorySink;
+import org.camunda.optimize.hiring.data.generation.metrics.EngineMetrics;
+import org.camunda.optimize.hiring.data.generation.metrics.InstrumentedEngineClient;
+import org.camunda.optimize.hiring.data.generation.metrics.MetricsReporter;
+import org.camunda.optimize.hiring.data.generation.stub.StubEngineServer;
 
 import java.io.IOException;
-import java.nio.charset.Charset;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Random;
-
-import static org.camunda.optimize.hiring.data.generation.VariableHelper.createBooleanVariable;
-import static org.camunda.optimize.hiring.data.generation.VariableHelper.createLongVariable;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import static org.camunda.optimize.hiring.data.generation.HiringProcess.ASSIGN_HIRING_MANAGER;
+import static org.camunda.optimize.hiring.data.generation.HiringProcess.CANDIDATE_APPLICATION;
+import static org.camunda.optimize.hiring.data.generation.HiringProcess.CANDIDATE_REPLIED;
+import static org.camunda.optimize.hiring.data.generation.HiringProcess.CANDIDATE_REPLIED_MESSAGE;
+import static org.camunda.optimize.hiring.data.generation.HiringProcess.CONDUCT_FIRST_ONSITE_INTERVIEW;
+import static org.camunda.optimize.hiring.data.generation.HiringProcess.CONDUCT_PHONE_INTERVIEW;
+import static org.camunda.optimize.hiring.data.generation.HiringProcess.CONDUCT_SECOND_ONSITE_INTERVIEW;
+import static org.camunda.optimize.hiring.data.generation.HiringProcess.MAKE_AN_OFFER;
+import static org.camunda.optimize.hiring.data.generation.HiringProcess.PROCESS_DEFINITION_KEY;
+import static org.camunda.optimize.hiring.data.generation.HiringProcess.SCREEN_APPLICATION;
+import static org.camunda.optimize.hiring.data.generation.HiringProcess.STAGES;
+import static org.camunda.optimize.hiring.data.generation.HiringVariable.AUTOMATICALLY_ASSIGNED;
+import static org.camunda.optimize.hiring.data.generation.HiringVariable.MAKE_OFFER;
+import static org.camunda.optimize.hiring.data.generation.HiringVariable.OFFER_ACCEPTED;
+import static org.camunda.optimize.hiring.data.generation.HiringVariable.ONSITE_INTERVIEW;
+import static org.camunda.optimize.hiring.data.generation.HiringVariable.PHONE_PROCEED;
+import static org.camunda.optimize.hiring.data.generation.HiringVariable.SCREEN_PROCEED;
 
 public class Main {
 
-  // Task ids
-  private static final String ASSIGN_HIRING_MANAGER = "Task_HiringManager";
-  private static final String SCREEN_APPLICATION = "Task_ScreenApplication";
-  private static final String CONDUCT_PHONE_INTERVIEW = "Task_ConductPhoneInterview";
-  private static final String CONDUCT_FIRST_ONSITE_INTERVIEW = "Task_Conduct1OnsiteInterview";
-  private static final String CONDUCT_SECOND_ONSITE_INTERVIEW = "Task_Conduct2OnsiteInterview";
-  private static final String MAKE_AN_OFFER = "Task_MakeOffer";
-  private static final String CANDIDATE_REPLIED = "Task_CandidateReplied";
-
-  private static Random random = new Random();
-  private static ObjectMapper objectMapper = new ObjectMapper();
-
-  // variable names
-  private static String TASK_AUTOMATICALLY_ASSIGNED = "Task_automatically_assigned";
-  private static String TASK_SCREEN_PROCEED = "Task_screen_proceed";
-  private static String TASK_PHONE_PROCEED = "Task_phone_proceed";
-  private static String TASK_ONSITE_INTERVIEW = "Task_onsite_interview";
-  private static String TASK_MAKE_OFFER = "Task_make_offer";
-  private static String TASK_OFFER_ACCEPTED = "Task_offer_accepted";
+  private static EngineRouter engines;
+  private static ProgressJournal journal;
+  // set while a run is recorded instead of sent to an engine
+  private static PayloadCorpus.Writer corpusWriter;
+  private static Shard runShard = Shard.ALL;
+  private static InstanceStartPipeline startPipeline;
+  private static ScenarioSpec scenarioSpec;
 
   // durations
   private static long seconds = 1000;
@@ -62,302 +85,754 @@ public class Main {
 //  private static long years = 12 * months;
 
 
-  private static String[] allVariableNames = {TASK_AUTOMATICALLY_ASSIGNED, TASK_SCREEN_PROCEED, TASK_PHONE_PROCEED,
-    TASK_ONSITE_INTERVIEW, TASK_MAKE_OFFER, TASK_OFFER_ACCEPTED};
+  private static HiringVariable[] allDecisionVariables = {AUTOMATICALLY_ASSIGNED, SCREEN_PROCEED, PHONE_PROCEED,
+    ONSITE_INTERVIEW, MAKE_OFFER, OFFER_ACCEPTED};
 
 
-  private static Map<String, VariableValue> createHappyPath() {
-    Map<String, VariableValue> variables = new HashMap<>();
-    for (String variableName : allVariableNames) {
-      variables.put(variableName, createBooleanVariable(true));
+  static HiringVariables createHappyPath(SplittableRandom random, TaskDurations taskDurations) {
+    HiringVariables variables = new HiringVariables();
+    for (HiringVariable variable : allDecisionVariables) {
+      variables.setBoolean(variable, true);
     }
-    randomizeAutomaticTaskAssignment(variables);
-    randomizeSecondOnsiteInterview(variables);
-    addTaskDurations(variables);
+    randomizeAutomaticTaskAssignment(variables, random);
+    randomizeSecondOnsiteInterview(variables, random);
+    addTaskDurations(variables, random, taskDurations);
     return variables;
   }
 
-  private static Map<String, VariableValue> assignHiringManagerPath() {
-    Map<String, VariableValue> variables = createHappyPath();
-    variables.put(TASK_AUTOMATICALLY_ASSIGNED, createBooleanVariable(false));
-    return variables;
+  static HiringVariables assignHiringManagerPath(SplittableRandom random, TaskDurations taskDurations) {
+    return createHappyPath(random, taskDurations).setBoolean(AUTOMATICALLY_ASSIGNED, false);
   }
 
-  private static Map<String, VariableValue> automaticHiringManagerAssignmentPath() {
-    Map<String, VariableValue> variables = createHappyPath();
-    variables.put(TASK_AUTOMATICALLY_ASSIGNED, createBooleanVariable(true));
-    return variables;
+  static HiringVariables automaticHiringManagerAssignmentPath(SplittableRandom random, TaskDurations taskDurations) {
+    return createHappyPath(random, taskDurations).setBoolean(AUTOMATICALLY_ASSIGNED, true);
   }
 
-  private static Map<String, VariableValue> rejectCandidateAfterScreenApplication() {
-    Map<String, VariableValue> variables = new HashMap<>();
-    randomizeAutomaticTaskAssignment(variables);
-    variables.put(TASK_SCREEN_PROCEED, createBooleanVariable(false));
+  static HiringVariables rejectCandidateAfterScreenApplication(SplittableRandom random, TaskDurations taskDurations) {
+    HiringVariables variables = new HiringVariables();
+    randomizeAutomaticTaskAssignment(variables, random);
+    variables.setBoolean(SCREEN_PROCEED, false);
     return variables;
   }
 
-  private static Map<String, VariableValue> rejectCandidateAfterPhoneInterview() {
-    Map<String, VariableValue> variables = new HashMap<>();
-    randomizeAutomaticTaskAssignment(variables);
-    variables.put(TASK_SCREEN_PROCEED, createBooleanVariable(true));
-    variables.put(TASK_PHONE_PROCEED, createBooleanVariable(false));
+  static HiringVariables rejectCandidateAfterPhoneInterview(SplittableRandom random, TaskDurations taskDurations) {
+    HiringVariables variables = new HiringVariables();
+    randomizeAutomaticTaskAssignment(variables, random);
+    variables.setBoolean(SCREEN_PROCEED, true);
+    variables.setBoolean(PHONE_PROCEED, false);
     return variables;
   }
 
-  private static Map<String, VariableValue> rejectCandidateAfterOnsiteInterview() {
-    Map<String, VariableValue> variables = new HashMap<>();
-    randomizeAutomaticTaskAssignment(variables);
-    variables.put(TASK_SCREEN_PROCEED, createBooleanVariable(true));
-    variables.put(TASK_PHONE_PROCEED, createBooleanVariable(true));
-    randomizeSecondOnsiteInterview(variables);
-    variables.put(TASK_MAKE_OFFER, createBooleanVariable(false));
+  static HiringVariables rejectCandidateAfterOnsiteInterview(SplittableRandom random, TaskDurations taskDurations) {
+    HiringVariables variables = new HiringVariables();
+    randomizeAutomaticTaskAssignment(variables, random);
+    variables.setBoolean(SCREEN_PROCEED, true);
+    variables.setBoolean(PHONE_PROCEED, true);
+    randomizeSecondOnsiteInterview(variables, random);
+    variables.setBoolean(MAKE_OFFER, false);
     return variables;
   }
 
-  private static Map<String, VariableValue> looseCandidate() {
-    Map<String, VariableValue> variables = createHappyPath();
-    variables.put(TASK_OFFER_ACCEPTED, createBooleanVariable(false));
-    return variables;
+  static HiringVariables looseCandidate(SplittableRandom random, TaskDurations taskDurations) {
+    return createHappyPath(random, taskDurations).setBoolean(OFFER_ACCEPTED, false);
   }
 
   // ----- duration
 
-  private static void addTaskDurations(Map<String, VariableValue> variables) {
-    addAssignHiringManagerDuration(variables);
-    addScreenApplicationDuration(variables);
-    addConductPhoneInterviewDuration(variables);
-    addConductFirstOnsiteInterviewDuration(variables);
-    addConductSecondOnsiteInterviewDuration(variables);
-    addMakeAnOfferDuration(variables);
-    addCandidateRepliedDuration(variables);
+  private static void addTaskDurations(HiringVariables variables, SplittableRandom random,
+                                       TaskDurations taskDurations) {
+    for (String stage : STAGES) {
+      variables.setLong(HiringVariable.forStage(stage), taskDurations.sample(stage, random));
+    }
   }
 
-  private static void randomizeAutomaticTaskAssignment(Map<String, VariableValue> variables) {
+  private static void randomizeAutomaticTaskAssignment(HiringVariables variables, SplittableRandom random) {
     int coin = random.nextInt(2);
     boolean taskAutomaticallyAssigned = coin != 0;
-    variables.put(TASK_AUTOMATICALLY_ASSIGNED, createBooleanVariable(taskAutomaticallyAssigned));
+    variables.setBoolean(AUTOMATICALLY_ASSIGNED, taskAutomaticallyAssigned);
   }
 
-  private static void randomizeSecondOnsiteInterview(Map<String, VariableValue> variables) {
+  private static void randomizeSecondOnsiteInterview(HiringVariables variables, SplittableRandom random) {
     int coin = random.nextInt(2);
     boolean taskSecondOnsiteInterview = coin != 0;
-    variables.put(TASK_ONSITE_INTERVIEW, createBooleanVariable(taskSecondOnsiteInterview));
+    variables.setBoolean(ONSITE_INTERVIEW, taskSecondOnsiteInterview);
   }
 
-  private static void addAssignHiringManagerDuration(Map<String, VariableValue> variables) {
-    long duration = calculateDuration(4 * hours, 2 * hours);
-    variables.put(ASSIGN_HIRING_MANAGER, createLongVariable(duration));
+  static Map<String, DurationDistribution> defaultTaskDurations() {
+    Map<String, DurationDistribution> durations = new HashMap<>();
+    durations.put(ASSIGN_HIRING_MANAGER, DurationDistribution.normal(4 * hours, 2 * hours));
+    durations.put(SCREEN_APPLICATION, DurationDistribution.normal(4 * days, 1 * days));
+    durations.put(CONDUCT_PHONE_INTERVIEW, DurationDistribution.normal(1 * weeks, 1 * days));
+    durations.put(CONDUCT_FIRST_ONSITE_INTERVIEW, DurationDistribution.normal(2 * weeks, 3 * days));
+    durations.put(CONDUCT_SECOND_ONSITE_INTERVIEW, DurationDistribution.normal(1 * weeks, 1 * days));
+    durations.put(MAKE_AN_OFFER, DurationDistribution.normal(1 * days + 2 * hours, 2 * hours));
+    durations.put(CANDIDATE_REPLIED, DurationDistribution.normal(5 * days, 1 * days));
+    return durations;
   }
 
-  private static void addScreenApplicationDuration(Map<String, VariableValue> variables) {
-    long duration = calculateDuration(4 * days, 1 * days);
-    variables.put(SCREEN_APPLICATION, createLongVariable(duration));
-  }
+  // ------
 
-  private static void addConductPhoneInterviewDuration(Map<String, VariableValue> variables) {
-    long duration = calculateDuration(1 * weeks, 1 * days);
-    variables.put(CONDUCT_PHONE_INTERVIEW, createLongVariable(duration));
-  }
+  // ---- instances
 
-  private static void addConductFirstOnsiteInterviewDuration(Map<String, VariableValue> variables) {
-    long duration = calculateDuration(2 * weeks, 3 * days);
-    variables.put(CONDUCT_FIRST_ONSITE_INTERVIEW, createLongVariable(duration));
+  /**
+   * Starts an instance with the given business key, or records its start if the run is recorded.
+   */
+  private static CompletableFuture<Void> startProcessInstance(String businessKey, Scenario scenario,
+                                                              Map<String, VariableValue> variables) {
+    MessageCorrelationDto message = new MessageCorrelationDto();
+    message.setAll(true);
+    message.setMessageName(CANDIDATE_APPLICATION);
+    message.setBusinessKey(businessKey);
+    message.setProcessVariables(variables);
+    if (corpusWriter != null) {
+      try {
+        corpusWriter.writeInstance(businessKey, scenario, message);
+        return CompletableFuture.completedFuture(null);
+      } catch (IOException e) {
+        return Futures.failed(e);
+      }
+    }
+    // failures are counted by the start pipeline
+    EngineRouter.Engine engine = engines.route(businessKey);
+    return driveStartedInstance(
+      engine, businessKey, scenario, engine.guard(() -> engine.getClient().correlateMessageAsync(message))
+    );
   }
 
-  private static void addConductSecondOnsiteInterviewDuration(Map<String, VariableValue> variables) {
-    long duration = calculateDuration(1 * weeks, 1 * days);
-    variables.put(CONDUCT_SECOND_ONSITE_INTERVIEW, createLongVariable(duration));
+  /**
+   * Instances of a cancellation scenario are driven to their stage and cancelled right away once they are started,
+   * so they never show up in the task sweeps of the other scenarios.
+   *
+   * @param engine the engine the instance belongs to
+   * @param start the correlation that starts the instance
+   */
+  private static CompletableFuture<Void> driveStartedInstance(EngineRouter.Engine engine, String businessKey,
+                                                              Scenario scenario, CompletableFuture<Boolean> start) {
+    return start.thenCompose(started -> {
+      if (!started) {
+        throw new CompletionException(new IOException("The engine did not start instance " + businessKey));
+      }
+      if (scenario.getCancelAtStage() == null) {
+        return CompletableFuture.completedFuture(null);
+      }
+      return engine.getDriver().cancelAtStage(businessKey, scenario).thenAccept(cancelled -> {
+        if (!cancelled) {
+          throw new CompletionException(new IOException(
+            "Instance " + businessKey + " was not cancelled at " + scenario.getCancelAtStage()
+          ));
+        }
+      });
+    });
   }
 
-  private static void addMakeAnOfferDuration(Map<String, VariableValue> variables) {
-    long duration = calculateDuration(1 * days + 2 * hours, 2 * hours);
-    variables.put(MAKE_AN_OFFER, createLongVariable(duration));
+  private static void sendCandidateCandidateReplied() throws IOException {
+    MessageCorrelationDto message = new MessageCorrelationDto();
+    message.setAll(true);
+    message.setMessageName(CANDIDATE_REPLIED_MESSAGE);
+    if (corpusWriter != null) {
+      corpusWriter.writeMessage(message);
+      return;
+    }
+    if (!engines.correlateEverywhere(message)) {
+      System.out.println("Warning: Code for send candidate replied should be 204!");
+    }
   }
 
-  private static void addCandidateRepliedDuration(Map<String, VariableValue> variables) {
-    long duration = calculateDuration(5 * days, 1 * days);
-    variables.put(CANDIDATE_REPLIED, createLongVariable(duration));
+  /**
+   * @return the given scenarios one after the other in turn, each as often as its count, e.g. A B C A C C for
+   * two times A, one time B and three times C
+   */
+  private static Supplier<Scenario> roundRobin(Map<Scenario, Long> counts) {
+    Map<Scenario, Long> remaining = new EnumMap<>(counts);
+    remaining.values().removeIf(count -> count <= 0);
+    List<Scenario> scenarios = new ArrayList<>(remaining.keySet());
+    return new Supplier<Scenario>() {
+      private int next = 0;
+
+      @Override
+      public Scenario get() {
+        Scenario scenario = scenarios.get(next++ % scenarios.size());
+        while (remaining.get(scenario) == 0) {
+          scenario = scenarios.get(next++ % scenarios.size());
+        }
+        remaining.merge(scenario, -1L, Long::sum);
+        return scenario;
+      }
+    };
   }
 
-  private static long calculateDuration(long mean, long deviation) {
-    return Math.round(random.nextGaussian() * deviation) + mean;
-  }
 
-  // ------
+  // -----
 
-  // ---- cancellation
+  public static void main(String[] args) throws IOException {
+    GenerationConfig config = GenerationConfig.fromArgs(args);
+    if (GenerationConfig.CORPUS_REPLAY.equals(config.getCorpusMode())) {
+      // the corpus holds the instances already, no spec or seed is needed
+      replayCorpus(config);
+      return;
+    }
+    scenarioSpec = ScenarioSpec.load(config);
+    if (!GenerationConfig.GENERATION_LOAD.equals(config.getGenerationMode()) &&
+      !GenerationConfig.GENERATION_SOAK.equals(config.getGenerationMode())) {
+      System.out.println("Generating " + scenarioSpec.getTotalCount() + " instances");
+    }
+    switch (config.getGenerationMode()) {
+      case GenerationConfig.GENERATION_PHASED:
+        generatePhased(config, false);
+        break;
+      case GenerationConfig.GENERATION_INTERLEAVED:
+        generatePhased(config, true);
+        break;
+      case GenerationConfig.GENERATION_SIMULATED:
+        checkUnsharded(config);
+        checkUnrecorded(config);
+        generateSimulated(config);
+        break;
+      case GenerationConfig.GENERATION_EXPORT:
+        checkUnsharded(config);
+        checkUnrecorded(config);
+        generateExport(config);
+        break;
+      case GenerationConfig.GENERATION_LOAD:
+        checkUnsharded(config);
+        checkUnrecorded(config);
+        generateLoad(config);
+        break;
+      case GenerationConfig.GENERATION_SOAK:
+        checkUnsharded(config);
+        checkUnrecorded(config);
+        generateSoak(config);
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown generation mode " + config.getGenerationMode());
+    }
+  }
 
-  private static void sendCandidateCancelEvent() throws IOException {
-    CloseableHttpClient client = HttpClientBuilder.create().build();
-    HttpPost post = new HttpPost("http://localhost:8080/engine-rest/message/");
-    post.setHeader("Content-type", "application/json");
-    MessageCorrelationDto message = new MessageCorrelationDto();
-    message.setAll(true);
-    message.setMessageName("candidate_cancelled");
-    StringEntity content = new StringEntity(objectMapper.writeValueAsString(message), Charset.defaultCharset());
-    post.setEntity(content);
-    HttpResponse response = client.execute(post);
-    if (response.getStatusLine().getStatusCode() != 204) {
-      System.out.println("Warning: Code for send candidate cancel should be 204!");
+  private static void checkUnsharded(GenerationConfig config) {
+    if (!config.getShard().isAll()) {
+      throw new IllegalArgumentException("The " + config.getGenerationMode() + " mode cannot be sharded");
     }
-    client.close();
   }
 
-  private static void startProcessInstance(Map<String, VariableValue> variables) throws IOException {
-    CloseableHttpClient client = HttpClientBuilder.create().build();
-    HttpPost post = new HttpPost("http://localhost:8080/engine-rest/message/");
-    post.setHeader("Content-type", "application/json");
-    MessageCorrelationDto message = new MessageCorrelationDto();
-    message.setAll(true);
-    message.setMessageName("candidate_application");
-    message.setProcessVariables(variables);
-    StringEntity content = new StringEntity(objectMapper.writeValueAsString(message), Charset.defaultCharset());
-    post.setEntity(content);
-    HttpResponse response = client.execute(post);
-    if (response.getStatusLine().getStatusCode() != 204) {
-      System.out.println("Warning: Code for starting process instance should be 204!");
+  private static void checkUnrecorded(GenerationConfig config) {
+    if (!GenerationConfig.CORPUS_OFF.equals(config.getCorpusMode())) {
+      throw new IllegalArgumentException("The " + config.getGenerationMode() + " mode cannot be recorded");
     }
-    client.close();
   }
 
-  private static void sendCandidateCandidateReplied() throws IOException {
-    CloseableHttpClient client = HttpClientBuilder.create().build();
-    HttpPost post = new HttpPost("http://localhost:8080/engine-rest/message/");
-    post.setHeader("Content-type", "application/json");
-    MessageCorrelationDto message = new MessageCorrelationDto();
-    message.setAll(true);
-    message.setMessageName("candidate_replied");
-    StringEntity content = new StringEntity(objectMapper.writeValueAsString(message), Charset.defaultCharset());
-    post.setEntity(content);
-    HttpResponse response = client.execute(post);
-    if (response.getStatusLine().getStatusCode() != 204) {
-      System.out.println("Warning: Code for send candidate replied should be 204!");
+  private static void generateSimulated(GenerationConfig config) {
+    // the simulation sets the clock of the engine, which only works for an engine in the same JVM
+    try (EmbeddedEngineClient client = new EmbeddedEngineClient(config)) {
+      new SimulatedHistoryGenerator(
+        client.getProcessEngine(), config.getSimulationDays(), scenarioSpec, createRandomStreams(config, 1)
+      ).run();
     }
-    client.close();
   }
 
-  private static void cancelAtAssignHiringManager(int count) throws IOException {
-    // TODO: about 15 %
-    for (int i = 0; i < count; i++) {
-      startProcessInstance(assignHiringManagerPath());
+  private static void generateExport(GenerationConfig config) throws IOException {
+    Path directory = Paths.get(config.getExportDirectory());
+    Files.createDirectories(directory);
+    List<HistorySink> sinks = new ArrayList<>();
+    for (String format : config.getExportFormats()) {
+      switch (format) {
+        case "ndjson":
+          sinks.add(new NdjsonHistorySink(
+            directory, config.getExportChunkSize(), PROCESS_DEFINITION_KEY, config.getExportProcessDefinitionId()
+          ));
+          break;
+        case "sql":
+          sinks.add(new SqlHistorySink(
+            directory, config.getExportChunkSize(), config.getExportSqlBatchSize(), PROCESS_DEFINITION_KEY,
+            config.getExportProcessDefinitionId()
+          ));
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown export format " + format);
+      }
+    }
+
+    long periodEnd = System.currentTimeMillis();
+    long periodStart = periodEnd - TimeUnit.DAYS.toMillis(config.getSimulationDays());
+    long startTime = System.nanoTime();
+    try (HistorySink sink = new CompositeHistorySink(sinks)) {
+      HistoryExporter exporter = new HistoryExporter(
+        sink, periodStart, periodEnd, config.getExportIdPrefix(), createRandomStreams(config, 1),
+        scenarioSpec.getTaskDurations()
+      );
+      for (Scenario scenario : Scenario.values()) {
+        exporter.export(scenario, scenarioSpec.getCount(scenario));
+        System.out.println("Finished export of " + scenario);
+      }
+      double seconds = (System.nanoTime() - startTime) / 1_000_000_000.0;
+      System.out.println(String.format(
+        "Exported %d instances to %s in %.1f s (%.0f instances/s)",
+        exporter.getExportedInstances(), directory.toAbsolutePath(), seconds, exporter.getExportedInstances() / seconds
+      ));
     }
-    sendCandidateCancelEvent();
   }
 
-  private static void cancelAtScreenApplication(int count) throws IOException {
-    // TODO: circa 80%
-    for (int i = 0; i < count; i++) {
-      startProcessInstance(automaticHiringManagerAssignmentPath());
+  /**
+   * Starts instances at the rate of the load profile instead of as fast as the engine answers, see
+   * {@link OpenLoadGenerator}.
+   */
+  private static void generateLoad(GenerationConfig config) throws IOException {
+    // the adaptive limit holds requests back while the engine is slow, which is what an open load must not do
+    if (config.getString(GenerationConfig.ADAPTIVE_CONCURRENCY, null) == null) {
+      config.set(GenerationConfig.ADAPTIVE_CONCURRENCY, "false");
+    }
+    long seed = config.getRandomSeed();
+    EngineMetrics metrics = new EngineMetrics();
+    MetricsReporter reporter = new MetricsReporter(
+      metrics, config.getMetricsIntervalSeconds(), Paths.get(config.getMetricsDirectory()));
+    try (EngineRouter router = createEngines(config, metrics)) {
+      new OpenLoadGenerator(
+        router, metrics, config.getLoadProfile(), config.getStartMaxInFlight(), scenarioSpec,
+        createRandomStreams(seed, 1), config.getStartBusinessKeyPrefix(seed)
+      ).run();
+    } finally {
+      reporter.close();
     }
-    sendCandidateCancelEvent();
   }
 
-  private static void cancelAtConductPhoneInterview(int count) throws IOException {
-    // TODO: 33 %
-    for (int i = 0; i < count; i++) {
-      startProcessInstance(createHappyPath());
+  /**
+   * Keeps a steady population of instances moving through the process until the soak is over, see
+   * {@link SoakRunner}.
+   */
+  private static void generateSoak(GenerationConfig config) throws IOException {
+    long seed = config.getRandomSeed();
+    System.out.println("Generating data with random seed " + seed);
+    EngineMetrics metrics = new EngineMetrics();
+    MetricsReporter reporter = new MetricsReporter(
+      metrics, config.getMetricsIntervalSeconds(), Paths.get(config.getMetricsDirectory()));
+    try (EngineRouter router = createEngines(config, metrics)) {
+      new SoakRunner(
+        router, config.getSoakPopulation(), config.getSoakTimeScale(), config.getSoakDurationSeconds(),
+        config.getSoakRampSeconds(), config.getSoakReportSeconds(), config.getStartMaxInFlight(), scenarioSpec, seed,
+        config.getStartBusinessKeyPrefix(seed)
+      ).run();
+    } finally {
+      reporter.close();
     }
-    UserTaskCompleter userTaskCompleter = new UserTaskCompleter();
-    userTaskCompleter.completeUserTasks(ASSIGN_HIRING_MANAGER);
-    userTaskCompleter.completeUserTasks(SCREEN_APPLICATION);
-    sendCandidateCancelEvent();
   }
 
-  private static void cancelAtFirstOnsiteInterview(int count) throws IOException {
-    for (int i = 0; i < count; i++) {
-      startProcessInstance(createHappyPath());
+  /**
+   * @param interleaved whether to start the scenarios as one weighted mix instead of one after the other
+   */
+  private static void generatePhased(GenerationConfig config, boolean interleaved) throws IOException {
+    Shard shard = config.getShard();
+    if (!shard.isAll()) {
+      if (!config.isRandomSeedConfigured()) {
+        throw new IllegalArgumentException("All shards of a run need the same " + GenerationConfig.RANDOM_SEED);
+      }
+      shard.checkLanes(config.getStartWorkers());
+      System.out.println("Generating shard " + shard + " of the run");
+    }
+    switch (config.getCorpusMode()) {
+      case GenerationConfig.CORPUS_OFF:
+        break;
+      case GenerationConfig.CORPUS_RECORD:
+        recordCorpus(config, interleaved, shard);
+        return;
+      default:
+        throw new IllegalArgumentException("Unknown corpus mode " + config.getCorpusMode());
+    }
+    EngineMetrics metrics = new EngineMetrics();
+    MetricsReporter reporter = new MetricsReporter(
+      metrics, config.getMetricsIntervalSeconds(), Paths.get(config.getMetricsDirectory()));
+    try (ProgressJournal progressJournal = openJournal(config);
+         EngineRouter router = createEngines(config, metrics)) {
+      RandomStreams randomStreams = createRandomStreams(progressJournal.getSeed(), progressJournal.getLanes());
+      try (InstanceStartPipeline pipeline = new InstanceStartPipeline(
+             Main::startProcessInstance, randomStreams, scenarioSpec.getTaskDurations(), config.getStartQueueSize(),
+             config.getStartMaxInFlight(), shard, progressJournal)) {
+        journal = progressJournal;
+        runShard = shard;
+        engines = router;
+        startPipeline = pipeline;
+        if (interleaved) {
+          generateInterleavedData(randomStreams.forScenarioMix());
+        } else {
+          generateData();
+        }
+      }
+    } finally {
+      reporter.close();
     }
-    UserTaskCompleter userTaskCompleter = new UserTaskCompleter();
-    userTaskCompleter.completeUserTasks(ASSIGN_HIRING_MANAGER);
-    userTaskCompleter.completeUserTasks(SCREEN_APPLICATION);
-    userTaskCompleter.completeUserTasks(CONDUCT_PHONE_INTERVIEW);
-    sendCandidateCancelEvent();
   }
 
-  private static void cancelAtSecondOnsiteInterview(int count) throws IOException {
-    for (int i = 0; i < count; i++) {
-      startProcessInstance(createHappyPath());
+  /**
+   * Runs the phases without an engine and writes every message they would send, and the steps in between, to the
+   * corpus file instead. The same seed and start workers record the same instances as a run against an engine.
+   */
+  private static void recordCorpus(GenerationConfig config, boolean interleaved, Shard shard) throws IOException {
+    Path file = Paths.get(config.getCorpusFile());
+    long seed = config.getRandomSeed();
+    int lanes = config.getStartWorkers();
+    String description = config.getGenerationMode() + " run with random seed " + seed + " and " + lanes +
+      " lane(s)" + (shard.isAll() ? "" : ", shard " + shard);
+    long startTime = System.nanoTime();
+    try (PayloadCorpus.Writer writer = PayloadCorpus.create(file, description)) {
+      ProgressJournal progressJournal = ProgressJournal.none(seed, lanes, config.getStartBusinessKeyPrefix(seed));
+      RandomStreams randomStreams = createRandomStreams(seed, lanes);
+      try (InstanceStartPipeline pipeline = new InstanceStartPipeline(
+             Main::startProcessInstance, randomStreams, scenarioSpec.getTaskDurations(), config.getStartQueueSize(),
+             config.getStartMaxInFlight(), shard, progressJournal)) {
+        corpusWriter = writer;
+        journal = progressJournal;
+        runShard = shard;
+        startPipeline = pipeline;
+        if (interleaved) {
+          generateInterleavedData(randomStreams.forScenarioMix());
+        } else {
+          generateData();
+        }
+      } finally {
+        corpusWriter = null;
+      }
+      double seconds = (System.nanoTime() - startTime) / 1_000_000_000.0;
+      System.out.println(String.format(
+        "Recorded %d instances and %d messages to %s in %.1f s", writer.getInstanceCount(), writer.getMessageCount(),
+        file.toAbsolutePath(), seconds
+      ));
     }
-    UserTaskCompleter userTaskCompleter = new UserTaskCompleter();
-    userTaskCompleter.completeUserTasks(ASSIGN_HIRING_MANAGER);
-    userTaskCompleter.completeUserTasks(SCREEN_APPLICATION);
-    userTaskCompleter.completeUserTasks(CONDUCT_PHONE_INTERVIEW);
-    userTaskCompleter.completeUserTasks(CONDUCT_FIRST_ONSITE_INTERVIEW);
-    sendCandidateCancelEvent();
   }
 
-  private static void cancelAtMakeAnOffer(int count) throws IOException {
-    // TODO: 15 %
-    for (int i = 0; i < count; i++) {
-      startProcessInstance(createHappyPath());
+  /**
+   * Sends the messages recorded in the corpus file to the engine in the recorded order. The instance starts of a
+   * phase are handed to the start workers, which keep up to {@code start.maxInFlight} of them in flight with the
+   * async transport, and every other record waits for them first, as the recorded run did. Instances of a
+   * cancellation scenario are driven and cancelled as in a run that generates them.
+   */
+  private static void replayCorpus(GenerationConfig config) throws IOException {
+    checkUnsharded(config);
+    if (config.getJournalFile() != null) {
+      throw new IllegalArgumentException("A replay cannot be resumed, so it does not keep a journal");
+    }
+    Path file = Paths.get(config.getCorpusFile());
+    int maxInFlight = Math.max(1, config.getStartMaxInFlight());
+    Semaphore inFlightPermits = new Semaphore(maxInFlight);
+    AtomicLong failed = new AtomicLong();
+    AtomicReference<IOException> failure = new AtomicReference<>();
+    AtomicInteger threadCount = new AtomicInteger();
+    ExecutorService starters = Executors.newFixedThreadPool(Math.max(1, config.getStartWorkers()), runnable -> {
+      Thread thread = new Thread(runnable, "instance-replayer-" + threadCount.getAndIncrement());
+      thread.setDaemon(true);
+      return thread;
+    });
+    EngineMetrics metrics = new EngineMetrics();
+    long startTime = System.nanoTime();
+    long instances = 0;
+    long phaseInstances = 0;
+    MetricsReporter reporter = new MetricsReporter(
+      metrics, config.getMetricsIntervalSeconds(), Paths.get(config.getMetricsDirectory()));
+    try (PayloadCorpus.Reader reader = PayloadCorpus.open(file);
+         EngineRouter router = createEngines(config, metrics)) {
+      System.out.println("Replaying the " + reader.getDescription() + " recorded in " + file.toAbsolutePath());
+      engines = router;
+      while (reader.next()) {
+        if (reader.getType() == PayloadCorpus.INSTANCE) {
+          String businessKey = reader.getBusinessKey();
+          Scenario scenario = reader.getScenario();
+          String messageName = reader.getMessageName();
+          ByteBuffer body = reader.getBody();
+          inFlightPermits.acquire();
+          starters.execute(() -> {
+            EngineRouter.Engine engine = router.route(businessKey);
+            CompletableFuture<Void> started;
+            try {
+              started = driveStartedInstance(engine, businessKey, scenario, engine.guard(
+                () -> engine.getClient().correlateMessageAsync(messageName, body)
+              ));
+            } catch (RuntimeException e) {
+              started = Futures.failed(e);
+            }
+            started.whenComplete((result, startFailure) -> {
+              if (startFailure != null) {
+                failed.incrementAndGet();
+                failure.compareAndSet(null, Futures.toIOException(startFailure));
+              }
+              inFlightPermits.release();
+            });
+          });
+          instances++;
+          phaseInstances++;
+          continue;
+        }
+
+        // whatever follows a phase needs all of its instances
+        inFlightPermits.acquire(maxInFlight);
+        inFlightPermits.release(maxInFlight);
+        if (failed.get() > 0) {
+          System.out.println("Warning: " + failed.getAndSet(0) + " of " + phaseInstances + " instances could not " +
+                               "be started, the first failure was: " + failure.getAndSet(null).getMessage());
+        }
+        phaseInstances = 0;
+        switch (reader.getType()) {
+          case PayloadCorpus.PHASE_END:
+            System.out.println(reader.getLabel());
+            break;
+          case PayloadCorpus.COMPLETE_TASKS:
+            router.completeUserTasks(reader.getBusinessKeyLike());
+            System.out.println("Finished user task completion");
+            break;
+          case PayloadCorpus.MESSAGE:
+            if (!router.correlateEverywhere(reader.getMessageName(), reader.getBody())) {
+              System.out.println("Warning: The engine did not correlate the " + reader.getMessageName() + " message!");
+            }
+            System.out.println("Finished " + reader.getMessageName() + " message");
+            break;
+          default:
+            throw new IllegalStateException("Unexpected record of type " + reader.getType());
+        }
+      }
+      inFlightPermits.acquire(maxInFlight);
+      double seconds = (System.nanoTime() - startTime) / 1_000_000_000.0;
+      System.out.println(String.format(
+        "Replayed %d instances from %s in %.1f s (%.0f instances/s)", instances, file.toAbsolutePath(), seconds,
+        instances / seconds
+      ));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while replaying " + file);
+    } finally {
+      starters.shutdownNow();
+      reporter.close();
     }
-    UserTaskCompleter userTaskCompleter = new UserTaskCompleter();
-    userTaskCompleter.completeUserTasks(ASSIGN_HIRING_MANAGER);
-    userTaskCompleter.completeUserTasks(SCREEN_APPLICATION);
-    userTaskCompleter.completeUserTasks(CONDUCT_PHONE_INTERVIEW);
-    userTaskCompleter.completeUserTasks(CONDUCT_FIRST_ONSITE_INTERVIEW);
-    userTaskCompleter.completeUserTasks(CONDUCT_SECOND_ONSITE_INTERVIEW);
-    sendCandidateCancelEvent();
   }
 
+  /**
+   * Opens the journal configured by {@code journal.file}, whose seed, lanes and business key prefix the run uses
+   * then, or a journal that keeps nothing.
+   */
+  private static ProgressJournal openJournal(GenerationConfig config) throws IOException {
+    long seed = config.getRandomSeed();
+    int lanes = config.getStartWorkers();
+    String businessKeyPrefix = config.getStartBusinessKeyPrefix(seed);
+    if (config.getJournalFile() == null) {
+      return ProgressJournal.none(seed, lanes, businessKeyPrefix);
+    }
+    Path file = Paths.get(config.getJournalFile());
+    StringBuilder scenarioCounts = new StringBuilder();
+    for (Scenario scenario : Scenario.values()) {
+      scenarioCounts.append(scenario).append('=').append(scenarioSpec.getCount(scenario)).append(';');
+    }
+    Shard shard = config.getShard();
+    String generationMode = config.getGenerationMode() + (shard.isAll() ? "" : " shard " + shard);
+    ProgressJournal progressJournal = ProgressJournal.open(
+      file, seed, config.isRandomSeedConfigured() ? Long.valueOf(seed) : null, lanes, businessKeyPrefix,
+      generationMode, scenarioCounts.toString(), config.getJournalSyncIntervalMs()
+    );
+    System.out.println((progressJournal.isResumed() ? "Resuming the run recorded in " : "Recording the run in ") +
+                         file.toAbsolutePath());
+    return progressJournal;
+  }
 
-  // -----
+  /**
+   * Prints the seed of the run, so a run without a configured seed can be repeated with the same data.
+   */
+  private static RandomStreams createRandomStreams(GenerationConfig config, int lanes) {
+    return createRandomStreams(config.getRandomSeed(), lanes);
+  }
 
-  private static final int HAPPY_PATH_COUNT = 80;
-  private static final int REJECT_AFTER_SCREENING_COUNT = 1269;
-  private static final int REJECT_AFTER_PHONE_COUNT = 945;
-  private static final int REJECT_AFTER_ONSITE_COUNT = 429;
-  private static final int LOOSE_CANDIDATE_COUNT = 96;
+  private static RandomStreams createRandomStreams(long seed, int lanes) {
+    System.out.println("Generating data with random seed " + seed + " and " + lanes + " random stream lane(s)");
+    return new RandomStreams(seed, lanes);
+  }
 
-  private static final int ASSIGN_HIRING_MANAGER_CANCEL_COUNT = 69;
-  private static final int SCREEN_APPLICATION_CANCEL_COUNT = 600;
-  private static final int CONDUCT_PHONE_INTERVIEW_CANCEL_COUNT = 120;
-  private static final int CONDUCT_FIRST_ONSITE_INTERVIEW_CANCEL_COUNT = 24;
-  private static final int CONDUCT_SECOND_ONSITE_INTERVIEW_CANCEL_COUNT = 15;
-  private static final int MAKE_AN_OFFER_CANCEL_COUNT = 45;
+  /**
+   * Creates a client and task completer for every engine of {@code engine.urls}, or for every stub engine of
+   * {@code stub.engines}, all counting into the same metrics.
+   */
+  private static EngineRouter createEngines(GenerationConfig config, EngineMetrics metrics) throws IOException {
+    List<GenerationConfig> engineConfigs = new ArrayList<>();
+    switch (config.getEngineMode()) {
+      case GenerationConfig.MODE_STUB:
+        for (int i = 0; i < config.getStubEngines(); i++) {
+          engineConfigs.add(config.copy());
+        }
+        break;
+      case GenerationConfig.MODE_EMBEDDED:
+        engineConfigs.add(config);
+        break;
+      default:
+        for (String url : config.getEngineUrls()) {
+          engineConfigs.add(config.copy().set(GenerationConfig.ENGINE_URL, url));
+        }
+    }
+    CompletionProtocol protocol = config.getCompletionProtocol();
+    if (config.getTaskPipeline() > 0 && !GenerationConfig.MODE_EMBEDDED.equals(config.getEngineMode()) &&
+      !GenerationConfig.TRANSPORT_ASYNC.equals(config.getEngineTransport())) {
+      System.out.println("Warning: Only the async transport pipelines task calls, " + GenerationConfig.TASK_PIPELINE +
+                           " is ignored");
+    }
+    List<EngineRouter.Engine> engineList = new ArrayList<>();
+    try {
+      for (GenerationConfig engineConfig : engineConfigs) {
+        EngineClient client = createInstrumentedEngineClient(engineConfig, metrics);
+        // the stub sets its url once it runs
+        String name = GenerationConfig.MODE_EMBEDDED.equals(config.getEngineMode())
+          ? "embedded engine"
+          : engineConfig.getEngineUrl();
+        engineList.add(new EngineRouter.Engine(
+          name, client, new UserTaskCompleter(
+            client, config.getTaskWorkers(), config.getTaskPageSize(), engineConfigs.size() > 1 ? name : null,
+            protocol, config.getTaskPipeline()),
+          protocol, engineConfigs.size() > 1 ? config.getFailureThreshold() : 0, config.getDowntimeMs()
+        ));
+      }
+    } catch (IOException | RuntimeException e) {
+      for (EngineRouter.Engine engine : engineList) {
+        try {
+          engine.close();
+        } catch (IOException closeFailure) {
+          e.addSuppressed(closeFailure);
+        }
+      }
+      throw e;
+    }
+    if (engineList.size() > 1) {
+      System.out.println("Spreading the instances over " + engineList.size() + " engines");
+    }
+    return new EngineRouter(engineList);
+  }
 
-  public static void main(String[] args) throws IOException {
-    // start instances
-    for (int i = 0; i < HAPPY_PATH_COUNT; i++) {
-      startProcessInstance(createHappyPath());
+  private static EngineClient createInstrumentedEngineClient(GenerationConfig config, EngineMetrics metrics)
+    throws IOException {
+    EngineClient client = createEngineClient(config);
+    if (client instanceof EngineRestClient) {
+      ((EngineRestClient) client).setMetrics(metrics);
+    }
+    return new InstrumentedEngineClient(client, metrics);
+  }
+
+  private static EngineClient createEngineClient(GenerationConfig config) throws IOException {
+    switch (config.getEngineMode()) {
+      case GenerationConfig.MODE_REST:
+        return new EngineRestClient(config);
+      case GenerationConfig.MODE_EMBEDDED:
+        return new EmbeddedEngineClient(config);
+      case GenerationConfig.MODE_STUB:
+        // the generator talks REST as usual, just to a stub engine in the same JVM
+        StubEngineServer stub = new StubEngineServer(config);
+        config.set(GenerationConfig.ENGINE_URL, stub.getEngineUrl());
+        return new EngineRestClient(config) {
+          @Override
+          public void close() throws IOException {
+            try {
+              super.close();
+            } finally {
+              stub.close();
+            }
+          }
+        };
+      default:
+        throw new IllegalArgumentException("Unknown engine mode " + config.getEngineMode());
     }
-    System.out.println("Finished with happy path count");
-    for (int i = 0; i < REJECT_AFTER_SCREENING_COUNT; i++) {
-      startProcessInstance(rejectCandidateAfterScreenApplication());
+  }
+
+  private static void generateData() throws IOException {
+    // start instances
+    startPipeline.startInstances(scenarioSpec.getCount(Scenario.HAPPY_PATH), Scenario.HAPPY_PATH);
+    finishPhase("Finished with happy path count");
+    startPipeline.startInstances(
+      scenarioSpec.getCount(Scenario.REJECT_AFTER_SCREENING), Scenario.REJECT_AFTER_SCREENING
+    );
+    finishPhase("Finished with reject after screening");
+    startPipeline.startInstances(
+      scenarioSpec.getCount(Scenario.REJECT_AFTER_PHONE_INTERVIEW), Scenario.REJECT_AFTER_PHONE_INTERVIEW
+    );
+    finishPhase("Finished with reject after phone interview");
+    startPipeline.startInstances(
+      scenarioSpec.getCount(Scenario.REJECT_AFTER_ONSITE_INTERVIEW), Scenario.REJECT_AFTER_ONSITE_INTERVIEW
+    );
+    finishPhase("Finished with reject after onsite interview");
+    startPipeline.startInstances(scenarioSpec.getCount(Scenario.LOOSE_CANDIDATE), Scenario.LOOSE_CANDIDATE);
+    finishPhase("Finished with loose candidate");
+    completeRunningInstances();
+
+    // cancel paths: every instance is driven to its stage on its own, so the scenarios run side by side
+    Map<Scenario, Long> cancellations = new EnumMap<>(Scenario.class);
+    for (Scenario scenario : Scenario.values()) {
+      if (scenario.getCancelAtStage() != null) {
+        cancellations.put(scenario, scenarioSpec.getCount(scenario));
+      }
     }
-    System.out.println("Finished with reject after screening");
-    for (int i = 0; i < REJECT_AFTER_PHONE_COUNT; i++) {
-      startProcessInstance(rejectCandidateAfterPhoneInterview());
+    long cancellationCount = cancellations.values().stream().mapToLong(Long::longValue).sum();
+    startPipeline.startInstances(cancellationCount, roundRobin(cancellations));
+    finishPhase("Finished cancellation of " + cancellationCount + " instances");
+  }
+
+  /**
+   * Starts all scenarios as one stream, each instance of a scenario drawn by the weights of the spec, so the engine
+   * sees a realistic mix from the start. The counts of the spec are the expected counts then.
+   */
+  private static void generateInterleavedData(SplittableRandom mixRandom) throws IOException {
+    Map<Scenario, Long> weights = new EnumMap<>(Scenario.class);
+    for (Scenario scenario : Scenario.values()) {
+      weights.put(scenario, scenarioSpec.getCount(scenario));
     }
-    System.out.println("Finished with reject after phone interview");
-    for (int i = 0; i < REJECT_AFTER_ONSITE_COUNT; i++) {
-      startProcessInstance(rejectCandidateAfterOnsiteInterview());
+    long count = scenarioSpec.getTotalCount();
+    if (count > 0) {
+      AliasTable<Scenario> mix = new AliasTable<>(weights);
+      startPipeline.startInstances(count, () -> mix.sample(mixRandom));
     }
-    System.out.println("Finished with reject after onsite interview");
-    for (int i = 0; i < LOOSE_CANDIDATE_COUNT; i++) {
-      startProcessInstance(looseCandidate());
+    finishPhase("Finished with interleaved start of " + count + " instances");
+    completeRunningInstances();
+  }
+
+  /**
+   * Prints that a phase of instance starts is finished, and marks its end if the run is recorded.
+   */
+  private static void finishPhase(String message) throws IOException {
+    if (corpusWriter != null) {
+      corpusWriter.writePhaseEnd(message);
     }
-    System.out.println("Finished with loose candidate");
+    System.out.println(message);
+  }
+
+  private static void completeRunningInstances() throws IOException {
     // complete all tasks
-    UserTaskCompleter userTaskCompleter = new UserTaskCompleter();
-    userTaskCompleter.completeAllUserTasks();
+    int phase = journal.beginPhase();
+    if (!journal.isPhaseDone(phase)) {
+      journal.recordPhaseDone(phase, completeOwnUserTasks());
+    }
     System.out.println("Finished user task completion");
 
     // send candidate replied
-    sendCandidateCandidateReplied();
+    phase = journal.beginPhase();
+    if (!journal.isPhaseDone(phase)) {
+      sendCandidateCandidateReplied();
+      journal.recordPhaseDone(phase, 1);
+    }
     System.out.println("Finished candidate replied message");
+  }
 
-    // cancel paths
-    cancelAtAssignHiringManager(ASSIGN_HIRING_MANAGER_CANCEL_COUNT);
-    System.out.println("Finished assign hiring manager cancellation");
-    cancelAtScreenApplication(SCREEN_APPLICATION_CANCEL_COUNT);
-    System.out.println("Finished screen application cancellation");
-    cancelAtConductPhoneInterview(CONDUCT_PHONE_INTERVIEW_CANCEL_COUNT);
-    System.out.println("Finished phone interview cancellation");
-    cancelAtFirstOnsiteInterview(CONDUCT_FIRST_ONSITE_INTERVIEW_CANCEL_COUNT);
-    cancelAtSecondOnsiteInterview(CONDUCT_SECOND_ONSITE_INTERVIEW_CANCEL_COUNT);
-    cancelAtMakeAnOffer(MAKE_AN_OFFER_CANCEL_COUNT);
-    System.out.println("Finished make an offer cancelation");
+  /**
+   * Completes the tasks of the instances this process started. A shard must not touch the tasks of the others,
+   * which might still drive their cancellation instances, so it sweeps the instances of its lanes only.
+   */
+  private static long completeOwnUserTasks() throws IOException {
+    if (runShard.isAll()) {
+      return completeUserTasks(null);
+    }
+    long completed = 0;
+    for (int lane = 0; lane < journal.getLanes(); lane++) {
+      if (runShard.owns(lane)) {
+        completed += completeUserTasks(journal.getBusinessKeyPrefix() + lane + "-%");
+      }
+    }
+    return completed;
+  }
 
+  /**
+   * Completes the tasks of the instances whose business key matches the pattern, or records the sweep if the run
+   * is recorded.
+   */
+  private static long completeUserTasks(String businessKeyLike) throws IOException {
+    if (corpusWriter != null) {
+      corpusWriter.writeCompleteTasks(businessKeyLike);
+      return 0;
+    }
+    return engines.completeUserTasks(businessKeyLike);
   }
 }
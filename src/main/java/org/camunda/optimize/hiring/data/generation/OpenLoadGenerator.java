@@ -0,0 +1,211 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.camunda.optimize.hiring.data.generation;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.camunda.optimize.hiring.data.generation.dto.MessageCorrelationDto;
+import org.camunda.optimize.hiring.data.generation.metrics.EngineMetrics;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.camunda.optimize.hiring.data.generation.HiringProcess.CANDIDATE_APPLICATION;
+
+/**
+ * Starts instances at the rate of a {@link LoadProfile}, however fast the engine answers. Unlike the start
+ * pipeline, which sends the next start once a worker is free again, every start is due at a fixed time and is sent
+ * then, also while earlier ones are still waiting for their answer. A slow engine therefore does not slow the load
+ * down, it builds up starts in flight instead.
+ * <p>
+ * The response time of every start is measured from the time it was due, not from the time it was actually sent,
+ * so the time a start waited for a connection or for the generator to catch up counts as well and latency spikes
+ * of the engine are not hidden. Starts that would exceed {@code maxInFlight} are shed and count as missed.
+ * <p>
+ * Only the instances are started, as a mix of the scenarios of the spec; their user tasks stay open.
+ */
+public class OpenLoadGenerator {
+
+  private static final double KEPT_UP_SHARE = 0.95;
+
+  private final EngineRouter engines;
+  private final LoadProfile profile;
+  private final int maxInFlight;
+  private final AliasTable<Scenario> scenarioMix;
+  private final RandomStreams randomStreams;
+  private final TaskDurations taskDurations;
+  private final String businessKeyPrefix;
+  private final EngineMetrics.Endpoint fromDueTime;
+  private final Recorder responseTimes = new Recorder(3);
+  private final LongAdder started = new LongAdder();
+  private final LongAdder failed = new LongAdder();
+  private final AtomicReference<IOException> failure = new AtomicReference<>();
+  private final AtomicLong lastAnswerNanos = new AtomicLong();
+
+  /**
+   * @param maxInFlight starts waiting for their answer at most, further starts are shed
+   */
+  public OpenLoadGenerator(EngineRouter engines, EngineMetrics metrics, LoadProfile profile, int maxInFlight,
+                           ScenarioSpec scenarioSpec, RandomStreams randomStreams, String businessKeyPrefix) {
+    this.engines = engines;
+    this.profile = profile;
+    this.maxInFlight = Math.max(1, maxInFlight);
+    Map<Scenario, Long> weights = new EnumMap<>(Scenario.class);
+    for (Scenario scenario : Scenario.values()) {
+      weights.put(scenario, scenarioSpec.getCount(scenario));
+    }
+    this.scenarioMix = new AliasTable<>(weights);
+    this.randomStreams = randomStreams;
+    this.taskDurations = scenarioSpec.getTaskDurations();
+    this.businessKeyPrefix = businessKeyPrefix;
+    this.fromDueTime = metrics.endpoint(EngineMetrics.INTENDED_PREFIX + EngineMetrics.MESSAGE_PREFIX +
+                                          CANDIDATE_APPLICATION);
+  }
+
+  /**
+   * Sends the starts of the whole profile, waits for their answers and prints whether the engine kept up.
+   *
+   * @return whether the engine kept up with the target rate
+   */
+  public boolean run() throws IOException {
+    Semaphore inFlightPermits = new Semaphore(maxInFlight);
+    AtomicInteger threadCount = new AtomicInteger();
+    // the senders only wait with the blocking transport, so there are as many as starts may be in flight
+    ThreadPoolExecutor senders = new ThreadPoolExecutor(
+      0, maxInFlight, 60, TimeUnit.SECONDS, new SynchronousQueue<>(), runnable -> {
+      Thread thread = new Thread(runnable, "load-sender-" + threadCount.getAndIncrement());
+      thread.setDaemon(true);
+      return thread;
+    });
+    Histogram sendLag = new Histogram(3);
+    SplittableRandom mixRandom = randomStreams.forScenarioMix();
+    LoadProfile.Schedule schedule = profile.schedule();
+    long shed = 0;
+    System.out.println(String.format(
+      "Starting %d instances in %.0f s at %s", profile.getTotalArrivals(), profile.getDurationSeconds(), profile
+    ));
+    long startNanos = System.nanoTime();
+    try {
+      long arrival = 0;
+      for (long due = schedule.dueNanos(arrival); due >= 0; due = schedule.dueNanos(++arrival)) {
+        long dueNanos = startNanos + due;
+        // drawn before waiting, so the time it takes does not delay the start
+        MessageCorrelationDto message = nextMessage(arrival, mixRandom);
+        for (long wait = dueNanos - System.nanoTime(); wait > 0; wait = dueNanos - System.nanoTime()) {
+          LockSupport.parkNanos(wait);
+          if (Thread.interrupted()) {
+            throw new InterruptedException();
+          }
+        }
+        sendLag.recordValue(Math.max(0, (System.nanoTime() - dueNanos) / 1000));
+        if (!inFlightPermits.tryAcquire()) {
+          shed++;
+          continue;
+        }
+        try {
+          senders.execute(() -> send(message, dueNanos, inFlightPermits));
+        } catch (RejectedExecutionException e) {
+          inFlightPermits.release();
+          shed++;
+        }
+      }
+      inFlightPermits.acquire(maxInFlight);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while sending the load!");
+    } finally {
+      senders.shutdownNow();
+    }
+    return report(startNanos, shed, sendLag);
+  }
+
+  private MessageCorrelationDto nextMessage(long arrival, SplittableRandom mixRandom) {
+    Scenario scenario = scenarioMix.sample(mixRandom);
+    MessageCorrelationDto message = new MessageCorrelationDto();
+    message.setAll(true);
+    message.setMessageName(CANDIDATE_APPLICATION);
+    message.setBusinessKey(businessKeyPrefix + arrival);
+    message.setProcessVariables(scenario.createVariables(randomStreams.forScenario(scenario, 0), taskDurations));
+    return message;
+  }
+
+  private void send(MessageCorrelationDto message, long dueNanos, Semaphore inFlightPermits) {
+    EngineRouter.Engine engine = engines.route(message.getBusinessKey());
+    engine.guard(() -> engine.getClient().correlateMessageAsync(message)).whenComplete((correlated, startFailure) -> {
+      long now = System.nanoTime();
+      responseTimes.recordValue(Math.max(0, (now - dueNanos) / 1000));
+      if (startFailure != null) {
+        fromDueTime.recordError(dueNanos);
+        failed.increment();
+        failure.compareAndSet(null, Futures.toIOException(startFailure));
+      } else {
+        fromDueTime.record(dueNanos, correlated);
+        (correlated ? started : failed).increment();
+      }
+      lastAnswerNanos.accumulateAndGet(now, Math::max);
+      inFlightPermits.release();
+    });
+  }
+
+  /**
+   * The engine kept up if no start was shed and the starts were answered at nearly the target rate, counted until
+   * the last answer arrived.
+   */
+  private boolean report(long startNanos, long shed, Histogram sendLag) {
+    long answered = started.sum() + failed.sum();
+    double seconds = Math.max(lastAnswerNanos.get() - startNanos, 1) / 1_000_000_000.0;
+    double achievedRate = answered / seconds;
+    double targetRate = profile.getAverageRate();
+    Histogram response = responseTimes.getIntervalHistogram();
+    System.out.println(String.format(
+      "Sent %d of %d starts in %.1f s: %d started, %d failed, %d shed. Response time from the due time: p50 %.1f " +
+        "ms, p99 %.1f ms, p99.9 %.1f ms, max %.1f ms",
+      answered, profile.getTotalArrivals(), seconds, started.sum(), failed.sum(), shed,
+      millis(response.getValueAtPercentile(50)), millis(response.getValueAtPercentile(99)),
+      millis(response.getValueAtPercentile(99.9)), millis(response.getMaxValue())
+    ));
+    if (failure.get() != null) {
+      System.out.println("Warning: The first failed start failed with: " + failure.get().getMessage());
+    }
+    if (millis(sendLag.getValueAtPercentile(99)) > 10) {
+      System.out.println(String.format(
+        "Warning: The generator sent 1%% of the starts more than %.1f ms late, the response times include that",
+        millis(sendLag.getValueAtPercentile(99))
+      ));
+    }
+    boolean keptUp = shed == 0 && achievedRate >= KEPT_UP_SHARE * targetRate;
+    System.out.println(String.format(
+      "%sThe engine %s the target rate: %.1f starts/s answered of %.1f/s",
+      keptUp ? "" : "Warning: ", keptUp ? "kept up with" : "did not keep up with", achievedRate, targetRate
+    ));
+    return keptUp;
+  }
+
+  private static double millis(long micros) {
+    return micros / 1000.0;
+  }
+}
@@ -0,0 +1,366 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.camunda.optimize.hiring.data.generation;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.camunda.optimize.hiring.data.generation.dto.MessageCorrelationDto;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A recorded generation run: every message body the scenarios produced, serialized once, in the order of the run,
+ * together with markers for the steps between them. Replaying the corpus against a fresh engine sends the recorded
+ * bytes as they are, so a replay spends no time on random numbers or serialization.
+ * <p>
+ * The file starts with a header that describes the recorded run, followed by records that each begin with their
+ * type: the start of an instance with its scenario, business key and message, a message on its own, the end of a
+ * phase of instance starts, or a sweep over the open user tasks. Strings are prefixed with their length as short,
+ * message bodies with their length as int. The reader maps the file into memory and hands out the bodies as slices
+ * of the mapping, without copying them.
+ */
+public class PayloadCorpus {
+
+  private static final int MAGIC = 0x48444331;
+  // a mapping covers up to this many bytes of the file, so corpora beyond 2 GB can be read as well
+  private static final int MAX_WINDOW = 1 << 30;
+
+  public static final byte INSTANCE = 1;
+  public static final byte MESSAGE = 2;
+  public static final byte PHASE_END = 3;
+  public static final byte COMPLETE_TASKS = 4;
+
+  private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+  private static final ObjectWriter CORRELATION_WRITER = OBJECT_MAPPER.writerFor(MessageCorrelationDto.class);
+  private static final ObjectReader CORRELATION_READER = OBJECT_MAPPER.readerFor(MessageCorrelationDto.class);
+
+  private PayloadCorpus() {
+  }
+
+  /**
+   * Reads a recorded message body back into a message, for engine clients that cannot send the bytes as they are.
+   */
+  public static MessageCorrelationDto readMessage(ByteBuffer body) throws IOException {
+    if (body.hasArray()) {
+      return CORRELATION_READER.readValue(
+        body.array(), body.arrayOffset() + body.position(), body.remaining()
+      );
+    }
+    return CORRELATION_READER.readValue(new ByteBufferInputStream(body.duplicate()));
+  }
+
+  /**
+   * Creates the corpus file, or replaces the one that is there.
+   *
+   * @param description what the recorded run was, e.g. its generation mode and seed
+   */
+  public static Writer create(Path file, String description) throws IOException {
+    if (file.getParent() != null) {
+      Files.createDirectories(file.getParent());
+    }
+    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16));
+    try {
+      out.writeInt(MAGIC);
+      writeString(out, description);
+    } catch (IOException e) {
+      out.close();
+      throw e;
+    }
+    return new Writer(out);
+  }
+
+  public static Reader open(Path file) throws IOException {
+    FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+    try {
+      Reader reader = new Reader(file, channel);
+      if (reader.window.getInt() != MAGIC) {
+        throw new IOException(file + " is not a payload corpus");
+      }
+      reader.description = reader.readString();
+      return reader;
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeShort(bytes.length);
+    out.write(bytes);
+  }
+
+  /**
+   * Appends records to a corpus file. The instance starts of a phase may be written by several threads, everything
+   * else is written by the thread that runs the phases.
+   */
+  public static class Writer implements Closeable {
+
+    private final DataOutputStream out;
+    private long instanceCount;
+    private long messageCount;
+
+    private Writer(DataOutputStream out) {
+      this.out = out;
+    }
+
+    public void writeInstance(String businessKey, Scenario scenario, MessageCorrelationDto message)
+      throws IOException {
+      // serialized outside of the lock, so the workers only wait for each other to copy the bytes
+      byte[] body = CORRELATION_WRITER.writeValueAsBytes(message);
+      synchronized (this) {
+        out.writeByte(INSTANCE);
+        out.writeByte(scenario.ordinal());
+        writeString(out, businessKey);
+        writeBody(message.getMessageName(), body);
+        instanceCount++;
+      }
+    }
+
+    public void writeMessage(MessageCorrelationDto message) throws IOException {
+      byte[] body = CORRELATION_WRITER.writeValueAsBytes(message);
+      synchronized (this) {
+        out.writeByte(MESSAGE);
+        writeBody(message.getMessageName(), body);
+      }
+    }
+
+    private void writeBody(String messageName, byte[] body) throws IOException {
+      writeString(out, messageName);
+      out.writeInt(body.length);
+      out.write(body);
+      messageCount++;
+    }
+
+    /**
+     * Marks that all instances written so far have to be started before the replay goes on.
+     *
+     * @param label what the replay prints when it reaches the marker
+     */
+    public synchronized void writePhaseEnd(String label) throws IOException {
+      out.writeByte(PHASE_END);
+      writeString(out, label);
+    }
+
+    /**
+     * @param businessKeyLike only the tasks of instances whose business key matches this SQL like pattern, or null
+     */
+    public synchronized void writeCompleteTasks(String businessKeyLike) throws IOException {
+      out.writeByte(COMPLETE_TASKS);
+      writeString(out, businessKeyLike != null ? businessKeyLike : "");
+    }
+
+    public synchronized long getInstanceCount() {
+      return instanceCount;
+    }
+
+    public synchronized long getMessageCount() {
+      return messageCount;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+      out.close();
+    }
+  }
+
+  /**
+   * Reads the records of a corpus one after the other. The fields of the current record stay valid until the next
+   * one is read, its body stays valid as long as it is referenced. Not thread safe.
+   */
+  public static class Reader implements Closeable {
+
+    private final Path file;
+    private final FileChannel channel;
+    private final long size;
+    private MappedByteBuffer window;
+    private long windowStart;
+    private String description;
+
+    private byte type;
+    private Scenario scenario;
+    private String text;
+    private String messageName;
+    private ByteBuffer body;
+
+    private Reader(Path file, FileChannel channel) throws IOException {
+      this.file = file;
+      this.channel = channel;
+      this.size = channel.size();
+      map(0);
+    }
+
+    private void map(long position) throws IOException {
+      windowStart = position;
+      window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAX_WINDOW, size - position));
+    }
+
+    public String getDescription() {
+      return description;
+    }
+
+    /**
+     * @return false at the end of the corpus
+     */
+    public boolean next() throws IOException {
+      if (windowStart + window.position() >= size) {
+        return false;
+      }
+      int recordStart = window.position();
+      try {
+        readRecord();
+      } catch (BufferUnderflowException e) {
+        // the record goes beyond the mapped window, so map the file from the record on and read it again
+        long position = windowStart + recordStart;
+        if (windowStart == position && window.limit() == size - windowStart) {
+          throw new EOFException(file + " ends in the middle of a record");
+        }
+        map(position);
+        try {
+          readRecord();
+        } catch (BufferUnderflowException again) {
+          throw new EOFException(file + " ends in the middle of a record");
+        }
+      }
+      return true;
+    }
+
+    private void readRecord() throws IOException {
+      type = window.get();
+      scenario = null;
+      text = null;
+      messageName = null;
+      body = null;
+      switch (type) {
+        case INSTANCE:
+          scenario = Scenario.values()[window.get()];
+          text = readString();
+          readBody();
+          break;
+        case MESSAGE:
+          readBody();
+          break;
+        case PHASE_END:
+        case COMPLETE_TASKS:
+          text = readString();
+          break;
+        default:
+          throw new IOException(file + " holds an unknown record of type " + type);
+      }
+    }
+
+    private void readBody() {
+      messageName = readString();
+      int length = window.getInt();
+      if (length > window.remaining()) {
+        throw new BufferUnderflowException();
+      }
+      ByteBuffer slice = window.slice();
+      slice.limit(length);
+      body = slice;
+      window.position(window.position() + length);
+    }
+
+    private String readString() {
+      int length = window.getShort() & 0xffff;
+      byte[] bytes = new byte[length];
+      window.get(bytes);
+      return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public byte getType() {
+      return type;
+    }
+
+    public Scenario getScenario() {
+      return scenario;
+    }
+
+    public String getBusinessKey() {
+      return type == INSTANCE ? text : null;
+    }
+
+    public String getLabel() {
+      return type == PHASE_END ? text : null;
+    }
+
+    /**
+     * @return the pattern of the business keys whose tasks a sweep completes, or null for all tasks
+     */
+    public String getBusinessKeyLike() {
+      return type == COMPLETE_TASKS && !text.isEmpty() ? text : null;
+    }
+
+    public String getMessageName() {
+      return messageName;
+    }
+
+    /**
+     * @return the message as serialized when it was recorded, read only
+     */
+    public ByteBuffer getBody() {
+      return body.asReadOnlyBuffer();
+    }
+
+    @Override
+    public void close() throws IOException {
+      channel.close();
+    }
+  }
+
+  /**
+   * Reads the remaining bytes of a buffer without copying them first.
+   */
+  static class ByteBufferInputStream extends InputStream {
+
+    private final ByteBuffer buffer;
+
+    ByteBufferInputStream(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public int read() {
+      return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) {
+      if (!buffer.hasRemaining()) {
+        return -1;
+      }
+      int count = Math.min(length, buffer.remaining());
+      buffer.get(bytes, offset, count);
+      return count;
+    }
+
+    @Override
+    public int available() {
+      return buffer.remaining();
+    }
+  }
+}
@@ -0,0 +1,309 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.camunda.optimize.hiring.data.generation;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Remembers how far a generation run got, so a run that died can be started again and continues where it stopped
+ * instead of creating every instance a second time. The journal is an append-only file: a header with what makes a
+ * run repeatable (seed, lanes, business key prefix, generation mode and scenario counts), followed by records of
+ * 17 bytes each that hold the number of instances a lane has handled in a phase, or mark a phase as done.
+ * <p>
+ * Phases are numbered in the order a run begins them, which is the same in every run of the same spec. Workers
+ * only update counters in memory; a background thread appends the counters that changed and syncs the file to
+ * disk in a fixed interval, so a crash repeats at most the instances of the last interval. A record that was cut
+ * off by a crash is dropped when the journal is opened again.
+ */
+public class ProgressJournal implements Closeable {
+
+  private static final int MAGIC = 0x48444a31;
+  private static final byte LANE_PROGRESS = 1;
+  private static final byte PHASE_DONE = 2;
+  private static final int RECORD_SIZE = 1 + 4 + 4 + 8;
+
+  private final long seed;
+  private final int lanes;
+  private final String businessKeyPrefix;
+  private final FileChannel channel;
+  private final ScheduledExecutorService syncer;
+  private final boolean resumed;
+
+  // what the journal held when it was opened
+  private final Map<Integer, long[]> recordedProgress = new HashMap<>();
+  private final Map<Integer, Long> recordedDonePhases = new HashMap<>();
+
+  private final AtomicInteger nextPhase = new AtomicInteger();
+  private final Map<Integer, AtomicLongArray> progress = new ConcurrentHashMap<>();
+  private final Map<Integer, long[]> syncedProgress = new HashMap<>();
+  private final ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+
+  private ProgressJournal(long seed, int lanes, String businessKeyPrefix, FileChannel channel, long syncIntervalMs,
+                          boolean resumed) {
+    this.seed = seed;
+    this.lanes = lanes;
+    this.businessKeyPrefix = businessKeyPrefix;
+    this.channel = channel;
+    this.resumed = resumed;
+    if (channel != null) {
+      syncer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "progress-journal");
+        thread.setDaemon(true);
+        return thread;
+      });
+      syncer.scheduleWithFixedDelay(this::syncQuietly, syncIntervalMs, syncIntervalMs, TimeUnit.MILLISECONDS);
+    } else {
+      syncer = null;
+    }
+  }
+
+  /**
+   * @return a journal that keeps nothing, for runs without a journal file
+   */
+  public static ProgressJournal none(long seed, int lanes, String businessKeyPrefix) {
+    return new ProgressJournal(seed, lanes, businessKeyPrefix, null, 0, false);
+  }
+
+  /**
+   * Opens the journal file, or creates it for a new run. The seed, lanes and business key prefix of an existing
+   * journal win over the given ones, since only they give the instances the same variables and keys again; the
+   * generation mode and scenario counts have to match.
+   */
+  public static ProgressJournal open(Path file, long seed, Long requiredSeed, int lanes, String businessKeyPrefix,
+                                     String generationMode, String scenarioCounts, long syncIntervalMs)
+    throws IOException {
+    if (file.getParent() != null) {
+      Files.createDirectories(file.getParent());
+    }
+    FileChannel channel = FileChannel.open(
+      file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE
+    );
+    try {
+      if (channel.size() == 0) {
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(header)) {
+          out.writeInt(MAGIC);
+          out.writeLong(seed);
+          out.writeInt(lanes);
+          out.writeUTF(businessKeyPrefix);
+          out.writeUTF(generationMode);
+          out.writeUTF(scenarioCounts);
+        }
+        channel.write(ByteBuffer.wrap(header.toByteArray()));
+        channel.force(true);
+        return new ProgressJournal(seed, lanes, businessKeyPrefix, channel, syncIntervalMs, false);
+      }
+
+      DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+      if (in.readInt() != MAGIC) {
+        throw new IOException(file + " is not a progress journal");
+      }
+      long journalSeed = in.readLong();
+      int journalLanes = in.readInt();
+      String journalPrefix = in.readUTF();
+      String journalMode = in.readUTF();
+      String journalCounts = in.readUTF();
+      check(requiredSeed == null || requiredSeed == journalSeed, file, "random seed", journalSeed, requiredSeed);
+      check(journalLanes == lanes, file, "number of start workers", journalLanes, lanes);
+      check(journalMode.equals(generationMode), file, "generation mode", journalMode, generationMode);
+      check(journalCounts.equals(scenarioCounts), file, "scenario counts", journalCounts, scenarioCounts);
+      long validSize = 4 + 8 + 4 + utfSize(journalPrefix) + utfSize(journalMode) + utfSize(journalCounts);
+
+      ProgressJournal journal =
+        new ProgressJournal(journalSeed, journalLanes, journalPrefix, channel, syncIntervalMs, true);
+      try {
+        while (true) {
+          byte type = in.readByte();
+          int phase = in.readInt();
+          int lane = in.readInt();
+          long value = in.readLong();
+          if (type == LANE_PROGRESS && lane >= 0 && lane < journalLanes) {
+            journal.recordedProgress.computeIfAbsent(phase, key -> new long[journalLanes])[lane] = value;
+          } else if (type == PHASE_DONE) {
+            journal.recordedDonePhases.put(phase, value);
+          } else {
+            break;
+          }
+          validSize += RECORD_SIZE;
+        }
+      } catch (EOFException e) {
+        // the last record was cut off
+      }
+      for (Map.Entry<Integer, long[]> phase : journal.recordedProgress.entrySet()) {
+        journal.syncedProgress.put(phase.getKey(), phase.getValue().clone());
+      }
+      channel.truncate(validSize);
+      channel.position(validSize);
+      return journal;
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  private static void check(boolean matches, Path file, String what, Object journalValue, Object value) {
+    if (!matches) {
+      throw new IllegalArgumentException(
+        "The run in " + file + " used the " + what + " " + journalValue + ", not " + value + ". Resume it with " +
+          "the same settings or start a new run with another journal file."
+      );
+    }
+  }
+
+  private static int utfSize(String value) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      out.writeUTF(value);
+    }
+    return bytes.size();
+  }
+
+  public long getSeed() {
+    return seed;
+  }
+
+  public int getLanes() {
+    return lanes;
+  }
+
+  public String getBusinessKeyPrefix() {
+    return businessKeyPrefix;
+  }
+
+  /**
+   * @return whether the journal continues an earlier run
+   */
+  public boolean isResumed() {
+    return resumed;
+  }
+
+  /**
+   * @return the number of the phase the run begins now
+   */
+  public int beginPhase() {
+    return nextPhase.getAndIncrement();
+  }
+
+  public boolean isPhaseDone(int phase) {
+    return recordedDonePhases.containsKey(phase);
+  }
+
+  /**
+   * @return how many instances the given lane had handled in the given phase when the journal was opened
+   */
+  public long getRecordedProgress(int phase, int lane) {
+    long[] lanesProgress = recordedProgress.get(phase);
+    return lanesProgress != null ? lanesProgress[lane] : 0;
+  }
+
+  /**
+   * Remembers that the given lane has handled {@code count} instances of the phase; written with the next sync.
+   */
+  public void recordProgress(int phase, int lane, long count) {
+    if (channel != null) {
+      progress.computeIfAbsent(phase, key -> new AtomicLongArray(lanes)).set(lane, count);
+    }
+  }
+
+  /**
+   * Marks the phase as done and syncs the journal right away.
+   *
+   * @param result what the phase achieved, e.g. the number of completed tasks
+   */
+  public void recordPhaseDone(int phase, long result) throws IOException {
+    if (channel == null || recordedDonePhases.containsKey(phase)) {
+      return;
+    }
+    synchronized (this) {
+      appendProgress();
+      append(PHASE_DONE, phase, -1, result);
+      channel.force(false);
+    }
+  }
+
+  private synchronized void sync() throws IOException {
+    if (appendProgress()) {
+      channel.force(false);
+    }
+  }
+
+  private void syncQuietly() {
+    try {
+      sync();
+    } catch (IOException e) {
+      System.out.println("Warning: Could not write the progress journal: " + e.getMessage());
+    }
+  }
+
+  private boolean appendProgress() throws IOException {
+    boolean appended = false;
+    for (Map.Entry<Integer, AtomicLongArray> phase : progress.entrySet()) {
+      long[] synced = syncedProgress.computeIfAbsent(phase.getKey(), key -> new long[lanes]);
+      for (int lane = 0; lane < lanes; lane++) {
+        long count = phase.getValue().get(lane);
+        if (count != synced[lane]) {
+          append(LANE_PROGRESS, phase.getKey(), lane, count);
+          synced[lane] = count;
+          appended = true;
+        }
+      }
+    }
+    return appended;
+  }
+
+  private void append(byte type, int phase, int lane, long value) throws IOException {
+    record.clear();
+    record.put(type).putInt(phase).putInt(lane).putLong(value).flip();
+    while (record.hasRemaining()) {
+      channel.write(record);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (channel == null) {
+      return;
+    }
+    syncer.shutdown();
+    try {
+      syncer.awaitTermination(1, TimeUnit.MINUTES);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    try {
+      sync();
+    } finally {
+      channel.close();
+    }
+  }
+}
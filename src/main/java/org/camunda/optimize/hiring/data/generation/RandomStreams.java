@@ -0,0 +1,97 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.camunda.optimize.hiring.data.generation;
+
+import java.util.SplittableRandom;
+
+/**
+ * The random numbers of a generation run, derived from a single seed. The seed is split into one stream per
+ * scenario and lane plus one timing stream per lane, always in the same order, so the same seed and number of
+ * lanes produce the same numbers in every run. A lane is used by one thread only; the streams are not thread
+ * safe and no state is shared between lanes.
+ */
+public class RandomStreams {
+
+  private final long seed;
+  private final SplittableRandom[][] scenarioStreams;
+  private final SplittableRandom[] timingStreams;
+  private final SplittableRandom scenarioMixStream;
+
+  public RandomStreams(long seed, int lanes) {
+    if (lanes < 1) {
+      throw new IllegalArgumentException("At least one random stream lane is required!");
+    }
+    this.seed = seed;
+    SplittableRandom root = new SplittableRandom(seed);
+    scenarioStreams = new SplittableRandom[Scenario.values().length][lanes];
+    for (Scenario scenario : Scenario.values()) {
+      SplittableRandom scenarioRoot = root.split();
+      for (int lane = 0; lane < lanes; lane++) {
+        scenarioStreams[scenario.ordinal()][lane] = scenarioRoot.split();
+      }
+    }
+    timingStreams = new SplittableRandom[lanes];
+    SplittableRandom timingRoot = root.split();
+    for (int lane = 0; lane < lanes; lane++) {
+      timingStreams[lane] = timingRoot.split();
+    }
+    // split last, so the streams above stay the same
+    scenarioMixStream = root.split();
+  }
+
+  public long getSeed() {
+    return seed;
+  }
+
+  public int getLanes() {
+    return timingStreams.length;
+  }
+
+  /**
+   * @return the stream the variables of the given scenario are drawn from in the given lane
+   */
+  public SplittableRandom forScenario(Scenario scenario, int lane) {
+    return scenarioStreams[scenario.ordinal()][lane];
+  }
+
+  /**
+   * @return the stream for arrival times, scenario picks and similar decisions outside of the variables
+   */
+  public SplittableRandom forTiming(int lane) {
+    return timingStreams[lane];
+  }
+
+  /**
+   * @return the stream the scenario of every instance is drawn from when all scenarios are started as one mix.
+   * Unlike the other streams it is not bound to a lane, only the one thread feeding the mix may use it.
+   */
+  public SplittableRandom forScenarioMix() {
+    return scenarioMixStream;
+  }
+
+  /**
+   * Draws a standard normal distributed value with the polar method, since {@link SplittableRandom} has no
+   * {@code nextGaussian}. The second value the method yields is dropped to keep the streams free of state.
+   */
+  public static double nextGaussian(SplittableRandom random) {
+    double v1;
+    double v2;
+    double s;
+    do {
+      v1 = 2 * random.nextDouble() - 1;
+      v2 = 2 * random.nextDouble() - 1;
+      s = v1 * v1 + v2 * v2;
+    } while (s >= 1 || s == 0);
+    return v1 * Math.sqrt(-2 * Math.log(s) / s);
+  }
+}
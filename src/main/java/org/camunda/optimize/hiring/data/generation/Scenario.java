@@ -0,0 +1,86 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.camunda.optimize.hiring.data.generation;
+
+import org.camunda.optimize.hiring.data.generation.dto.VariableValue;
+
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.function.BiFunction;
+
+import static org.camunda.optimize.hiring.data.generation.HiringProcess.ASSIGN_HIRING_MANAGER;
+import static org.camunda.optimize.hiring.data.generation.HiringProcess.CONDUCT_FIRST_ONSITE_INTERVIEW;
+import static org.camunda.optimize.hiring.data.generation.HiringProcess.CONDUCT_PHONE_INTERVIEW;
+import static org.camunda.optimize.hiring.data.generation.HiringProcess.CONDUCT_SECOND_ONSITE_INTERVIEW;
+import static org.camunda.optimize.hiring.data.generation.HiringProcess.MAKE_AN_OFFER;
+import static org.camunda.optimize.hiring.data.generation.HiringProcess.SCREEN_APPLICATION;
+import static org.camunda.optimize.hiring.data.generation.HiringProcess.STAGES;
+
+/**
+ * The paths a candidate can take through the hiring process, together with the number of instances a run
+ * generates per path. Cancellation scenarios are driven up to the given stage and cancelled there.
+ */
+public enum Scenario {
+
+  HAPPY_PATH(80, Main::createHappyPath, null),
+  REJECT_AFTER_SCREENING(1269, Main::rejectCandidateAfterScreenApplication, null),
+  REJECT_AFTER_PHONE_INTERVIEW(945, Main::rejectCandidateAfterPhoneInterview, null),
+  REJECT_AFTER_ONSITE_INTERVIEW(429, Main::rejectCandidateAfterOnsiteInterview, null),
+  LOOSE_CANDIDATE(96, Main::looseCandidate, null),
+
+  CANCEL_AT_ASSIGN_HIRING_MANAGER(69, Main::assignHiringManagerPath, ASSIGN_HIRING_MANAGER),
+  CANCEL_AT_SCREEN_APPLICATION(600, Main::automaticHiringManagerAssignmentPath, SCREEN_APPLICATION),
+  CANCEL_AT_PHONE_INTERVIEW(120, Main::createHappyPath, CONDUCT_PHONE_INTERVIEW),
+  CANCEL_AT_FIRST_ONSITE_INTERVIEW(24, Main::createHappyPath, CONDUCT_FIRST_ONSITE_INTERVIEW),
+  CANCEL_AT_SECOND_ONSITE_INTERVIEW(15, Main::createHappyPath, CONDUCT_SECOND_ONSITE_INTERVIEW),
+  CANCEL_AT_MAKE_AN_OFFER(45, Main::createHappyPath, MAKE_AN_OFFER);
+
+  private final int defaultCount;
+  private final BiFunction<SplittableRandom, TaskDurations, Map<String, VariableValue>> variablesFactory;
+  private final String cancelAtStage;
+
+  Scenario(int defaultCount, BiFunction<SplittableRandom, TaskDurations, Map<String, VariableValue>> variablesFactory,
+           String cancelAtStage) {
+    this.defaultCount = defaultCount;
+    this.variablesFactory = variablesFactory;
+    this.cancelAtStage = cancelAtStage;
+  }
+
+  public int getDefaultCount() {
+    return defaultCount;
+  }
+
+  /**
+   * Creates the variables of a new instance, drawing all random decisions and durations from the given stream.
+   *
+   * @param taskDurations the distributions the durations of the stages are sampled from
+   */
+  public Map<String, VariableValue> createVariables(SplittableRandom random, TaskDurations taskDurations) {
+    return variablesFactory.apply(random, taskDurations);
+  }
+
+  /**
+   * @return the stage the instance is cancelled at, or null if the instance runs until one of the end events
+   */
+  public String getCancelAtStage() {
+    return cancelAtStage;
+  }
+
+  /**
+   * Tells whether an instance of this scenario waiting in the given stage is cancelled. Since the process may
+   * skip stages (e.g. the second onsite interview), every stage at or after the cancellation stage counts.
+   */
+  public boolean isCancelledAt(String stage) {
+    return cancelAtStage != null && STAGES.indexOf(stage) >= STAGES.indexOf(cancelAtStage);
+  }
+}
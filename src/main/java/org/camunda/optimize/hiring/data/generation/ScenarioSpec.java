@@ -0,0 +1,150 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.camunda.optimize.hiring.data.generation;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * How many instances of which scenario a run generates and how long candidates stay in every stage. A spec file
+ * looks like
+ * <pre>
+ * {
+ *   "instances": 40000,
+ *   "scale": 1,
+ *   "scenarios": { "HAPPY_PATH": 80, "REJECT_AFTER_SCREENING": 1269, "CANCEL_AT_SCREEN_APPLICATION": 600 },
+ *   "durations": { "Task_ScreenApplication": { "distribution": "normal", "mean": "4d", "deviation": "1d" } }
+ * }
+ * </pre>
+ * The scenarios are weights, e.g. counts or percentages, that are spread over {@code instances * scale}
+ * instances; without {@code instances} the weights are the counts themselves. Scenarios that are not listed are
+ * not generated, without {@code scenarios} the default counts of {@link Scenario} apply. Stages without a
+ * duration keep their default distribution.
+ * <p>
+ * The spec only holds the counts, the instances themselves are created one by one while a run goes on.
+ */
+public class ScenarioSpec {
+
+  private final Map<Scenario, Long> counts;
+  private final TaskDurations taskDurations;
+
+  private ScenarioSpec(Map<Scenario, Long> counts, TaskDurations taskDurations) {
+    this.counts = Collections.unmodifiableMap(counts);
+    this.taskDurations = taskDurations;
+  }
+
+  /**
+   * Reads the spec file configured by {@code scenario.spec}, or uses the defaults if there is none, and applies
+   * {@code scenario.scale} if it is configured.
+   */
+  public static ScenarioSpec load(GenerationConfig config) throws IOException {
+    JsonNode spec = config.getScenarioSpec() != null
+      ? new ObjectMapper().readTree(Paths.get(config.getScenarioSpec()).toFile())
+      : new ObjectMapper().createObjectNode();
+    return fromJson(spec, config.getScenarioScale());
+  }
+
+  /**
+   * @param scaleOverride scale to apply instead of the one in the spec, or null
+   */
+  public static ScenarioSpec fromJson(JsonNode spec, Double scaleOverride) {
+    Map<Scenario, Double> weights = new EnumMap<>(Scenario.class);
+    JsonNode scenarios = spec.get("scenarios");
+    if (scenarios == null) {
+      for (Scenario scenario : Scenario.values()) {
+        weights.put(scenario, (double) scenario.getDefaultCount());
+      }
+    } else {
+      Iterator<Map.Entry<String, JsonNode>> entries = scenarios.fields();
+      while (entries.hasNext()) {
+        Map.Entry<String, JsonNode> entry = entries.next();
+        double weight = entry.getValue().asDouble();
+        if (weight < 0) {
+          throw new IllegalArgumentException("Negative weight of scenario " + entry.getKey());
+        }
+        weights.put(Scenario.valueOf(entry.getKey()), weight);
+      }
+    }
+    double weightSum = weights.values().stream().mapToDouble(Double::doubleValue).sum();
+    double instances = spec.has("instances") ? spec.get("instances").asDouble() : weightSum;
+    double scale = scaleOverride != null ? scaleOverride : spec.path("scale").asDouble(1);
+
+    Map<String, DurationDistribution> taskDurations = new HashMap<>(Main.defaultTaskDurations());
+    JsonNode durations = spec.get("durations");
+    if (durations != null) {
+      Iterator<Map.Entry<String, JsonNode>> entries = durations.fields();
+      while (entries.hasNext()) {
+        Map.Entry<String, JsonNode> entry = entries.next();
+        if (!HiringProcess.STAGES.contains(entry.getKey())) {
+          throw new IllegalArgumentException("Unknown stage " + entry.getKey() + ", expected one of " +
+                                               HiringProcess.STAGES);
+        }
+        taskDurations.put(entry.getKey(), DurationDistribution.fromJson(entry.getValue()));
+      }
+    }
+    return new ScenarioSpec(
+      apportion(weights, weightSum, Math.round(instances * scale)), new TaskDurations(taskDurations)
+    );
+  }
+
+  /**
+   * Spreads the total over the scenarios by their weights with the largest remainder method, so the counts add
+   * up to the total exactly and equal the weights if the weights are the counts.
+   */
+  private static Map<Scenario, Long> apportion(Map<Scenario, Double> weights, double weightSum, long total) {
+    Map<Scenario, Long> counts = new EnumMap<>(Scenario.class);
+    Map<Scenario, Double> remainders = new EnumMap<>(Scenario.class);
+    long assigned = 0;
+    for (Map.Entry<Scenario, Double> weight : weights.entrySet()) {
+      double share = weightSum > 0 ? total * weight.getValue() / weightSum : 0;
+      long count = (long) Math.floor(share);
+      counts.put(weight.getKey(), count);
+      remainders.put(weight.getKey(), share - count);
+      assigned += count;
+    }
+    for (long left = weightSum > 0 ? total - assigned : 0; left > 0; left--) {
+      Scenario largest = null;
+      for (Map.Entry<Scenario, Double> remainder : remainders.entrySet()) {
+        if (largest == null || remainder.getValue() > remainders.get(largest)) {
+          largest = remainder.getKey();
+        }
+      }
+      counts.merge(largest, 1L, Long::sum);
+      remainders.put(largest, -1.0);
+    }
+    return counts;
+  }
+
+  public long getCount(Scenario scenario) {
+    return counts.getOrDefault(scenario, 0L);
+  }
+
+  public long getTotalCount() {
+    return counts.values().stream().mapToLong(Long::longValue).sum();
+  }
+
+  /**
+   * @return the distribution of the time spent in every stage
+   */
+  public TaskDurations getTaskDurations() {
+    return taskDurations;
+  }
+}
@@ -0,0 +1,72 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.camunda.optimize.hiring.data.generation;
+
+/**
+ * The part of a run one of several generator processes takes over, written {@code i/N} with {@code i} from 1 to
+ * {@code N}. A shard owns the random stream lanes {@code i - 1}, {@code i - 1 + N} and so on. Since the variables and
+ * business key of every instance only depend on the seed, its lane and its number in the run, the shards together
+ * create exactly the instances a single process with all lanes creates.
+ */
+public class Shard {
+
+  public static final Shard ALL = new Shard(1, 1);
+
+  private final int index;
+  private final int count;
+
+  public Shard(int index, int count) {
+    if (count < 1 || index < 1 || index > count) {
+      throw new IllegalArgumentException("Invalid shard " + index + "/" + count + ", expected i/N with 1 <= i <= N");
+    }
+    this.index = index;
+    this.count = count;
+  }
+
+  /**
+   * @param shard e.g. {@code 2/4}
+   */
+  public static Shard parse(String shard) {
+    int separator = shard.indexOf('/');
+    if (separator < 0) {
+      throw new IllegalArgumentException("Invalid shard " + shard + ", expected i/N");
+    }
+    return new Shard(
+      Integer.parseInt(shard.substring(0, separator).trim()), Integer.parseInt(shard.substring(separator + 1).trim())
+    );
+  }
+
+  public boolean owns(int lane) {
+    return lane % count == index - 1;
+  }
+
+  public boolean isAll() {
+    return count == 1;
+  }
+
+  /**
+   * @throws IllegalArgumentException if the shard would not own any of the given number of lanes
+   */
+  public void checkLanes(int lanes) {
+    if (lanes < count) {
+      throw new IllegalArgumentException(
+        "A run with " + count + " shards needs at least as many start workers, but has " + lanes
+      );
+    }
+  }
+
+  @Override
+  public String toString() {
+    return index + "/" + count;
+  }
+}
@@ -0,0 +1,214 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.camunda.optimize.hiring.data.generation;
+
+import org.camunda.bpm.engine.ProcessEngine;
+import org.camunda.bpm.engine.RuntimeService;
+import org.camunda.bpm.engine.TaskService;
+import org.camunda.bpm.engine.impl.util.ClockUtil;
+import org.camunda.bpm.engine.task.Task;
+import org.camunda.optimize.hiring.data.generation.dto.VariableValue;
+
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.camunda.optimize.hiring.data.generation.HiringProcess.CANDIDATE_APPLICATION;
+import static org.camunda.optimize.hiring.data.generation.HiringProcess.CANDIDATE_CANCELLED;
+import static org.camunda.optimize.hiring.data.generation.HiringProcess.CANDIDATE_REPLIED;
+import static org.camunda.optimize.hiring.data.generation.HiringProcess.CANDIDATE_REPLIED_MESSAGE;
+
+/**
+ * Generates the history of a whole period in compressed time on an embedded engine. Candidates arrive spread
+ * over the period and every step of an instance is scheduled after the duration sampled for its stage. The
+ * steps of all instances are executed in the order of their due time, with the engine clock set to that time,
+ * so the history shows realistic, overlapping timestamps instead of the time the generator ran.
+ * <p>
+ * The engine clock is global to the JVM, hence the simulation runs on a single thread.
+ */
+public class SimulatedHistoryGenerator {
+
+  private static final String SIMULATED_USER = "demo";
+
+  private final RuntimeService runtimeService;
+  private final TaskService taskService;
+  private final long startTime;
+  private final long endTime;
+  private final SplittableRandom random;
+  private final RandomStreams randomStreams;
+  private final TaskDurations taskDurations;
+
+  private final PriorityQueue<SimulationEvent> events = new PriorityQueue<>();
+  private final Map<Scenario, Long> remainingArrivals = new EnumMap<>(Scenario.class);
+  private final long totalArrivals;
+  private long eventSequence = 0;
+  private long now;
+
+  private long startedInstances = 0;
+  private long completedTasks = 0;
+  private long cancelledInstances = 0;
+  private long finishedInstances = 0;
+
+  /**
+   * @param randomStreams only the first lane is used, since the simulation runs on a single thread
+   */
+  public SimulatedHistoryGenerator(ProcessEngine processEngine, int simulatedDays, ScenarioSpec scenarioSpec,
+                                   RandomStreams randomStreams) {
+    this.runtimeService = processEngine.getRuntimeService();
+    this.taskService = processEngine.getTaskService();
+    this.endTime = System.currentTimeMillis();
+    this.startTime = endTime - TimeUnit.DAYS.toMillis(simulatedDays);
+    this.randomStreams = randomStreams;
+    this.random = randomStreams.forTiming(0);
+    this.taskDurations = scenarioSpec.getTaskDurations();
+    for (Scenario scenario : Scenario.values()) {
+      remainingArrivals.put(scenario, scenarioSpec.getCount(scenario));
+    }
+    this.totalArrivals = scenarioSpec.getTotalCount();
+  }
+
+  public void run() {
+    scheduleArrival(0);
+    try {
+      SimulationEvent event;
+      while ((event = events.poll()) != null && event.dueTime <= endTime) {
+        now = event.dueTime;
+        ClockUtil.setCurrentTime(new Date(now));
+        event.action.run();
+      }
+    } finally {
+      ClockUtil.reset();
+    }
+    System.out.println(String.format(
+      "Simulated %d days: started %d instances, completed %d user tasks, cancelled %d instances, " +
+        "%d instances finished and %d are still running",
+      TimeUnit.MILLISECONDS.toDays(endTime - startTime), startedInstances, completedTasks, cancelledInstances,
+      finishedInstances, startedInstances - finishedInstances - cancelledInstances
+    ));
+  }
+
+  /**
+   * Candidates arrive evenly spread over the simulated period, each with a random offset in its time slot.
+   * Only the next arrival is scheduled at any time, so the queue only holds the steps of running instances.
+   */
+  private void scheduleArrival(long arrivalIndex) {
+    if (arrivalIndex >= totalArrivals) {
+      return;
+    }
+    double slot = (double) (endTime - startTime) / totalArrivals;
+    long arrivalTime = startTime + (long) ((arrivalIndex + random.nextDouble()) * slot);
+    schedule(arrivalTime, () -> {
+      startInstance(nextScenario(totalArrivals - arrivalIndex));
+      scheduleArrival(arrivalIndex + 1);
+    });
+  }
+
+  private Scenario nextScenario(long remainingTotal) {
+    long pick = random.nextLong(remainingTotal);
+    for (Map.Entry<Scenario, Long> remaining : remainingArrivals.entrySet()) {
+      if (pick < remaining.getValue()) {
+        remaining.setValue(remaining.getValue() - 1);
+        return remaining.getKey();
+      }
+      pick -= remaining.getValue();
+    }
+    throw new IllegalStateException("No arrivals left to simulate!");
+  }
+
+  private void startInstance(Scenario scenario) {
+    Map<String, VariableValue> variables =
+      scenario.createVariables(randomStreams.forScenario(scenario, 0), taskDurations);
+    String processInstanceId = runtimeService.createMessageCorrelation(CANDIDATE_APPLICATION)
+      .setVariables(EmbeddedEngineClient.toEngineVariables(variables))
+      .correlateWithResult()
+      .getProcessInstance()
+      .getId();
+    startedInstances++;
+    advance(processInstanceId, scenario, variables);
+  }
+
+  /**
+   * Looks up the stage the instance waits in and schedules what happens there once the stage duration elapsed.
+   */
+  private void advance(String processInstanceId, Scenario scenario, Map<String, VariableValue> variables) {
+    Task task = taskService.createTaskQuery().processInstanceId(processInstanceId).singleResult();
+    String stage;
+    if (task != null) {
+      stage = task.getTaskDefinitionKey();
+    } else if (isWaitingForReply(processInstanceId)) {
+      stage = CANDIDATE_REPLIED;
+    } else {
+      finishedInstances++;
+      return;
+    }
+
+    long duration = taskDurations.getStageDuration(variables, stage, random);
+    if (scenario.isCancelledAt(stage)) {
+      schedule(now + (long) (random.nextDouble() * duration), () -> cancel(processInstanceId));
+    } else if (task != null) {
+      // the task waits unclaimed for a while before somebody works on it
+      schedule(now + (long) (random.nextDouble() * duration), () -> taskService.claim(task.getId(), SIMULATED_USER));
+      schedule(now + duration, () -> {
+        taskService.complete(task.getId());
+        completedTasks++;
+        advance(processInstanceId, scenario, variables);
+      });
+    } else {
+      schedule(now + duration, () -> {
+        runtimeService.createMessageCorrelation(CANDIDATE_REPLIED_MESSAGE)
+          .processInstanceId(processInstanceId)
+          .correlateWithResult();
+        advance(processInstanceId, scenario, variables);
+      });
+    }
+  }
+
+  private boolean isWaitingForReply(String processInstanceId) {
+    return runtimeService.createExecutionQuery()
+      .processInstanceId(processInstanceId)
+      .activityId(CANDIDATE_REPLIED)
+      .count() > 0;
+  }
+
+  private void cancel(String processInstanceId) {
+    runtimeService.createMessageCorrelation(CANDIDATE_CANCELLED)
+      .processInstanceId(processInstanceId)
+      .correlateWithResult();
+    cancelledInstances++;
+  }
+
+  private void schedule(long dueTime, Runnable action) {
+    events.add(new SimulationEvent(dueTime, eventSequence++, action));
+  }
+
+  private static class SimulationEvent implements Comparable<SimulationEvent> {
+    private final long dueTime;
+    private final long sequence;
+    private final Runnable action;
+
+    private SimulationEvent(long dueTime, long sequence, Runnable action) {
+      this.dueTime = dueTime;
+      this.sequence = sequence;
+      this.action = action;
+    }
+
+    @Override
+    public int compareTo(SimulationEvent other) {
+      int byTime = Long.compare(dueTime, other.dueTime);
+      return byTime != 0 ? byTime : Long.compare(sequence, other.sequence);
+    }
+  }
+}
@@ -0,0 +1,393 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.camunda.optimize.hiring.data.generation;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.camunda.optimize.hiring.data.generation.dto.MessageCorrelationDto;
+import org.camunda.optimize.hiring.data.generation.dto.TaskDto;
+import org.camunda.optimize.hiring.data.generation.dto.VariableValue;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import static org.camunda.optimize.hiring.data.generation.HiringProcess.CANDIDATE_APPLICATION;
+import static org.camunda.optimize.hiring.data.generation.HiringProcess.CANDIDATE_CANCELLED;
+import static org.camunda.optimize.hiring.data.generation.HiringProcess.CANDIDATE_REPLIED;
+import static org.camunda.optimize.hiring.data.generation.HiringProcess.CANDIDATE_REPLIED_MESSAGE;
+import static org.camunda.optimize.hiring.data.generation.HiringProcess.MAKE_AN_OFFER;
+import static org.camunda.optimize.hiring.data.generation.HiringProcess.STAGES;
+
+/**
+ * Keeps a steady population of live instances moving through the process for as long as it runs. Every instance
+ * stays in a stage for the duration sampled for it, divided by the time scale, and then completes the task of the
+ * stage, is cancelled there, or gets the reply to its offer. Once an instance ends, a new candidate takes its place,
+ * so candidates arrive continuously and the number of live instances never exceeds the population.
+ * <p>
+ * The population is a fixed set of slots in a {@link DelayQueue} ordered by the time their next step is due. A
+ * single thread takes the due slots and sends their calls; the answer puts the slot back with its next due time.
+ * Every step only touches its own instance, found by its business key, so the cost of a step does not grow with
+ * the number of open tasks, and the memory of the run stays the same however long it runs.
+ */
+public class SoakRunner {
+
+  private static final int MAX_ATTEMPTS = 3;
+  private static final long RETRY_DELAY_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+  private final EngineRouter engines;
+  private final int population;
+  private final double timeScale;
+  private final long durationNanos;
+  private final long rampNanos;
+  private final long reportIntervalNanos;
+  private final int maxInFlight;
+  private final AliasTable<Scenario> scenarioMix;
+  private final TaskDurations taskDurations;
+  private final SplittableRandom arrivalRandom;
+  private final String businessKeyPrefix;
+  private final DelayQueue<Slot> dueSlots = new DelayQueue<>();
+  private final Recorder stepLag = new Recorder(3);
+  // only used by the thread that runs the soak
+  private final Histogram totalStepLag = new Histogram(3);
+  private final AtomicInteger live = new AtomicInteger();
+  private final LongAdder started = new LongAdder();
+  private final LongAdder completedTasks = new LongAdder();
+  private final LongAdder completed = new LongAdder();
+  private final LongAdder cancelled = new LongAdder();
+  private final LongAdder givenUp = new LongAdder();
+  private long arrivals = 0;
+
+  /**
+   * @param population live instances at most
+   * @param timeScale factor the sampled durations are shortened by, 1 for real time
+   * @param durationSeconds how long the soak runs, 0 to run until the process is stopped
+   * @param rampSeconds time the first candidates of the population arrive within
+   * @param maxInFlight steps waiting for their answer at most
+   */
+  public SoakRunner(EngineRouter engines, int population, double timeScale, long durationSeconds, long rampSeconds,
+                    long reportIntervalSeconds, int maxInFlight, ScenarioSpec scenarioSpec, long seed,
+                    String businessKeyPrefix) {
+    if (population < 1 || timeScale <= 0) {
+      throw new IllegalArgumentException("A soak needs a population of at least 1 and a positive time scale");
+    }
+    this.engines = engines;
+    this.population = population;
+    this.timeScale = timeScale;
+    this.durationNanos = TimeUnit.SECONDS.toNanos(durationSeconds);
+    this.rampNanos = TimeUnit.SECONDS.toNanos(rampSeconds);
+    this.reportIntervalNanos = TimeUnit.SECONDS.toNanos(Math.max(1, reportIntervalSeconds));
+    this.maxInFlight = Math.max(1, maxInFlight);
+    Map<Scenario, Long> weights = new EnumMap<>(Scenario.class);
+    for (Scenario scenario : Scenario.values()) {
+      weights.put(scenario, scenarioSpec.getCount(scenario));
+    }
+    this.scenarioMix = new AliasTable<>(weights);
+    this.taskDurations = scenarioSpec.getTaskDurations();
+    this.arrivalRandom = new SplittableRandom(seed);
+    this.businessKeyPrefix = businessKeyPrefix;
+  }
+
+  /**
+   * Runs the soak until its duration is over and prints what happened every report interval. The instances that
+   * are live at the end stay open.
+   */
+  public void run() throws IOException {
+    long startNanos = System.nanoTime();
+    for (int i = 0; i < population; i++) {
+      dueSlots.add(new Slot(startNanos + rampNanos * i / population));
+    }
+    System.out.println(String.format(
+      "Soaking with %d live instances, %.0f s of process time per second, %s", population, timeScale,
+      durationNanos > 0 ? "for " + TimeUnit.NANOSECONDS.toSeconds(durationNanos) + " s" : "until stopped"
+    ));
+    Semaphore inFlightPermits = new Semaphore(maxInFlight);
+    long nextReportNanos = startNanos + reportIntervalNanos;
+    try {
+      while (durationNanos == 0 || System.nanoTime() - startNanos < durationNanos) {
+        long wakeUp = durationNanos > 0 ? Math.min(nextReportNanos, startNanos + durationNanos) : nextReportNanos;
+        Slot slot = dueSlots.poll(wakeUp - System.nanoTime(), TimeUnit.NANOSECONDS);
+        if (System.nanoTime() - nextReportNanos >= 0) {
+          report(startNanos, false);
+          nextReportNanos += reportIntervalNanos;
+        }
+        if (slot == null) {
+          continue;
+        }
+        inFlightPermits.acquire();
+        stepLag.recordValue(Math.max(0, (System.nanoTime() - slot.dueNanos) / 1000));
+        CompletableFuture<Void> step;
+        try {
+          step = step(slot);
+        } catch (RuntimeException e) {
+          step = Futures.failed(e);
+        }
+        step.whenComplete((ignored, failure) -> {
+          if (failure != null) {
+            retryOrGiveUp(slot, failure);
+          }
+          inFlightPermits.release();
+        });
+      }
+      inFlightPermits.acquire(maxInFlight);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while soaking!");
+    }
+    report(startNanos, true);
+  }
+
+  private CompletableFuture<Void> step(Slot slot) {
+    switch (slot.action) {
+      case ARRIVE:
+        return arrive(slot);
+      case FIND_TASK:
+        return findTask(slot);
+      case FINISH_STAGE:
+        return slot.scenario.isCancelledAt(slot.stage) ? cancel(slot) : completeTask(slot);
+      case REPLY:
+        return reply(slot);
+      default:
+        throw new IllegalStateException("Unknown step " + slot.action);
+    }
+  }
+
+  private CompletableFuture<Void> arrive(Slot slot) {
+    if (slot.businessKey == null) {
+      Scenario scenario = scenarioMix.sample(arrivalRandom);
+      SplittableRandom random = arrivalRandom.split();
+      slot.arrive(businessKeyPrefix + arrivals++, scenario, scenario.createVariables(random, taskDurations), random,
+                  taskDurations);
+    }
+    MessageCorrelationDto message = new MessageCorrelationDto();
+    message.setAll(true);
+    message.setMessageName(CANDIDATE_APPLICATION);
+    message.setBusinessKey(slot.businessKey);
+    message.setProcessVariables(slot.variables);
+    return call(slot, engine -> engine.getClient().correlateMessageAsync(message)).thenCompose(startedNow -> {
+      if (!startedNow) {
+        throw new CompletionException(new IOException("The engine did not start instance " + slot.businessKey));
+      }
+      started.increment();
+      live.incrementAndGet();
+      slot.started();
+      return findTask(slot);
+    });
+  }
+
+  /**
+   * Looks up the stage the instance waits in and schedules the end of the stage, or ends the slot if the instance
+   * has left the process.
+   */
+  private CompletableFuture<Void> findTask(Slot slot) {
+    return call(slot, engine -> engine.getClient().getTasksOfInstanceAsync(slot.businessKey)).thenAccept(tasks -> {
+      if (tasks.isEmpty()) {
+        if (MAKE_AN_OFFER.equals(slot.stage)) {
+          // the candidate got an offer and the instance waits for the reply
+          slot.stage = CANDIDATE_REPLIED;
+          schedule(slot, Action.REPLY);
+        } else {
+          end(slot, completed);
+        }
+        return;
+      }
+      TaskDto task = tasks.get(0);
+      String stage = task.getTaskDefinitionKey();
+      if (slot.stage != null && STAGES.indexOf(stage) <= STAGES.indexOf(slot.stage)) {
+        throw new CompletionException(new IOException(
+          "Instance " + slot.businessKey + " is still in " + stage + " after " + slot.stage
+        ));
+      }
+      slot.stage = stage;
+      slot.taskId = task.getId();
+      schedule(slot, Action.FINISH_STAGE);
+    });
+  }
+
+  private CompletableFuture<Void> completeTask(Slot slot) {
+    Function<EngineRouter.Engine, CompletableFuture<Boolean>> finish =
+      engine -> engine.getClient().finishTaskAsync(slot.taskId, engine.getProtocol());
+    return call(slot, finish).thenCompose(completedNow -> {
+      if (!completedNow) {
+        throw new CompletionException(new IOException("Could not complete user task " + slot.taskId));
+      }
+      completedTasks.increment();
+      slot.attempts = 0;
+      slot.action = Action.FIND_TASK;
+      return findTask(slot);
+    });
+  }
+
+  private CompletableFuture<Void> cancel(Slot slot) {
+    return correlate(slot, CANDIDATE_CANCELLED, cancelled);
+  }
+
+  private CompletableFuture<Void> reply(Slot slot) {
+    return correlate(slot, CANDIDATE_REPLIED_MESSAGE, completed);
+  }
+
+  private CompletableFuture<Void> correlate(Slot slot, String messageName, LongAdder endCount) {
+    MessageCorrelationDto message = new MessageCorrelationDto();
+    message.setMessageName(messageName);
+    message.setBusinessKey(slot.businessKey);
+    return call(slot, engine -> engine.getClient().correlateMessageAsync(message)).thenAccept(correlated -> {
+      if (!correlated) {
+        throw new CompletionException(new IOException(
+          "Could not send the " + messageName + " message to instance " + slot.businessKey
+        ));
+      }
+      end(slot, endCount);
+    });
+  }
+
+  private <T> CompletableFuture<T> call(Slot slot, Function<EngineRouter.Engine, CompletableFuture<T>> call) {
+    EngineRouter.Engine engine = engines.route(slot.businessKey);
+    return engine.guard(() -> call.apply(engine));
+  }
+
+  /**
+   * Puts the slot back to finish its current stage once the scaled duration of the stage has elapsed.
+   */
+  private void schedule(Slot slot, Action action) {
+    long durationMs = Math.max(0, slot.stageDurationsMs[STAGES.indexOf(slot.stage)]);
+    slot.action = action;
+    slot.attempts = 0;
+    slot.dueNanos = System.nanoTime() + (long) (TimeUnit.MILLISECONDS.toNanos(durationMs) / timeScale);
+    dueSlots.add(slot);
+  }
+
+  /**
+   * Ends the instance of the slot and lets the next candidate arrive in its place right away.
+   */
+  private void end(Slot slot, LongAdder endCount) {
+    endCount.increment();
+    if (slot.action != Action.ARRIVE) {
+      live.decrementAndGet();
+    }
+    slot.reset(System.nanoTime());
+    dueSlots.add(slot);
+  }
+
+  private void retryOrGiveUp(Slot slot, Throwable failure) {
+    if (++slot.attempts < MAX_ATTEMPTS) {
+      slot.dueNanos = System.nanoTime() + RETRY_DELAY_NANOS;
+      dueSlots.add(slot);
+      return;
+    }
+    System.out.println("Warning: Gave up instance " + slot.businessKey + " in " +
+                         (slot.stage != null ? slot.stage : "its start") + " after " + MAX_ATTEMPTS +
+                         " failed attempts: " + Futures.toIOException(failure).getMessage());
+    end(slot, givenUp);
+  }
+
+  /**
+   * @param end whether to report the lag of the whole soak instead of the last interval
+   */
+  private void report(long startNanos, boolean end) {
+    Histogram lag = stepLag.getIntervalHistogram();
+    totalStepLag.add(lag);
+    if (end) {
+      lag = totalStepLag;
+    }
+    long ended = completed.sum() + cancelled.sum() + givenUp.sum();
+    System.out.println(String.format(
+      "%s %d s: %d live, %d started, %d ended (%d completed, %d cancelled, %d given up), %d tasks completed, " +
+        "steps late by p99 %.1f ms, max %.1f ms",
+      end ? "Soaked for" : "Soaking for", TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - startNanos), live.get(),
+      started.sum(), ended, completed.sum(), cancelled.sum(), givenUp.sum(), completedTasks.sum(),
+      lag.getValueAtPercentile(99) / 1000.0, lag.getMaxValue() / 1000.0
+    ));
+  }
+
+  private enum Action {
+    ARRIVE, FIND_TASK, FINISH_STAGE, REPLY
+  }
+
+  /**
+   * A place in the population, taken by one instance after the other. Only one step of a slot runs at a time, and
+   * the queue hands the slot from the thread that finished a step to the one that runs the next.
+   */
+  private static class Slot implements Delayed {
+
+    private long dueNanos;
+    private Action action;
+    private int attempts;
+    private String businessKey;
+    private Scenario scenario;
+    // the start message only, dropped once the instance is started
+    private Map<String, VariableValue> variables;
+    private final long[] stageDurationsMs = new long[STAGES.size()];
+    private String stage;
+    private String taskId;
+
+    private Slot(long dueNanos) {
+      reset(dueNanos);
+    }
+
+    private void reset(long dueNanos) {
+      this.dueNanos = dueNanos;
+      action = Action.ARRIVE;
+      attempts = 0;
+      businessKey = null;
+      scenario = null;
+      variables = null;
+      stage = null;
+      taskId = null;
+    }
+
+    /**
+     * Takes the durations of the stages from the variables where the scenario has them, so the time an instance
+     * spends in a stage matches its variables, and samples them from the random stream of the instance otherwise.
+     */
+    private void arrive(String businessKey, Scenario scenario, Map<String, VariableValue> variables,
+                        SplittableRandom random, TaskDurations taskDurations) {
+      this.businessKey = businessKey;
+      this.scenario = scenario;
+      this.variables = variables;
+      for (int i = 0; i < STAGES.size(); i++) {
+        String stage = STAGES.get(i);
+        VariableValue duration = variables.get(HiringVariable.forStage(stage).getVariableName());
+        stageDurationsMs[i] = duration != null
+          ? ((Number) duration.getValue()).longValue()
+          : taskDurations.sample(stage, random);
+      }
+    }
+
+    private void started() {
+      variables = null;
+      action = Action.FIND_TASK;
+      attempts = 0;
+    }
+
+    @Override
+    public long getDelay(TimeUnit unit) {
+      return unit.convert(dueNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public int compareTo(Delayed other) {
+      return Long.compare(dueNanos, ((Slot) other).dueNanos);
+    }
+  }
+}
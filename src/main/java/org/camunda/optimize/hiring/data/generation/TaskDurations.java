@@ -0,0 +1,62 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.camunda.optimize.hiring.data.generation;
+
+import org.camunda.optimize.hiring.data.generation.dto.VariableValue;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * How long candidates stay in every stage of the process, as given by the {@link ScenarioSpec} of a run.
+ */
+public class TaskDurations {
+
+  private final Map<String, DurationDistribution> distributions;
+
+  TaskDurations(Map<String, DurationDistribution> distributions) {
+    this.distributions = Collections.unmodifiableMap(new HashMap<>(distributions));
+  }
+
+  /**
+   * @return the durations of a run without a scenario spec
+   */
+  public static TaskDurations defaults() {
+    return new TaskDurations(Main.defaultTaskDurations());
+  }
+
+  /**
+   * Samples how long a candidate stays in the given stage of the process from the given stream.
+   */
+  public long sample(String stage, SplittableRandom random) {
+    DurationDistribution duration = distributions.get(stage);
+    if (duration == null) {
+      throw new IllegalArgumentException("Unknown stage " + stage);
+    }
+    return duration.sample(random);
+  }
+
+  /**
+   * @return how long an instance with the given variables stays in the stage. The duration variable of the
+   * stage is used if the instance has one, otherwise a duration is sampled from the given stream.
+   */
+  public long getStageDuration(Map<String, VariableValue> variables, String stage, SplittableRandom random) {
+    VariableValue duration = variables.get(stage);
+    long millis = duration != null
+      ? ((Number) duration.getValue()).longValue()
+      : sample(stage, random);
+    return Math.max(millis, 0);
+  }
+}
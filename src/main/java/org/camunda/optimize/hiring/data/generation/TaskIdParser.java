@@ -0,0 +1,69 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.camunda.optimize.hiring.data.generation;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads the ids of a task list response of the engine token by token, straight from the response stream. Only the
+ * {@code id} of every task is kept, all other fields are skipped, so neither the body nor the tasks are held in
+ * memory and every id is handed on as soon as its task has been read.
+ */
+public class TaskIdParser {
+
+  public interface TaskIdConsumer {
+    void accept(String taskId) throws IOException;
+  }
+
+  private final JsonFactory jsonFactory;
+
+  public TaskIdParser(JsonFactory jsonFactory) {
+    this.jsonFactory = jsonFactory;
+  }
+
+  /**
+   * @return the number of tasks in the list
+   */
+  public int parse(InputStream taskList, TaskIdConsumer consumer) throws IOException {
+    try (JsonParser parser = jsonFactory.createParser(taskList)) {
+      if (parser.nextToken() != JsonToken.START_ARRAY) {
+        throw new JsonParseException(parser, "Expected a list of tasks");
+      }
+      int count = 0;
+      while (parser.nextToken() == JsonToken.START_OBJECT) {
+        String id = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+          String field = parser.getCurrentName();
+          parser.nextToken();
+          if ("id".equals(field)) {
+            id = parser.getValueAsString();
+          } else {
+            parser.skipChildren();
+          }
+        }
+        if (id == null) {
+          throw new JsonParseException(parser, "Task without id");
+        }
+        consumer.accept(id);
+        count++;
+      }
+      return count;
+    }
+  }
+}
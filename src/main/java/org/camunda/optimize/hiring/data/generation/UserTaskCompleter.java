@@ -12,102 +12,202 @@
  */
 package org.camunda.optimize.hiring.data.generation;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import org.apache.http.HttpHeaders;
-import org.apache.http.client.methods.CloseableHttpResponse;
-import org.apache.http.client.methods.HttpGet;
-import org.apache.http.client.methods.HttpPost;
-import org.apache.http.client.utils.URIBuilder;
-import org.apache.http.entity.StringEntity;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClientBuilder;
-import org.apache.http.util.EntityUtils;
-import org.camunda.optimize.hiring.data.generation.dto.TaskDto;
-
-import javax.ws.rs.core.MediaType;
+import java.io.Closeable;
 import java.io.IOException;
-import java.net.URI;
-import java.net.URISyntaxException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
-public class UserTaskCompleter {
+/**
+ * Completes open user tasks. The task list is read page by page and the calls that finish every task are handed
+ * to a pool of workers as soon as its id has been read from the page, while the rest of the page is still
+ * arriving. Tasks that are still in flight are
+ * remembered, so they are not handed out twice when they show up again on a later page.
+ * <p>
+ * With a blocking engine client a worker is busy until its task is completed. With the async transport a worker
+ * only sends the first call, the next one is chained to its answer, and up to a page of tasks is in flight at
+ * once. A client that pipelines gets the tasks in batches of {@code pipeline} tasks, whose calls share a connection.
+ */
+public class UserTaskCompleter implements Closeable {
 
-  private ObjectMapper objectMapper = new ObjectMapper();
+  private final EngineClient engineClient;
+  private final String engineName;
+  private final int pageSize;
+  private final CompletionProtocol protocol;
+  private final int pipeline;
+  private final ExecutorService workers;
+  private final Semaphore inFlightPermits;
+  private final Set<String> inFlightTaskIds = ConcurrentHashMap.newKeySet();
+  private final Set<String> failedTaskIds = ConcurrentHashMap.newKeySet();
+  private final AtomicLong completedTaskCount = new AtomicLong();
 
-  public void completeAllUserTasks() {
-    completeUserTasks(null);
+  public UserTaskCompleter(EngineClient engineClient, int workerCount, int pageSize) {
+    this(engineClient, workerCount, pageSize, null,
+         CompletionProtocol.claimAndComplete(CompletionProtocol.DEFAULT_ASSIGNEE), 1);
   }
 
-  public void completeUserTasks(String taskDefinitionKey) {
-    CloseableHttpClient client = HttpClientBuilder.create().build();
-    HttpGet get = new HttpGet("http://localhost:8080/engine-rest/task/");
-    if (taskDefinitionKey != null) {
-      URI uri = null;
-      try {
-        uri = new URIBuilder(get.getURI())
-          .addParameter("taskDefinitionKey", taskDefinitionKey)
-          .build();
-      } catch (URISyntaxException e) {
-        System.out.println("Could not build uri!");
-      }
-      get.setURI(uri);
-    }
+  /**
+   * @param engineName the engine to name in the report, if the run has several
+   * @param pipeline tasks handed to the client at once if it pipelines, at most a page
+   */
+  public UserTaskCompleter(EngineClient engineClient, int workerCount, int pageSize, String engineName,
+                           CompletionProtocol protocol, int pipeline) {
+    this.engineClient = engineClient;
+    this.engineName = engineName;
+    this.pageSize = pageSize;
+    this.protocol = protocol;
+    this.pipeline = engineClient.isPipelining() ? Math.max(1, Math.min(pipeline, pageSize)) : 1;
+    AtomicInteger threadCount = new AtomicInteger();
+    this.workers = Executors.newFixedThreadPool(workerCount, runnable -> {
+      Thread thread = new Thread(runnable, "user-task-completer-" + threadCount.getAndIncrement());
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.inFlightPermits = new Semaphore(pageSize);
+  }
 
-    try {
-      List<TaskDto> tasks;
-      do {
-        CloseableHttpResponse response = client.execute(get);
-        String responseString = EntityUtils.toString(response.getEntity(), "UTF-8");
+  /**
+   * @return the number of completed tasks
+   */
+  public long completeAllUserTasks() {
+    return completeUserTasks(null, null);
+  }
 
-        tasks = objectMapper.readValue(responseString, new TypeReference<List<TaskDto>>() {
-        });
-        response.close();
-        for (TaskDto task : tasks) {
-          claimAndCompleteUserTask(client, task);
+  /**
+   * @param taskDefinitionKey only tasks of this stage, or null for all stages
+   * @param businessKeyLike only tasks of instances whose business key matches this SQL like pattern, or null
+   * @return the number of completed tasks
+   */
+  public long completeUserTasks(String taskDefinitionKey, String businessKeyLike) {
+    long startTime = System.nanoTime();
+    completedTaskCount.set(0);
+    failedTaskIds.clear();
+    try {
+      int firstResult = 0;
+      AtomicBoolean submittedTasksInPass = new AtomicBoolean();
+      List<String> batch = new ArrayList<>(pipeline);
+      while (true) {
+        int taskCount = engineClient.forEachTaskId(
+          taskDefinitionKey, businessKeyLike, firstResult, pageSize, taskId -> {
+            if (!failedTaskIds.contains(taskId) && inFlightTaskIds.add(taskId)) {
+              batch.add(taskId);
+              if (batch.size() >= pipeline) {
+                submit(batch);
+                batch.clear();
+              }
+              submittedTasksInPass.set(true);
+            }
+          }
+        );
+        // the rest of the page is not held back for the tasks of the next one
+        if (!batch.isEmpty()) {
+          submit(batch);
+          batch.clear();
         }
-      } while (!tasks.isEmpty());
+        if (taskCount == pageSize) {
+          firstResult += pageSize;
+          continue;
+        }
+        // end of the list: completed tasks shifted the pages, so scan again until nothing is left
+        awaitInFlightTasks();
+        if (!submittedTasksInPass.getAndSet(false)) {
+          break;
+        }
+        firstResult = 0;
+      }
+    } catch (InterruptedIOException e) {
+      Thread.currentThread().interrupt();
+      System.out.println("Interrupted while trying to finish the user tasks!");
     } catch (IOException e) {
       System.out.println("Error while trying to finish the user task!!");
-    } finally {
-      try {
-        client.close();
-      } catch (IOException e) {
-        e.printStackTrace();
-      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      System.out.println("Interrupted while trying to finish the user tasks!");
     }
+    awaitInFlightTasksUninterruptibly();
+    reportThroughput(taskDefinitionKey, businessKeyLike, startTime);
+    return completedTaskCount.get();
   }
 
-  private void claimAndCompleteUserTask(CloseableHttpClient client, TaskDto task) throws IOException {
-    HttpPost claimPost = new HttpPost(getClaimTaskUri(task.getId()));
-    claimPost.setEntity(new StringEntity("{ \"userId\" : " + "\"demo\"" + "}"));
-    claimPost.addHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON);
-    CloseableHttpResponse response = client.execute(claimPost);
-    if (response.getStatusLine().getStatusCode() != 204) {
-      throw new RuntimeException("Could not claim user task!");
-    }
-
-    HttpPost completePost = new HttpPost(getCompleteTaskUri(task.getId()));
-    completePost.setEntity(new StringEntity("{}"));
-    completePost.addHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON);
-    response.close();
-    response = client.execute(completePost);
-    if (response.getStatusLine().getStatusCode() != 204) {
-      System.out.println("Warning: Could not complete user task " + task.getId());
+  private void submit(List<String> batch) throws InterruptedIOException {
+    List<String> taskIds = new ArrayList<>(batch);
+    try {
+      inFlightPermits.acquire(taskIds.size());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for a task to complete!");
     }
-    response.close();
+    workers.execute(() -> {
+      List<CompletableFuture<Boolean>> completions;
+      try {
+        completions = engineClient.finishTasksAsync(taskIds, protocol);
+      } catch (RuntimeException e) {
+        completions = new ArrayList<>();
+        for (int i = 0; i < taskIds.size(); i++) {
+          completions.add(Futures.failed(e));
+        }
+      }
+      for (int i = 0; i < taskIds.size(); i++) {
+        String taskId = taskIds.get(i);
+        completions.get(i).whenComplete((completed, failure) -> {
+          if (failure != null) {
+            System.out.println("Warning: Could not complete user task " + taskId + ": " +
+                                 Futures.toIOException(failure).getMessage());
+            failedTaskIds.add(taskId);
+          } else if (completed) {
+            completedTaskCount.incrementAndGet();
+          } else {
+            failedTaskIds.add(taskId);
+          }
+          inFlightTaskIds.remove(taskId);
+          inFlightPermits.release();
+        });
+      }
+    });
   }
 
-  private String getClaimTaskUri(String taskId) {
-    return getEngineUrl() + "/task/" + taskId + "/claim";
+  private void awaitInFlightTasks() throws InterruptedException {
+    inFlightPermits.acquire(pageSize);
+    inFlightPermits.release(pageSize);
   }
 
-  private String getCompleteTaskUri(String taskId) {
-    return getEngineUrl() + "/task/" + taskId + "/complete";
+  private void awaitInFlightTasksUninterruptibly() {
+    inFlightPermits.acquireUninterruptibly(pageSize);
+    inFlightPermits.release(pageSize);
   }
 
+  private void reportThroughput(String taskDefinitionKey, String businessKeyLike, long startTime) {
+    double seconds = Math.max(System.nanoTime() - startTime, 1) / 1_000_000_000.0;
+    long completed = completedTaskCount.get();
+    System.out.println(String.format(
+      "Completed %d user tasks%s%s%s in %.1f s (%.1f tasks/s)%s",
+      completed,
+      taskDefinitionKey != null ? " of " + taskDefinitionKey : "",
+      businessKeyLike != null ? " of instances " + businessKeyLike : "",
+      engineName != null ? " on " + engineName : "",
+      seconds,
+      completed / seconds,
+      failedTaskIds.isEmpty() ? "" : ", " + failedTaskIds.size() + " failed"
+    ));
+  }
 
-  private String getEngineUrl() {
-    return "http://localhost:8080/engine-rest";
+  @Override
+  public void close() {
+    workers.shutdown();
+    try {
+      workers.awaitTermination(1, TimeUnit.MINUTES);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
   }
 }
@@ -12,12 +12,16 @@
  */
 package org.camunda.optimize.hiring.data.generation.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import java.util.HashMap;
 import java.util.Map;
 
 public class MessageCorrelationDto {
 
   String messageName;
+  @JsonInclude(JsonInclude.Include.NON_NULL)
+  String businessKey;
   boolean all;
   Map<String, VariableValue> processVariables = new HashMap<>();
 
@@ -37,6 +41,17 @@ public class MessageCorrelationDto {
     this.messageName = messageName;
   }
 
+  public String getBusinessKey() {
+    return businessKey;
+  }
+
+  /**
+   * Correlates the message to the instance with the given business key only, or gives a started instance the key.
+   */
+  public void setBusinessKey(String businessKey) {
+    this.businessKey = businessKey;
+  }
+
   public boolean isAll() {
     return all;
   }
@@ -6,6 +6,7 @@ import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 public class TaskDto {
 
   private String id;
+  private String taskDefinitionKey;
 
   public String getId() {
     return id;
@@ -14,4 +15,12 @@ public class TaskDto {
   public void setId(String id) {
     this.id = id;
   }
+
+  public String getTaskDefinitionKey() {
+    return taskDefinitionKey;
+  }
+
+  public void setTaskDefinitionKey(String taskDefinitionKey) {
+    this.taskDefinitionKey = taskDefinitionKey;
+  }
 }
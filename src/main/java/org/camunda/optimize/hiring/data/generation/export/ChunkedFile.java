@@ -0,0 +1,83 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.camunda.optimize.hiring.data.generation.export;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+/**
+ * A stream of records that is split into numbered files of at most {@code recordsPerChunk} records each, so
+ * exports of any size can be loaded, copied or deleted piece by piece.
+ */
+abstract class ChunkedFile implements Closeable {
+
+  private static final int BUFFER_SIZE = 1 << 20;
+
+  private final Path directory;
+  private final String prefix;
+  private final String extension;
+  private final long recordsPerChunk;
+
+  protected Writer writer;
+  private long recordsInChunk = 0;
+  private int chunkIndex = 0;
+
+  ChunkedFile(Path directory, String prefix, String extension, long recordsPerChunk) {
+    this.directory = directory;
+    this.prefix = prefix;
+    this.extension = extension;
+    this.recordsPerChunk = recordsPerChunk;
+  }
+
+  /**
+   * Must be called before a record is written, starts a new chunk if the current one is full.
+   */
+  protected void nextRecord() throws IOException {
+    if (writer == null || recordsInChunk >= recordsPerChunk) {
+      closeChunk();
+      chunkIndex++;
+      Path file = directory.resolve(String.format("%s-%05d.%s", prefix, chunkIndex, extension));
+      writer = new BufferedWriter(
+        new OutputStreamWriter(new FileOutputStream(file.toFile()), StandardCharsets.UTF_8), BUFFER_SIZE
+      );
+      recordsInChunk = 0;
+      onChunkOpened();
+    }
+    recordsInChunk++;
+  }
+
+  protected void onChunkOpened() throws IOException {
+  }
+
+  protected void onChunkClosing() throws IOException {
+  }
+
+  private void closeChunk() throws IOException {
+    if (writer != null) {
+      onChunkClosing();
+      writer.close();
+      writer = null;
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    closeChunk();
+  }
+}
@@ -0,0 +1,81 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.camunda.optimize.hiring.data.generation.export;
+
+import org.camunda.optimize.hiring.data.generation.HiringProcessModel.Activity;
+import org.camunda.optimize.hiring.data.generation.dto.VariableValue;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Passes every record on to several sinks, e.g. to write NDJSON and SQL files in the same run.
+ */
+public class CompositeHistorySink implements HistorySink {
+
+  private final List<HistorySink> sinks;
+
+  public CompositeHistorySink(List<HistorySink> sinks) {
+    this.sinks = sinks;
+  }
+
+  @Override
+  public void processInstance(String id, String businessKey, long startTime, long endTime, String startActivityId,
+                              String endActivityId, String state) throws IOException {
+    for (HistorySink sink : sinks) {
+      sink.processInstance(id, businessKey, startTime, endTime, startActivityId, endActivityId, state);
+    }
+  }
+
+  @Override
+  public void activityInstance(String id, String parentActivityInstanceId, String processInstanceId,
+                               Activity activity, String taskId, String assignee, long startTime, long endTime,
+                               boolean canceled, int sequenceCounter) throws IOException {
+    for (HistorySink sink : sinks) {
+      sink.activityInstance(id, parentActivityInstanceId, processInstanceId, activity, taskId, assignee, startTime,
+                            endTime, canceled, sequenceCounter);
+    }
+  }
+
+  @Override
+  public void taskInstance(String id, String processInstanceId, String activityInstanceId, Activity activity,
+                           String assignee, long startTime, long endTime, String deleteReason) throws IOException {
+    for (HistorySink sink : sinks) {
+      sink.taskInstance(id, processInstanceId, activityInstanceId, activity, assignee, startTime, endTime,
+                        deleteReason);
+    }
+  }
+
+  @Override
+  public void variableInstance(String id, String processInstanceId, String name, VariableValue value)
+    throws IOException {
+    for (HistorySink sink : sinks) {
+      sink.variableInstance(id, processInstanceId, name, value);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    IOException failure = null;
+    for (HistorySink sink : sinks) {
+      try {
+        sink.close();
+      } catch (IOException e) {
+        failure = e;
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+}
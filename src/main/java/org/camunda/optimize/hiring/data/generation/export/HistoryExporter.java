@@ -0,0 +1,164 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.camunda.optimize.hiring.data.generation.export;
+
+import org.camunda.optimize.hiring.data.generation.HiringProcessModel;
+import org.camunda.optimize.hiring.data.generation.HiringProcessModel.Activity;
+import org.camunda.optimize.hiring.data.generation.RandomStreams;
+import org.camunda.optimize.hiring.data.generation.Scenario;
+import org.camunda.optimize.hiring.data.generation.TaskDurations;
+import org.camunda.optimize.hiring.data.generation.dto.VariableValue;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.camunda.optimize.hiring.data.generation.HiringProcessModel.CANCELLED_END;
+import static org.camunda.optimize.hiring.data.generation.HiringProcessModel.CANCELLED_START;
+import static org.camunda.optimize.hiring.data.generation.HiringProcessModel.CANCELLED_SUB_PROCESS;
+import static org.camunda.optimize.hiring.data.generation.HiringProcessModel.START;
+import static org.camunda.optimize.hiring.data.generation.export.HistorySink.OPEN;
+
+/**
+ * Produces the history of hiring process instances without an engine. The variables come from the same path
+ * builders the engine based generation uses, the activities are derived from {@link HiringProcessModel} and the
+ * timestamps from the sampled stage durations. Every instance is passed to the sinks as soon as it is created,
+ * so the memory needed does not depend on the number of exported instances.
+ */
+public class HistoryExporter {
+
+  private static final String ASSIGNEE = "demo";
+  private static final String DELETE_REASON_COMPLETED = "completed";
+  private static final String DELETE_REASON_DELETED = "deleted";
+
+  private final HistorySink sink;
+  private final long periodStart;
+  private final long periodEnd;
+  private final String idPrefix;
+  private final RandomStreams randomStreams;
+  private final SplittableRandom random;
+  private final TaskDurations taskDurations;
+
+  private long nextId = 0;
+  private long exportedInstances = 0;
+
+  /**
+   * @param periodStart the earliest start time of an exported instance
+   * @param periodEnd   the time the export represents; instances still running then are exported as active
+   * @param idPrefix    prefix of all generated ids, to keep them apart from ids the engine generates
+   * @param randomStreams only the first lane is used, since the export runs on a single thread
+   * @param taskDurations the distributions the stage durations are sampled from
+   */
+  public HistoryExporter(HistorySink sink, long periodStart, long periodEnd, String idPrefix,
+                         RandomStreams randomStreams, TaskDurations taskDurations) {
+    this.sink = sink;
+    this.periodStart = periodStart;
+    this.periodEnd = periodEnd;
+    this.idPrefix = idPrefix;
+    this.randomStreams = randomStreams;
+    this.random = randomStreams.forTiming(0);
+    this.taskDurations = taskDurations;
+  }
+
+  public long getExportedInstances() {
+    return exportedInstances;
+  }
+
+  public void export(Scenario scenario, long count) throws IOException {
+    for (long i = 0; i < count; i++) {
+      exportInstance(scenario);
+    }
+  }
+
+  private void exportInstance(Scenario scenario) throws IOException {
+    Map<String, VariableValue> variables =
+      scenario.createVariables(randomStreams.forScenario(scenario, 0), taskDurations);
+    List<Activity> route = HiringProcessModel.route(variables, scenario);
+
+    String processInstanceId = nextId();
+    long startTime = periodStart + (long) (random.nextDouble() * (periodEnd - periodStart));
+    for (Map.Entry<String, VariableValue> variable : variables.entrySet()) {
+      sink.variableInstance(nextId(), processInstanceId, variable.getKey(), variable.getValue());
+    }
+
+    long time = startTime;
+    int sequenceCounter = 1;
+    Activity endActivity = null;
+    for (Activity activity : route) {
+      boolean cancelled = activity.isStage() && scenario.isCancelledAt(activity.getId());
+      long duration = 0;
+      if (activity.isStage()) {
+        duration = taskDurations.getStageDuration(variables, activity.getId(), random);
+        if (cancelled) {
+          duration = (long) (random.nextDouble() * duration);
+        }
+      }
+      long endTime = time + duration > periodEnd ? OPEN : time + duration;
+      writeActivity(processInstanceId, processInstanceId, activity, time, endTime, cancelled, sequenceCounter++);
+      if (endTime == OPEN) {
+        break;
+      }
+      time = endTime;
+      if (cancelled) {
+        String subProcessId = activityInstanceId(CANCELLED_SUB_PROCESS);
+        sink.activityInstance(
+          subProcessId, processInstanceId, processInstanceId, CANCELLED_SUB_PROCESS, null, null, time, time, false,
+          sequenceCounter++
+        );
+        writeActivity(subProcessId, processInstanceId, CANCELLED_START, time, time, false, sequenceCounter++);
+        writeActivity(subProcessId, processInstanceId, CANCELLED_END, time, time, false, sequenceCounter++);
+        endActivity = CANCELLED_END;
+        break;
+      }
+      endActivity = activity;
+    }
+
+    boolean ended = endActivity != null && "noneEndEvent".equals(endActivity.getType());
+    sink.processInstance(
+      processInstanceId,
+      "candidate-" + processInstanceId,
+      startTime,
+      ended ? time : OPEN,
+      START.getId(),
+      ended ? endActivity.getId() : null,
+      ended ? HistorySink.STATE_COMPLETED : HistorySink.STATE_ACTIVE
+    );
+    exportedInstances++;
+  }
+
+  private void writeActivity(String parentActivityInstanceId, String processInstanceId, Activity activity,
+                             long startTime, long endTime, boolean canceled, int sequenceCounter)
+    throws IOException {
+    String activityInstanceId = activityInstanceId(activity);
+    String taskId = null;
+    String assignee = null;
+    if (activity.isUserTask()) {
+      taskId = nextId();
+      assignee = ASSIGNEE;
+      String deleteReason = endTime == OPEN ? null : canceled ? DELETE_REASON_DELETED : DELETE_REASON_COMPLETED;
+      sink.taskInstance(taskId, processInstanceId, activityInstanceId, activity, assignee, startTime, endTime,
+                        deleteReason);
+    }
+    sink.activityInstance(activityInstanceId, parentActivityInstanceId, processInstanceId, activity, taskId,
+                          assignee, startTime, endTime, canceled, sequenceCounter);
+  }
+
+  private String activityInstanceId(Activity activity) {
+    return activity.getId() + ":" + nextId();
+  }
+
+  private String nextId() {
+    return idPrefix + Long.toString(nextId++, 36);
+  }
+}
@@ -0,0 +1,47 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.camunda.optimize.hiring.data.generation.export;
+
+import org.camunda.optimize.hiring.data.generation.HiringProcessModel.Activity;
+import org.camunda.optimize.hiring.data.generation.dto.VariableValue;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Receives the history records of exported process instances. All records of an instance are written before
+ * the records of the next one.
+ */
+public interface HistorySink extends Closeable {
+
+  /**
+   * End time of records that have not ended yet.
+   */
+  long OPEN = -1;
+
+  String STATE_ACTIVE = "ACTIVE";
+  String STATE_COMPLETED = "COMPLETED";
+
+  void processInstance(String id, String businessKey, long startTime, long endTime, String startActivityId,
+                       String endActivityId, String state) throws IOException;
+
+  void activityInstance(String id, String parentActivityInstanceId, String processInstanceId, Activity activity,
+                        String taskId, String assignee, long startTime, long endTime, boolean canceled,
+                        int sequenceCounter) throws IOException;
+
+  void taskInstance(String id, String processInstanceId, String activityInstanceId, Activity activity,
+                    String assignee, long startTime, long endTime, String deleteReason) throws IOException;
+
+  void variableInstance(String id, String processInstanceId, String name, VariableValue value) throws IOException;
+
+}
@@ -0,0 +1,184 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.camunda.optimize.hiring.data.generation.export;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.camunda.optimize.hiring.data.generation.HiringProcessModel.Activity;
+import org.camunda.optimize.hiring.data.generation.dto.VariableValue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Writes the history as newline delimited JSON, one file series per record type. The records use the field
+ * names of the engine REST history API.
+ */
+public class NdjsonHistorySink implements HistorySink {
+
+  private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+  private final String processDefinitionKey;
+  private final String processDefinitionId;
+  private final TimestampFormat timestampFormat = new TimestampFormat(true);
+
+  private final NdjsonFile processInstances;
+  private final NdjsonFile activityInstances;
+  private final NdjsonFile taskInstances;
+  private final NdjsonFile variableInstances;
+
+  public NdjsonHistorySink(Path directory, long recordsPerChunk, String processDefinitionKey,
+                           String processDefinitionId) {
+    this.processDefinitionKey = processDefinitionKey;
+    this.processDefinitionId = processDefinitionId;
+    processInstances = new NdjsonFile(directory, "process-instance", recordsPerChunk);
+    activityInstances = new NdjsonFile(directory, "activity-instance", recordsPerChunk);
+    taskInstances = new NdjsonFile(directory, "task-instance", recordsPerChunk);
+    variableInstances = new NdjsonFile(directory, "variable-instance", recordsPerChunk);
+  }
+
+  @Override
+  public void processInstance(String id, String businessKey, long startTime, long endTime, String startActivityId,
+                              String endActivityId, String state) throws IOException {
+    JsonGenerator json = processInstances.beginRecord();
+    json.writeStringField("id", id);
+    json.writeStringField("businessKey", businessKey);
+    writeProcessDefinition(json);
+    writeTimes(json, startTime, endTime, "durationInMillis");
+    json.writeStringField("startActivityId", startActivityId);
+    json.writeStringField("endActivityId", endActivityId);
+    json.writeStringField("state", state);
+    processInstances.endRecord();
+  }
+
+  @Override
+  public void activityInstance(String id, String parentActivityInstanceId, String processInstanceId,
+                               Activity activity, String taskId, String assignee, long startTime, long endTime,
+                               boolean canceled, int sequenceCounter) throws IOException {
+    JsonGenerator json = activityInstances.beginRecord();
+    json.writeStringField("id", id);
+    json.writeStringField("parentActivityInstanceId", parentActivityInstanceId);
+    json.writeStringField("activityId", activity.getId());
+    json.writeStringField("activityType", activity.getType());
+    writeProcessDefinition(json);
+    json.writeStringField("processInstanceId", processInstanceId);
+    json.writeStringField("executionId", processInstanceId);
+    json.writeStringField("taskId", taskId);
+    json.writeStringField("assignee", assignee);
+    writeTimes(json, startTime, endTime, "durationInMillis");
+    json.writeBooleanField("canceled", canceled);
+    json.writeBooleanField("completeScope", "noneEndEvent".equals(activity.getType()));
+    json.writeNumberField("sequenceCounter", sequenceCounter);
+    activityInstances.endRecord();
+  }
+
+  @Override
+  public void taskInstance(String id, String processInstanceId, String activityInstanceId, Activity activity,
+                           String assignee, long startTime, long endTime, String deleteReason) throws IOException {
+    JsonGenerator json = taskInstances.beginRecord();
+    json.writeStringField("id", id);
+    json.writeStringField("taskDefinitionKey", activity.getId());
+    writeProcessDefinition(json);
+    json.writeStringField("processInstanceId", processInstanceId);
+    json.writeStringField("executionId", processInstanceId);
+    json.writeStringField("activityInstanceId", activityInstanceId);
+    json.writeStringField("assignee", assignee);
+    writeTimes(json, startTime, endTime, "duration");
+    json.writeStringField("deleteReason", deleteReason);
+    taskInstances.endRecord();
+  }
+
+  @Override
+  public void variableInstance(String id, String processInstanceId, String name, VariableValue value)
+    throws IOException {
+    JsonGenerator json = variableInstances.beginRecord();
+    json.writeStringField("id", id);
+    json.writeStringField("name", name);
+    json.writeStringField("type", value.getType());
+    json.writeFieldName("value");
+    Object rawValue = value.getValue();
+    if (rawValue instanceof Boolean) {
+      json.writeBoolean((Boolean) rawValue);
+    } else if (rawValue instanceof Long) {
+      json.writeNumber((Long) rawValue);
+    } else {
+      json.writeString(String.valueOf(rawValue));
+    }
+    writeProcessDefinition(json);
+    json.writeStringField("processInstanceId", processInstanceId);
+    json.writeStringField("executionId", processInstanceId);
+    json.writeStringField("activityInstanceId", processInstanceId);
+    json.writeStringField("state", "CREATED");
+    variableInstances.endRecord();
+  }
+
+  private void writeProcessDefinition(JsonGenerator json) throws IOException {
+    json.writeStringField("processDefinitionKey", processDefinitionKey);
+    json.writeStringField("processDefinitionId", processDefinitionId);
+  }
+
+  private void writeTimes(JsonGenerator json, long startTime, long endTime, String durationField)
+    throws IOException {
+    json.writeFieldName("startTime");
+    json.writeString(timestampFormat.format(startTime), 0, timestampFormat.length());
+    if (endTime == OPEN) {
+      json.writeNullField("endTime");
+      json.writeNullField(durationField);
+    } else {
+      json.writeFieldName("endTime");
+      json.writeString(timestampFormat.format(endTime), 0, timestampFormat.length());
+      json.writeNumberField(durationField, endTime - startTime);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    processInstances.close();
+    activityInstances.close();
+    taskInstances.close();
+    variableInstances.close();
+  }
+
+  private static class NdjsonFile extends ChunkedFile {
+
+    private JsonGenerator generator;
+
+    private NdjsonFile(Path directory, String prefix, long recordsPerChunk) {
+      super(directory, prefix, "ndjson", recordsPerChunk);
+    }
+
+    private JsonGenerator beginRecord() throws IOException {
+      nextRecord();
+      generator.writeStartObject();
+      return generator;
+    }
+
+    private void endRecord() throws IOException {
+      generator.writeEndObject();
+      generator.writeRaw('\n');
+    }
+
+    @Override
+    protected void onChunkOpened() throws IOException {
+      generator = JSON_FACTORY.createGenerator(writer);
+      generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+      // records are separated by new lines instead of the default space
+      generator.setRootValueSeparator(null);
+    }
+
+    @Override
+    protected void onChunkClosing() throws IOException {
+      generator.close();
+    }
+  }
+}
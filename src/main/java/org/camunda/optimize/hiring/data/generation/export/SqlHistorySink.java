@@ -0,0 +1,218 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.camunda.optimize.hiring.data.generation.export;
+
+import org.camunda.optimize.hiring.data.generation.HiringProcessModel.Activity;
+import org.camunda.optimize.hiring.data.generation.dto.VariableValue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Writes the history as multi-row insert statements into the engine history tables, one file series per
+ * table. The files can be loaded into the database of an engine the hiring process is deployed to.
+ */
+public class SqlHistorySink implements HistorySink {
+
+  private static final int ACTIVITY_STATE_DEFAULT = 0;
+  private static final int ACTIVITY_STATE_SCOPE_COMPLETE = 1;
+  private static final int ACTIVITY_STATE_CANCELED = 2;
+
+  private final String processDefinitionKey;
+  private final String processDefinitionId;
+  private final TimestampFormat timestampFormat = new TimestampFormat(false);
+
+  private final SqlFile processInstances;
+  private final SqlFile activityInstances;
+  private final SqlFile taskInstances;
+  private final SqlFile variableInstances;
+
+  public SqlHistorySink(Path directory, long recordsPerChunk, int rowsPerStatement, String processDefinitionKey,
+                        String processDefinitionId) {
+    this.processDefinitionKey = processDefinitionKey;
+    this.processDefinitionId = processDefinitionId;
+    processInstances = new SqlFile(
+      directory, "ACT_HI_PROCINST", recordsPerChunk, rowsPerStatement,
+      "ID_, PROC_INST_ID_, BUSINESS_KEY_, PROC_DEF_KEY_, PROC_DEF_ID_, START_TIME_, END_TIME_, DURATION_, " +
+        "START_ACT_ID_, END_ACT_ID_, STATE_"
+    );
+    activityInstances = new SqlFile(
+      directory, "ACT_HI_ACTINST", recordsPerChunk, rowsPerStatement,
+      "ID_, PARENT_ACT_INST_ID_, PROC_DEF_KEY_, PROC_DEF_ID_, PROC_INST_ID_, EXECUTION_ID_, ACT_ID_, TASK_ID_, " +
+        "ACT_TYPE_, ASSIGNEE_, START_TIME_, END_TIME_, DURATION_, ACT_INST_STATE_, SEQUENCE_COUNTER_"
+    );
+    taskInstances = new SqlFile(
+      directory, "ACT_HI_TASKINST", recordsPerChunk, rowsPerStatement,
+      "ID_, TASK_DEF_KEY_, PROC_DEF_KEY_, PROC_DEF_ID_, PROC_INST_ID_, EXECUTION_ID_, ACT_INST_ID_, ASSIGNEE_, " +
+        "START_TIME_, END_TIME_, DURATION_, DELETE_REASON_, PRIORITY_"
+    );
+    variableInstances = new SqlFile(
+      directory, "ACT_HI_VARINST", recordsPerChunk, rowsPerStatement,
+      "ID_, PROC_DEF_KEY_, PROC_DEF_ID_, PROC_INST_ID_, EXECUTION_ID_, ACT_INST_ID_, NAME_, VAR_TYPE_, REV_, " +
+        "LONG_, TEXT_"
+    );
+  }
+
+  @Override
+  public void processInstance(String id, String businessKey, long startTime, long endTime, String startActivityId,
+                              String endActivityId, String state) throws IOException {
+    SqlFile row = processInstances.startRow();
+    row.string(id).string(id).string(businessKey);
+    processDefinition(row);
+    times(row, startTime, endTime);
+    row.string(startActivityId).string(endActivityId).string(state);
+    row.endRow();
+  }
+
+  @Override
+  public void activityInstance(String id, String parentActivityInstanceId, String processInstanceId,
+                               Activity activity, String taskId, String assignee, long startTime, long endTime,
+                               boolean canceled, int sequenceCounter) throws IOException {
+    int state = canceled ? ACTIVITY_STATE_CANCELED :
+      "noneEndEvent".equals(activity.getType()) ? ACTIVITY_STATE_SCOPE_COMPLETE : ACTIVITY_STATE_DEFAULT;
+    SqlFile row = activityInstances.startRow();
+    row.string(id).string(parentActivityInstanceId);
+    processDefinition(row);
+    row.string(processInstanceId).string(processInstanceId).string(activity.getId()).string(taskId)
+      .string(activity.getType()).string(assignee);
+    times(row, startTime, endTime);
+    row.number(state).number(sequenceCounter);
+    row.endRow();
+  }
+
+  @Override
+  public void taskInstance(String id, String processInstanceId, String activityInstanceId, Activity activity,
+                           String assignee, long startTime, long endTime, String deleteReason) throws IOException {
+    SqlFile row = taskInstances.startRow();
+    row.string(id).string(activity.getId());
+    processDefinition(row);
+    row.string(processInstanceId).string(processInstanceId).string(activityInstanceId).string(assignee);
+    times(row, startTime, endTime);
+    row.string(deleteReason).number(50);
+    row.endRow();
+  }
+
+  @Override
+  public void variableInstance(String id, String processInstanceId, String name, VariableValue value)
+    throws IOException {
+    SqlFile row = variableInstances.startRow();
+    row.string(id);
+    processDefinition(row);
+    row.string(processInstanceId).string(processInstanceId).string(processInstanceId).string(name);
+    Object rawValue = value.getValue();
+    if (rawValue instanceof Boolean) {
+      row.string("boolean").number(0).number((Boolean) rawValue ? 1 : 0).string(null);
+    } else if (rawValue instanceof Long) {
+      row.string("long").number(0).number((Long) rawValue).string(null);
+    } else {
+      row.string("string").number(0).string(null).string(String.valueOf(rawValue));
+    }
+    row.endRow();
+  }
+
+  private void processDefinition(SqlFile row) throws IOException {
+    row.string(processDefinitionKey).string(processDefinitionId);
+  }
+
+  private void times(SqlFile row, long startTime, long endTime) throws IOException {
+    row.timestamp(startTime);
+    if (endTime == OPEN) {
+      row.string(null).string(null);
+    } else {
+      row.timestamp(endTime).number(endTime - startTime);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    processInstances.close();
+    activityInstances.close();
+    taskInstances.close();
+    variableInstances.close();
+  }
+
+  private class SqlFile extends ChunkedFile {
+
+    private final String insertStatement;
+    private final int rowsPerStatement;
+    private int rowsInStatement = 0;
+    private boolean firstValue;
+
+    private SqlFile(Path directory, String table, long recordsPerChunk, int rowsPerStatement, String columns) {
+      super(directory, table, "sql", recordsPerChunk);
+      this.insertStatement = "insert into " + table + " (" + columns + ") values\n";
+      this.rowsPerStatement = rowsPerStatement;
+    }
+
+    private SqlFile startRow() throws IOException {
+      nextRecord();
+      writer.write(rowsInStatement == 0 ? insertStatement : ",\n");
+      writer.write('(');
+      rowsInStatement++;
+      firstValue = true;
+      return this;
+    }
+
+    private void endRow() throws IOException {
+      writer.write(')');
+      if (rowsInStatement >= rowsPerStatement) {
+        endStatement();
+      }
+    }
+
+    private SqlFile string(String value) throws IOException {
+      separate();
+      if (value == null) {
+        writer.write("null");
+      } else {
+        writer.write('\'');
+        writer.write(value.indexOf('\'') < 0 ? value : value.replace("'", "''"));
+        writer.write('\'');
+      }
+      return this;
+    }
+
+    private SqlFile number(long value) throws IOException {
+      separate();
+      writer.write(Long.toString(value));
+      return this;
+    }
+
+    private SqlFile timestamp(long millis) throws IOException {
+      separate();
+      writer.write('\'');
+      writer.write(timestampFormat.format(millis), 0, timestampFormat.length());
+      writer.write('\'');
+      return this;
+    }
+
+    private void separate() throws IOException {
+      if (!firstValue) {
+        writer.write(", ");
+      }
+      firstValue = false;
+    }
+
+    private void endStatement() throws IOException {
+      writer.write(";\n");
+      rowsInStatement = 0;
+    }
+
+    @Override
+    protected void onChunkClosing() throws IOException {
+      if (rowsInStatement > 0) {
+        endStatement();
+      }
+    }
+  }
+}
@@ -0,0 +1,67 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.camunda.optimize.hiring.data.generation.export;
+
+import java.time.LocalDate;
+
+/**
+ * Formats epoch millis as UTC timestamps of fixed length into a reused buffer. The date part is cached, since
+ * consecutive timestamps of an export mostly fall on the same day.
+ */
+class TimestampFormat {
+
+  private static final long MILLIS_PER_DAY = 24 * 60 * 60 * 1000L;
+
+  private final char[] buffer;
+  private long cachedDay = Long.MIN_VALUE;
+
+  /**
+   * @param iso true for the engine REST format {@code yyyy-MM-dd'T'HH:mm:ss.SSS+0000}, false for the SQL
+   *            format {@code yyyy-MM-dd HH:mm:ss.SSS}
+   */
+  TimestampFormat(boolean iso) {
+    this.buffer = iso ? "0000-00-00T00:00:00.000+0000".toCharArray() : "0000-00-00 00:00:00.000".toCharArray();
+  }
+
+  int length() {
+    return buffer.length;
+  }
+
+  /**
+   * @return the buffer holding the formatted timestamp, only valid until the next call
+   */
+  char[] format(long millis) {
+    long day = Math.floorDiv(millis, MILLIS_PER_DAY);
+    if (day != cachedDay) {
+      String date = LocalDate.ofEpochDay(day).toString();
+      if (date.length() != 10) {
+        throw new IllegalArgumentException("Cannot format timestamp " + millis);
+      }
+      date.getChars(0, 10, buffer, 0);
+      cachedDay = day;
+    }
+    int millisOfDay = (int) Math.floorMod(millis, MILLIS_PER_DAY);
+    writeDigits(millisOfDay / 3_600_000, 11, 2);
+    writeDigits(millisOfDay / 60_000 % 60, 14, 2);
+    writeDigits(millisOfDay / 1000 % 60, 17, 2);
+    writeDigits(millisOfDay % 1000, 20, 3);
+    return buffer;
+  }
+
+  private void writeDigits(int value, int offset, int digits) {
+    for (int i = offset + digits - 1; i >= offset; i--) {
+      buffer[i] = (char) ('0' + value % 10);
+      value /= 10;
+    }
+  }
+}
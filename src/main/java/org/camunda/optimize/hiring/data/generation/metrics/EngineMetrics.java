@@ -0,0 +1,297 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.camunda.optimize.hiring.data.generation.metrics;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.EncodableHistogram;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogReader;
+import org.HdrHistogram.HistogramLogWriter;
+import org.HdrHistogram.Recorder;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/**
+ * Latency and outcome of the engine calls of a run, per endpoint. Latencies are recorded in microseconds into
+ * HdrHistogram recorders, which take values from many threads without locking; whoever reports swaps out the
+ * interval histogram and adds it to the total of the run.
+ * <p>
+ * Next to the summary the full latency histograms are written to an HdrHistogram log, so the summaries of the
+ * shards of a run can be merged into one with exact percentiles.
+ */
+public class EngineMetrics {
+
+  public static final String MESSAGE_PREFIX = "message:";
+  public static final String TASK_QUERY = "task-query";
+  public static final String INSTANCE_TASK_QUERY = "instance-task-query";
+  public static final String CLAIM = "claim";
+  public static final String COMPLETE = "complete";
+  /**
+   * Prefix of the latencies of a load run measured from the time a call was due instead of the time it was sent.
+   * They are no calls of their own and do not add to the call counts.
+   */
+  public static final String INTENDED_PREFIX = "intended:";
+
+  private static final String HISTOGRAM_LOG = "latencies.hlog";
+  private static final String[] CSV_COLUMNS = {
+    "endpoint", "count", "successes", "failures", "errors", "retries", "bytesSent", "requestsPerSecond",
+    "minMs", "meanMs", "p50Ms", "p90Ms", "p99Ms", "p999Ms", "maxMs"
+  };
+
+  public static final class Endpoint {
+    private final String name;
+    private final Recorder recorder = new Recorder(3);
+    private final Histogram total = new Histogram(3);
+    private final LongAdder successes = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder bytesSent = new LongAdder();
+    private Histogram interval;
+
+    private Endpoint(String name) {
+      this.name = name;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    /**
+     * @param success false if the engine answered, but not with the expected status
+     */
+    public void record(long startNanos, boolean success) {
+      recordLatency(startNanos);
+      (success ? successes : failures).increment();
+    }
+
+    /**
+     * Records a call that did not get an answer at all, e.g. because of a timeout.
+     */
+    public void recordError(long startNanos) {
+      recordLatency(startNanos);
+      errors.increment();
+    }
+
+    /**
+     * Records that a request was sent again, which is part of the same call and not counted as one.
+     */
+    public void recordRetry() {
+      retries.increment();
+    }
+
+    public void recordBytesSent(long bytes) {
+      bytesSent.add(bytes);
+    }
+
+    private void recordLatency(long startNanos) {
+      recorder.recordValue(Math.max(0, (System.nanoTime() - startNanos) / 1000));
+    }
+
+    private Histogram nextInterval() {
+      interval = recorder.getIntervalHistogram(interval);
+      total.add(interval);
+      return interval;
+    }
+
+    public long getCount() {
+      return successes.sum() + failures.sum() + errors.sum();
+    }
+  }
+
+  private final ConcurrentMap<String, Endpoint> endpoints = new ConcurrentSkipListMap<>();
+  private final long startNanos = System.nanoTime();
+  private long lastIntervalNanos = startNanos;
+  private long lastIntervalCount = 0;
+  private volatile IntSupplier concurrencyLimit;
+
+  public Endpoint endpoint(String name) {
+    Endpoint endpoint = endpoints.get(name);
+    return endpoint != null ? endpoint : endpoints.computeIfAbsent(name, Endpoint::new);
+  }
+
+  public Endpoint message(String messageName) {
+    return endpoint(MESSAGE_PREFIX + messageName);
+  }
+
+  /**
+   * Shows the current limit of the requests in flight in the progress line. The limits of several engines add up.
+   */
+  public synchronized void setConcurrencyLimit(IntSupplier concurrencyLimit) {
+    IntSupplier previous = this.concurrencyLimit;
+    this.concurrencyLimit = previous == null
+      ? concurrencyLimit
+      : () -> previous.getAsInt() + concurrencyLimit.getAsInt();
+  }
+
+  /**
+   * Summarizes the calls since the last progress line: overall rate, and count and latency of every endpoint
+   * that was called in the interval.
+   */
+  public synchronized String progressLine() {
+    long now = System.nanoTime();
+    double intervalSeconds = Math.max(now - lastIntervalNanos, 1) / 1_000_000_000.0;
+    long count = 0;
+    long errors = 0;
+    long retries = 0;
+    StringBuilder line = new StringBuilder();
+    for (Endpoint endpoint : endpoints.values()) {
+      Histogram interval = endpoint.nextInterval();
+      if (!endpoint.name.startsWith(INTENDED_PREFIX)) {
+        count += endpoint.getCount();
+        errors += endpoint.failures.sum() + endpoint.errors.sum();
+        retries += endpoint.retries.sum();
+      }
+      if (interval.getTotalCount() > 0) {
+        line.append(String.format(
+          ", %s %d (p50 %.1f ms, p99 %.1f ms)", endpoint.name, interval.getTotalCount(),
+          millis(interval.getValueAtPercentile(50)), millis(interval.getValueAtPercentile(99))
+        ));
+      }
+    }
+    double rate = (count - lastIntervalCount) / intervalSeconds;
+    lastIntervalNanos = now;
+    lastIntervalCount = count;
+    IntSupplier limit = concurrencyLimit;
+    return String.format(
+      "Progress after %.0f s: %d engine calls (%.1f calls/s), %d failed, %d retried%s%s",
+      (now - startNanos) / 1_000_000_000.0, count, rate, errors, retries,
+      limit != null ? ", concurrency limit " + limit.getAsInt() : "", line
+    );
+  }
+
+  /**
+   * Writes the totals of the run to {@code summary.json} and {@code summary.csv} in the given directory.
+   */
+  public synchronized void writeSummary(Path directory) throws IOException {
+    for (Endpoint endpoint : endpoints.values()) {
+      endpoint.nextInterval();
+    }
+    writeSummary(directory, Math.max(System.nanoTime() - startNanos, 1) / 1_000_000_000.0);
+  }
+
+  /**
+   * Adds up the summaries the shards of a run wrote to the given directories and writes the summary of the whole
+   * run to the output directory. The shards ran side by side, so the run took as long as the longest shard.
+   */
+  public static void mergeSummaries(List<Path> directories, Path output) throws IOException {
+    EngineMetrics merged = new EngineMetrics();
+    double seconds = 0;
+    ObjectMapper objectMapper = new ObjectMapper();
+    for (Path directory : directories) {
+      JsonNode summary = objectMapper.readTree(directory.resolve("summary.json").toFile());
+      seconds = Math.max(seconds, summary.path("durationSeconds").asDouble());
+      for (JsonNode row : summary.path("endpoints")) {
+        Endpoint endpoint = merged.endpoint(row.path("endpoint").asText());
+        endpoint.successes.add(row.path("successes").asLong());
+        endpoint.failures.add(row.path("failures").asLong());
+        endpoint.errors.add(row.path("errors").asLong());
+        endpoint.retries.add(row.path("retries").asLong());
+        endpoint.bytesSent.add(row.path("bytesSent").asLong());
+      }
+      HistogramLogReader log = new HistogramLogReader(directory.resolve(HISTOGRAM_LOG).toFile());
+      EncodableHistogram histogram;
+      while ((histogram = log.nextIntervalHistogram()) != null) {
+        merged.endpoint(histogram.getTag()).total.add((Histogram) histogram);
+      }
+    }
+    merged.writeSummary(output, seconds);
+  }
+
+  private void writeSummary(Path directory, double seconds) throws IOException {
+    Files.createDirectories(directory);
+
+    List<Object[]> rows = new ArrayList<>();
+    for (Endpoint endpoint : endpoints.values()) {
+      Histogram total = endpoint.total;
+      rows.add(new Object[]{
+        endpoint.name, endpoint.getCount(), endpoint.successes.sum(), endpoint.failures.sum(),
+        endpoint.errors.sum(), endpoint.retries.sum(), endpoint.bytesSent.sum(), endpoint.getCount() / seconds,
+        millis(total.getMinValue()), total.getMean() / 1000, millis(total.getValueAtPercentile(50)),
+        millis(total.getValueAtPercentile(90)), millis(total.getValueAtPercentile(99)),
+        millis(total.getValueAtPercentile(99.9)), millis(total.getMaxValue())
+      });
+    }
+
+    try (JsonGenerator json = new JsonFactory().createGenerator(
+      directory.resolve("summary.json").toFile(), JsonEncoding.UTF8)) {
+      json.useDefaultPrettyPrinter();
+      json.writeStartObject();
+      json.writeNumberField("durationSeconds", seconds);
+      json.writeArrayFieldStart("endpoints");
+      for (Object[] row : rows) {
+        json.writeStartObject();
+        for (int i = 0; i < CSV_COLUMNS.length; i++) {
+          json.writeFieldName(CSV_COLUMNS[i]);
+          if (row[i] instanceof String) {
+            json.writeString((String) row[i]);
+          } else if (row[i] instanceof Long) {
+            json.writeNumber((Long) row[i]);
+          } else {
+            json.writeNumber((Double) row[i]);
+          }
+        }
+        json.writeEndObject();
+      }
+      json.writeEndArray();
+      json.writeEndObject();
+    }
+
+    try (BufferedWriter csv = Files.newBufferedWriter(directory.resolve("summary.csv"), StandardCharsets.UTF_8)) {
+      csv.write(String.join(",", CSV_COLUMNS));
+      csv.newLine();
+      for (Object[] row : rows) {
+        for (int i = 0; i < row.length; i++) {
+          if (i > 0) {
+            csv.write(',');
+          }
+          Object value = row[i];
+          csv.write(value instanceof Double ? String.format(Locale.ROOT, "%.3f", value) : String.valueOf(value));
+        }
+        csv.newLine();
+      }
+    }
+
+    try (PrintStream hlog = new PrintStream(directory.resolve(HISTOGRAM_LOG).toFile(), "UTF-8")) {
+      HistogramLogWriter log = new HistogramLogWriter(hlog);
+      log.outputLogFormatVersion();
+      log.outputLegend();
+      for (Endpoint endpoint : endpoints.values()) {
+        Histogram total = endpoint.total.copy();
+        total.setTag(endpoint.name);
+        log.outputIntervalHistogram(total);
+      }
+    }
+  }
+
+  private static double millis(long micros) {
+    return micros / (double) TimeUnit.MILLISECONDS.toMicros(1);
+  }
+}
@@ -0,0 +1,213 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.camunda.optimize.hiring.data.generation.metrics;
+
+import org.camunda.optimize.hiring.data.generation.CompletionProtocol;
+import org.camunda.optimize.hiring.data.generation.EngineClient;
+import org.camunda.optimize.hiring.data.generation.TaskIdParser;
+import org.camunda.optimize.hiring.data.generation.dto.MessageCorrelationDto;
+import org.camunda.optimize.hiring.data.generation.dto.TaskDto;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Measures every call to the wrapped engine client in {@link EngineMetrics}: a call that returns true counts
+ * as success, one that returns false as failure and one that throws as error. Async calls are measured until
+ * their future completes.
+ */
+public class InstrumentedEngineClient implements EngineClient {
+
+  private final EngineClient delegate;
+  private final EngineMetrics metrics;
+  private final EngineMetrics.Endpoint taskQuery;
+  private final EngineMetrics.Endpoint instanceTaskQuery;
+  private final EngineMetrics.Endpoint claim;
+  private final EngineMetrics.Endpoint complete;
+
+  public InstrumentedEngineClient(EngineClient delegate, EngineMetrics metrics) {
+    this.delegate = delegate;
+    this.metrics = metrics;
+    this.taskQuery = metrics.endpoint(EngineMetrics.TASK_QUERY);
+    this.instanceTaskQuery = metrics.endpoint(EngineMetrics.INSTANCE_TASK_QUERY);
+    this.claim = metrics.endpoint(EngineMetrics.CLAIM);
+    this.complete = metrics.endpoint(EngineMetrics.COMPLETE);
+  }
+
+  @Override
+  public boolean correlateMessage(MessageCorrelationDto message) throws IOException {
+    EngineMetrics.Endpoint endpoint = metrics.message(message.getMessageName());
+    long start = System.nanoTime();
+    try {
+      boolean correlated = delegate.correlateMessage(message);
+      endpoint.record(start, correlated);
+      return correlated;
+    } catch (IOException | RuntimeException e) {
+      endpoint.recordError(start);
+      throw e;
+    }
+  }
+
+  @Override
+  public boolean correlateMessage(String messageName, ByteBuffer body) throws IOException {
+    EngineMetrics.Endpoint endpoint = metrics.message(messageName);
+    long start = System.nanoTime();
+    try {
+      boolean correlated = delegate.correlateMessage(messageName, body);
+      endpoint.record(start, correlated);
+      return correlated;
+    } catch (IOException | RuntimeException e) {
+      endpoint.recordError(start);
+      throw e;
+    }
+  }
+
+  @Override
+  public List<TaskDto> getTasks(String taskDefinitionKey, String businessKeyLike, int firstResult, int maxResults)
+    throws IOException {
+    long start = System.nanoTime();
+    try {
+      List<TaskDto> tasks = delegate.getTasks(taskDefinitionKey, businessKeyLike, firstResult, maxResults);
+      taskQuery.record(start, true);
+      return tasks;
+    } catch (IOException | RuntimeException e) {
+      taskQuery.recordError(start);
+      throw e;
+    }
+  }
+
+  @Override
+  public int forEachTaskId(String taskDefinitionKey, String businessKeyLike, int firstResult, int maxResults,
+                           TaskIdParser.TaskIdConsumer consumer) throws IOException {
+    // the call includes the time the consumer takes, since the page is read while its tasks are handed out
+    long start = System.nanoTime();
+    try {
+      int count = delegate.forEachTaskId(taskDefinitionKey, businessKeyLike, firstResult, maxResults, consumer);
+      taskQuery.record(start, true);
+      return count;
+    } catch (IOException | RuntimeException e) {
+      taskQuery.recordError(start);
+      throw e;
+    }
+  }
+
+  @Override
+  public List<TaskDto> getTasksOfInstance(String businessKey) throws IOException {
+    long start = System.nanoTime();
+    try {
+      List<TaskDto> tasks = delegate.getTasksOfInstance(businessKey);
+      instanceTaskQuery.record(start, true);
+      return tasks;
+    } catch (IOException | RuntimeException e) {
+      instanceTaskQuery.recordError(start);
+      throw e;
+    }
+  }
+
+  @Override
+  public boolean claimTask(String taskId, String userId) throws IOException {
+    long start = System.nanoTime();
+    try {
+      boolean claimed = delegate.claimTask(taskId, userId);
+      claim.record(start, claimed);
+      return claimed;
+    } catch (IOException | RuntimeException e) {
+      claim.recordError(start);
+      throw e;
+    }
+  }
+
+  @Override
+  public boolean completeTask(String taskId) throws IOException {
+    long start = System.nanoTime();
+    try {
+      boolean completed = delegate.completeTask(taskId);
+      complete.record(start, completed);
+      return completed;
+    } catch (IOException | RuntimeException e) {
+      complete.recordError(start);
+      throw e;
+    }
+  }
+
+  @Override
+  public CompletableFuture<Boolean> correlateMessageAsync(MessageCorrelationDto message) {
+    EngineMetrics.Endpoint endpoint = metrics.message(message.getMessageName());
+    long start = System.nanoTime();
+    return measure(endpoint, delegate.correlateMessageAsync(message), start);
+  }
+
+  @Override
+  public CompletableFuture<Boolean> correlateMessageAsync(String messageName, ByteBuffer body) {
+    EngineMetrics.Endpoint endpoint = metrics.message(messageName);
+    long start = System.nanoTime();
+    return measure(endpoint, delegate.correlateMessageAsync(messageName, body), start);
+  }
+
+  @Override
+  public CompletableFuture<List<TaskDto>> getTasksOfInstanceAsync(String businessKey) {
+    long start = System.nanoTime();
+    return delegate.getTasksOfInstanceAsync(businessKey).whenComplete((tasks, failure) -> {
+      if (failure == null) {
+        instanceTaskQuery.record(start, true);
+      } else {
+        instanceTaskQuery.recordError(start);
+      }
+    });
+  }
+
+  @Override
+  public CompletableFuture<Boolean> claimTaskAsync(String taskId, String userId) {
+    long start = System.nanoTime();
+    return measure(claim, delegate.claimTaskAsync(taskId, userId), start);
+  }
+
+  @Override
+  public CompletableFuture<Boolean> completeTaskAsync(String taskId) {
+    long start = System.nanoTime();
+    return measure(complete, delegate.completeTaskAsync(taskId), start);
+  }
+
+  /**
+   * A pipelining client measures the calls of the pipeline itself, since they are not made through this client.
+   */
+  @Override
+  public List<CompletableFuture<Boolean>> finishTasksAsync(List<String> taskIds, CompletionProtocol protocol) {
+    return delegate.isPipelining()
+      ? delegate.finishTasksAsync(taskIds, protocol)
+      : EngineClient.super.finishTasksAsync(taskIds, protocol);
+  }
+
+  @Override
+  public boolean isPipelining() {
+    return delegate.isPipelining();
+  }
+
+  private static CompletableFuture<Boolean> measure(EngineMetrics.Endpoint endpoint, CompletableFuture<Boolean> call,
+                                                    long start) {
+    return call.whenComplete((success, failure) -> {
+      if (failure == null) {
+        endpoint.record(start, success);
+      } else {
+        endpoint.recordError(start);
+      }
+    });
+  }
+
+  @Override
+  public void close() throws IOException {
+    delegate.close();
+  }
+}
@@ -0,0 +1,41 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.camunda.optimize.hiring.data.generation.metrics;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Merges the engine call metrics of the shards of a run, e.g.
+ * {@code MetricsMerge metrics metrics-shard-1 metrics-shard-2} writes the summary of both shards to {@code metrics}.
+ */
+public class MetricsMerge {
+
+  public static void main(String[] args) throws IOException {
+    if (args.length < 2) {
+      System.out.println("Usage: MetricsMerge <output directory> <shard metrics directory>...");
+      System.exit(1);
+    }
+    List<Path> directories = new ArrayList<>();
+    for (int i = 1; i < args.length; i++) {
+      directories.add(Paths.get(args[i]));
+    }
+    Path output = Paths.get(args[0]);
+    EngineMetrics.mergeSummaries(directories, output);
+    System.out.println("Wrote the merged engine call metrics of " + directories.size() + " shards to " +
+                         output.toAbsolutePath());
+  }
+}
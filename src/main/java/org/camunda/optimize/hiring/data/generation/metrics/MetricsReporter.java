@@ -0,0 +1,54 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.camunda.optimize.hiring.data.generation.metrics;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prints a progress line of the {@link EngineMetrics} in a fixed interval while the run is going on, and writes
+ * the summary of the run when it is closed.
+ */
+public class MetricsReporter implements Closeable {
+
+  private final EngineMetrics metrics;
+  private final Path summaryDirectory;
+  private final ScheduledExecutorService scheduler;
+
+  public MetricsReporter(EngineMetrics metrics, long intervalSeconds, Path summaryDirectory) {
+    this.metrics = metrics;
+    this.summaryDirectory = summaryDirectory;
+    this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "metrics-reporter");
+      thread.setDaemon(true);
+      return thread;
+    });
+    if (intervalSeconds > 0) {
+      scheduler.scheduleAtFixedRate(
+        () -> System.out.println(metrics.progressLine()), intervalSeconds, intervalSeconds, TimeUnit.SECONDS
+      );
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    scheduler.shutdownNow();
+    System.out.println(metrics.progressLine());
+    metrics.writeSummary(summaryDirectory);
+    System.out.println("Wrote engine call metrics to " + summaryDirectory.toAbsolutePath());
+  }
+}
@@ -0,0 +1,87 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.camunda.optimize.hiring.data.generation.stub;
+
+import org.camunda.optimize.hiring.data.generation.RandomStreams;
+
+import java.util.SplittableRandom;
+
+/**
+ * How long the stub engine takes to answer a request, in milliseconds. Parsed from a spec like
+ * {@code none}, {@code fixed:5}, {@code uniform:2-20}, {@code exponential:5} or {@code normal:10,3}.
+ */
+public abstract class LatencyDistribution {
+
+  public static final LatencyDistribution NONE = new LatencyDistribution() {
+    @Override
+    public long sample(SplittableRandom random) {
+      return 0;
+    }
+  };
+
+  /**
+   * @return the latency of the next request in milliseconds, never negative
+   */
+  public abstract long sample(SplittableRandom random);
+
+  public static LatencyDistribution parse(String spec) {
+    String trimmed = spec.trim();
+    if (trimmed.isEmpty() || "none".equals(trimmed)) {
+      return NONE;
+    }
+    int separator = trimmed.indexOf(':');
+    if (separator < 0) {
+      throw new IllegalArgumentException("Unknown latency " + spec + ", expected e.g. fixed:5 or uniform:2-20");
+    }
+    String type = trimmed.substring(0, separator);
+    String[] values = trimmed.substring(separator + 1).split("[-,]");
+    switch (type) {
+      case "fixed":
+        long fixed = Long.parseLong(values[0].trim());
+        return new LatencyDistribution() {
+          @Override
+          public long sample(SplittableRandom random) {
+            return fixed;
+          }
+        };
+      case "uniform":
+        long min = Long.parseLong(values[0].trim());
+        long max = Long.parseLong(values[values.length - 1].trim());
+        return new LatencyDistribution() {
+          @Override
+          public long sample(SplittableRandom random) {
+            return min + (long) (random.nextDouble() * (max - min + 1));
+          }
+        };
+      case "exponential":
+        double mean = Double.parseDouble(values[0].trim());
+        return new LatencyDistribution() {
+          @Override
+          public long sample(SplittableRandom random) {
+            return Math.round(-mean * Math.log(1 - random.nextDouble()));
+          }
+        };
+      case "normal":
+        double normalMean = Double.parseDouble(values[0].trim());
+        double deviation = values.length > 1 ? Double.parseDouble(values[1].trim()) : 0;
+        return new LatencyDistribution() {
+          @Override
+          public long sample(SplittableRandom random) {
+            return Math.max(0, Math.round(normalMean + RandomStreams.nextGaussian(random) * deviation));
+          }
+        };
+      default:
+        throw new IllegalArgumentException("Unknown latency distribution " + type);
+    }
+  }
+}
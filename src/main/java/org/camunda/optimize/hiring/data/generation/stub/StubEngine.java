@@ -0,0 +1,326 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.camunda.optimize.hiring.data.generation.stub;
+
+import org.camunda.optimize.hiring.data.generation.HiringProcessModel;
+import org.camunda.optimize.hiring.data.generation.HiringProcessModel.Activity;
+import org.camunda.optimize.hiring.data.generation.dto.VariableValue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import static org.camunda.optimize.hiring.data.generation.HiringProcess.CANDIDATE_APPLICATION;
+import static org.camunda.optimize.hiring.data.generation.HiringProcess.CANDIDATE_CANCELLED;
+import static org.camunda.optimize.hiring.data.generation.HiringProcess.CANDIDATE_REPLIED_MESSAGE;
+
+/**
+ * The hiring process instances and user tasks of the stub engine, kept in memory. Instances follow the route
+ * {@link HiringProcessModel} computes for their variables: they wait in every user task until it is completed
+ * and in the candidate replied receive task until the message arrives. A cancellation message ends the running
+ * instances like the interrupting event sub process does. Messages with a business key only reach the instance
+ * started with that key.
+ * <p>
+ * All operations are synchronized; the stub is meant to be fast enough, not to scale.
+ */
+public class StubEngine {
+
+  public static final String PROCESS_DEFINITION_ID = "HiringProcess:1:1";
+
+  public enum Result {
+    OK, NOT_FOUND, CONFLICT, NO_MATCH, UNKNOWN_MESSAGE
+  }
+
+  public static final class Task {
+    private final String id;
+    private final Instance instance;
+    private final Activity activity;
+    private final long created;
+    private String assignee;
+
+    private Task(String id, Instance instance, Activity activity) {
+      this.id = id;
+      this.instance = instance;
+      this.activity = activity;
+      this.created = System.currentTimeMillis();
+    }
+
+    public String getId() {
+      return id;
+    }
+
+    public String getTaskDefinitionKey() {
+      return activity.getId();
+    }
+
+    public String getProcessInstanceId() {
+      return instance.id;
+    }
+
+    public long getCreated() {
+      return created;
+    }
+
+    public String getAssignee() {
+      return assignee;
+    }
+  }
+
+  private static final class Instance {
+    private final String id;
+    private final String businessKey;
+    private final List<Activity> stages;
+    private int position = -1;
+    private Task openTask;
+
+    private Instance(String id, String businessKey, List<Activity> stages) {
+      this.id = id;
+      this.businessKey = businessKey;
+      this.stages = stages;
+    }
+  }
+
+  // ids are compared as strings like the engine sorts them, so tasks are fetched in the same order
+  private final NavigableMap<String, Task> tasks = new TreeMap<>();
+  private final Map<String, NavigableMap<String, Task>> tasksByKey = new HashMap<>();
+  private final Map<String, Instance> runningInstances = new HashMap<>();
+  private final Map<String, Instance> runningInstancesByBusinessKey = new HashMap<>();
+  private final Map<String, Instance> waitingForReply = new LinkedHashMap<>();
+  private long nextId = 1;
+
+  private long startedInstances = 0;
+  private long completedInstances = 0;
+  private long cancelledInstances = 0;
+  private long completedTasks = 0;
+
+  /**
+   * @param businessKey key of the instance to correlate to, or of the instance to start, or null
+   */
+  public synchronized Result correlate(String messageName, String businessKey, boolean all,
+                                       Map<String, VariableValue> variables) {
+    switch (messageName) {
+      case CANDIDATE_APPLICATION:
+        startInstance(businessKey, variables);
+        return Result.OK;
+      case CANDIDATE_REPLIED_MESSAGE:
+        return businessKey != null ? correlateReply(businessKey) : correlateReply(all);
+      case CANDIDATE_CANCELLED:
+        return businessKey != null ? cancel(businessKey) : cancel(all);
+      default:
+        return Result.UNKNOWN_MESSAGE;
+    }
+  }
+
+  /**
+   * @param businessKeyLike business key the instances of the tasks have, a trailing {@code %} matches any rest, or
+   *                        null for all instances
+   * @return the page of open tasks, optionally only of the given task definition, ordered by id
+   */
+  public synchronized List<Task> getTasks(String taskDefinitionKey, String businessKeyLike, int firstResult,
+                                          int maxResults) {
+    NavigableMap<String, Task> candidates =
+      taskDefinitionKey == null ? tasks : tasksByKey.getOrDefault(taskDefinitionKey, Collections.emptyNavigableMap());
+    List<Task> page = new ArrayList<>(Math.min(maxResults, candidates.size()));
+    int index = 0;
+    for (Task task : candidates.values()) {
+      if (page.size() >= maxResults) {
+        break;
+      }
+      if (businessKeyLike != null && !matches(task.instance.businessKey, businessKeyLike)) {
+        continue;
+      }
+      if (index++ >= firstResult) {
+        page.add(task);
+      }
+    }
+    return page;
+  }
+
+  private static boolean matches(String businessKey, String like) {
+    if (businessKey == null) {
+      return false;
+    }
+    return like.endsWith("%")
+      ? businessKey.startsWith(like.substring(0, like.length() - 1))
+      : businessKey.equals(like);
+  }
+
+  /**
+   * @return the open task of the running instance with the given business key, if it waits in one
+   */
+  public synchronized List<Task> getTasksOfInstance(String businessKey) {
+    Instance instance = runningInstancesByBusinessKey.get(businessKey);
+    return instance != null && instance.openTask != null
+      ? Collections.singletonList(instance.openTask)
+      : Collections.emptyList();
+  }
+
+  public synchronized Result claim(String taskId, String userId) {
+    Task task = tasks.get(taskId);
+    if (task == null) {
+      return Result.NOT_FOUND;
+    }
+    if (task.assignee != null && !task.assignee.equals(userId)) {
+      return Result.CONFLICT;
+    }
+    task.assignee = userId;
+    return Result.OK;
+  }
+
+  public synchronized Result complete(String taskId) {
+    Task task = removeTask(taskId);
+    if (task == null) {
+      return Result.NOT_FOUND;
+    }
+    completedTasks++;
+    enterNextStage(task.instance);
+    return Result.OK;
+  }
+
+  public synchronized long getStartedInstances() {
+    return startedInstances;
+  }
+
+  /**
+   * @return the instances that reached their end or were cancelled
+   */
+  public synchronized long getEndedInstances() {
+    return completedInstances + cancelledInstances;
+  }
+
+  public synchronized int getRunningInstances() {
+    return runningInstances.size();
+  }
+
+  public synchronized long getCompletedTasks() {
+    return completedTasks;
+  }
+
+  public synchronized String getStatistics() {
+    return String.format(
+      "%d instances started, %d completed, %d cancelled, %d running with %d open user tasks, %d tasks completed",
+      startedInstances, completedInstances, cancelledInstances, runningInstances.size(), tasks.size(), completedTasks
+    );
+  }
+
+  private void startInstance(String businessKey, Map<String, VariableValue> variables) {
+    List<Activity> stages = new ArrayList<>();
+    for (Activity activity : HiringProcessModel.route(variables)) {
+      if (activity.isStage()) {
+        stages.add(activity);
+      }
+    }
+    Instance instance = new Instance(nextId(), businessKey, stages);
+    runningInstances.put(instance.id, instance);
+    if (businessKey != null) {
+      runningInstancesByBusinessKey.put(businessKey, instance);
+    }
+    startedInstances++;
+    enterNextStage(instance);
+  }
+
+  private void enterNextStage(Instance instance) {
+    instance.position++;
+    if (instance.position >= instance.stages.size()) {
+      removeInstance(instance);
+      completedInstances++;
+      return;
+    }
+    Activity stage = instance.stages.get(instance.position);
+    if (stage.isUserTask()) {
+      Task task = new Task(nextId(), instance, stage);
+      instance.openTask = task;
+      tasks.put(task.id, task);
+      tasksByKey.computeIfAbsent(stage.getId(), key -> new TreeMap<>()).put(task.id, task);
+    } else {
+      waitingForReply.put(instance.id, instance);
+    }
+  }
+
+  private Result correlateReply(boolean all) {
+    if (waitingForReply.isEmpty()) {
+      return all ? Result.OK : Result.NO_MATCH;
+    }
+    List<Instance> matches = new ArrayList<>(all ? waitingForReply.values() : Collections.singletonList(
+      waitingForReply.values().iterator().next()));
+    for (Instance instance : matches) {
+      waitingForReply.remove(instance.id);
+      enterNextStage(instance);
+    }
+    return Result.OK;
+  }
+
+  private Result correlateReply(String businessKey) {
+    Instance instance = runningInstancesByBusinessKey.get(businessKey);
+    if (instance == null || waitingForReply.remove(instance.id) == null) {
+      return Result.NO_MATCH;
+    }
+    enterNextStage(instance);
+    return Result.OK;
+  }
+
+  private Result cancel(boolean all) {
+    if (runningInstances.isEmpty()) {
+      return all ? Result.OK : Result.NO_MATCH;
+    }
+    List<Instance> matches = new ArrayList<>(all ? runningInstances.values() : Collections.singletonList(
+      runningInstances.values().iterator().next()));
+    for (Instance instance : matches) {
+      cancel(instance);
+    }
+    return Result.OK;
+  }
+
+  private Result cancel(String businessKey) {
+    Instance instance = runningInstancesByBusinessKey.get(businessKey);
+    if (instance == null) {
+      return Result.NO_MATCH;
+    }
+    cancel(instance);
+    return Result.OK;
+  }
+
+  private void cancel(Instance instance) {
+    removeInstance(instance);
+    waitingForReply.remove(instance.id);
+    if (instance.openTask != null) {
+      removeTask(instance.openTask.id);
+    }
+    cancelledInstances++;
+  }
+
+  private void removeInstance(Instance instance) {
+    runningInstances.remove(instance.id);
+    if (instance.businessKey != null) {
+      runningInstancesByBusinessKey.remove(instance.businessKey, instance);
+    }
+  }
+
+  private Task removeTask(String taskId) {
+    Task task = tasks.remove(taskId);
+    if (task != null) {
+      tasksByKey.get(task.getTaskDefinitionKey()).remove(taskId);
+      task.instance.openTask = null;
+    }
+    return task;
+  }
+
+  private String nextId() {
+    return Long.toString(nextId++);
+  }
+}
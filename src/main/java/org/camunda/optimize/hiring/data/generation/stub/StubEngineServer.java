@@ -0,0 +1,376 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.camunda.optimize.hiring.data.generation.stub;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.camunda.optimize.hiring.data.generation.GenerationConfig;
+import org.camunda.optimize.hiring.data.generation.dto.VariableValue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Serves the part of the engine REST API the generator uses from a {@link StubEngine}, so the generator can be
+ * run and load tested without a Camunda server:
+ * <ul>
+ * <li>{@code POST /message/}</li>
+ * <li>{@code GET /task/} with {@code taskDefinitionKey}, {@code firstResult} and {@code maxResults}, or with
+ * {@code processInstanceBusinessKey}</li>
+ * <li>{@code POST /task/{id}/claim} and {@code POST /task/{id}/complete}</li>
+ * </ul>
+ * Every request can be slowed down by a latency distribution, rejected with 429 above a rate limit, answered with
+ * a 500 or held until the client times out and then dropped without an answer. The faults are drawn from a seeded
+ * stream in the order the requests arrive.
+ */
+public class StubEngineServer implements Closeable {
+
+  public static final String CONTEXT_PATH = "/engine-rest";
+
+  private static final DateTimeFormatter DATE_FORMAT =
+    DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSZ").withZone(ZoneOffset.UTC);
+
+  private final StubEngine engine = new StubEngine();
+  private final HttpServer server;
+  private final ExecutorService executor;
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final JsonFactory jsonFactory = objectMapper.getFactory();
+
+  private final LatencyDistribution latency;
+  private final double errorRate;
+  private final double timeoutRate;
+  private final long timeoutMs;
+  private final SplittableRandom faultRandom;
+  private final long rateLimit;
+  private double rateTokens;
+  private long rateRefillTime = System.nanoTime();
+
+  private final AtomicLong requests = new AtomicLong();
+  private final AtomicLong rateLimitedRequests = new AtomicLong();
+  private final AtomicLong failedRequests = new AtomicLong();
+  private final AtomicLong droppedRequests = new AtomicLong();
+
+  public StubEngineServer(GenerationConfig config) throws IOException {
+    this.latency = LatencyDistribution.parse(config.getStubLatency());
+    this.errorRate = config.getStubErrorRate();
+    this.timeoutRate = config.getStubTimeoutRate();
+    this.timeoutMs = config.getStubTimeoutMs();
+    this.faultRandom = new SplittableRandom(config.getStubSeed());
+    this.rateLimit = config.getStubRateLimit();
+    this.rateTokens = rateLimit;
+
+    // otherwise small responses wait for delayed acknowledgements
+    System.setProperty("sun.net.httpserver.nodelay", "true");
+    // the JDK server closes idle connections beyond 200 without telling the client, which then finds them closed
+    // when it sends the next request, so keep as many as a large pool of the generator holds
+    if (System.getProperty("sun.net.httpserver.maxIdleConnections") == null) {
+      System.setProperty("sun.net.httpserver.maxIdleConnections", "10000");
+    }
+    AtomicInteger threadCount = new AtomicInteger();
+    executor = Executors.newFixedThreadPool(config.getStubThreads(), runnable -> {
+      Thread thread = new Thread(runnable, "stub-engine-" + threadCount.getAndIncrement());
+      thread.setDaemon(true);
+      return thread;
+    });
+    server = HttpServer.create(new InetSocketAddress(config.getStubPort()), 128);
+    server.createContext(CONTEXT_PATH, this::handle);
+    server.setExecutor(executor);
+    server.start();
+  }
+
+  public String getEngineUrl() {
+    return "http://localhost:" + server.getAddress().getPort() + CONTEXT_PATH;
+  }
+
+  public StubEngine getEngine() {
+    return engine;
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    try {
+      byte[] body = readBody(exchange.getRequestBody());
+      requests.incrementAndGet();
+      if (!acquireRateToken()) {
+        rateLimitedRequests.incrementAndGet();
+        sendError(exchange, 429, "RestException", "Rate limit of " + rateLimit + " requests/s exceeded");
+        return;
+      }
+      double fault;
+      long delay;
+      synchronized (faultRandom) {
+        fault = faultRandom.nextDouble();
+        delay = latency.sample(faultRandom);
+      }
+      if (fault < timeoutRate) {
+        droppedRequests.incrementAndGet();
+        // closing the exchange before any header is sent closes the connection without an answer
+        sleep(timeoutMs);
+        return;
+      }
+      sleep(delay);
+      if (fault < timeoutRate + errorRate) {
+        failedRequests.incrementAndGet();
+        sendError(exchange, 500, "ProcessEngineException", "Injected failure");
+        return;
+      }
+      dispatch(exchange, body);
+    } catch (RuntimeException e) {
+      sendError(exchange, 500, e.getClass().getSimpleName(), String.valueOf(e.getMessage()));
+    } finally {
+      exchange.close();
+    }
+  }
+
+  private void dispatch(HttpExchange exchange, byte[] body) throws IOException {
+    String path = exchange.getRequestURI().getPath().substring(CONTEXT_PATH.length());
+    if (path.endsWith("/")) {
+      path = path.substring(0, path.length() - 1);
+    }
+    String method = exchange.getRequestMethod();
+    if ("POST".equals(method) && "/message".equals(path)) {
+      correlate(exchange, body);
+    } else if ("GET".equals(method) && "/task".equals(path)) {
+      getTasks(exchange);
+    } else if ("POST".equals(method) && path.startsWith("/task/") && path.endsWith("/claim")) {
+      String taskId = path.substring("/task/".length(), path.length() - "/claim".length());
+      JsonNode claim = objectMapper.readTree(body);
+      String userId = claim != null && claim.hasNonNull("userId") ? claim.get("userId").asText() : null;
+      sendResult(exchange, engine.claim(taskId, userId), "Cannot claim task " + taskId);
+    } else if ("POST".equals(method) && path.startsWith("/task/") && path.endsWith("/complete")) {
+      String taskId = path.substring("/task/".length(), path.length() - "/complete".length());
+      sendResult(exchange, engine.complete(taskId), "Cannot complete task " + taskId);
+    } else {
+      sendError(exchange, 404, "RestException", "The stub engine does not serve " + method + " " + path);
+    }
+  }
+
+  private void correlate(HttpExchange exchange, byte[] body) throws IOException {
+    JsonNode message = objectMapper.readTree(body);
+    if (message == null || !message.hasNonNull("messageName")) {
+      sendError(exchange, 400, "InvalidRequestException", "No message name provided");
+      return;
+    }
+    Map<String, VariableValue> variables = new HashMap<>();
+    JsonNode processVariables = message.get("processVariables");
+    if (processVariables != null) {
+      Iterator<Map.Entry<String, JsonNode>> fields = processVariables.fields();
+      while (fields.hasNext()) {
+        Map.Entry<String, JsonNode> field = fields.next();
+        JsonNode value = field.getValue().get("value");
+        Object javaValue = value == null || value.isNull() ? null
+          : value.isBoolean() ? value.booleanValue() : value.isNumber() ? value.numberValue() : value.asText();
+        variables.put(field.getKey(), new VariableValue(javaValue, field.getValue().path("type").asText(null)));
+      }
+    }
+    String messageName = message.get("messageName").asText();
+    String businessKey = message.hasNonNull("businessKey") ? message.get("businessKey").asText() : null;
+    boolean all = message.path("all").asBoolean(false);
+    sendResult(
+      exchange, engine.correlate(messageName, businessKey, all, variables), "Cannot correlate message " + messageName
+    );
+  }
+
+  private void getTasks(HttpExchange exchange) throws IOException {
+    Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+    int firstResult = Integer.parseInt(query.getOrDefault("firstResult", "0"));
+    int maxResults = Integer.parseInt(query.getOrDefault("maxResults", String.valueOf(Integer.MAX_VALUE)));
+    String businessKey = query.get("processInstanceBusinessKey");
+    List<StubEngine.Task> tasks = businessKey != null
+      ? engine.getTasksOfInstance(businessKey)
+      : engine.getTasks(
+        query.get("taskDefinitionKey"), query.get("processInstanceBusinessKeyLike"), firstResult, maxResults
+      );
+
+    ByteArrayOutputStream response = new ByteArrayOutputStream(256 + tasks.size() * 512);
+    try (JsonGenerator json = jsonFactory.createGenerator(response)) {
+      json.writeStartArray();
+      for (StubEngine.Task task : tasks) {
+        json.writeStartObject();
+        json.writeStringField("id", task.getId());
+        json.writeNullField("name");
+        json.writeStringField("assignee", task.getAssignee());
+        json.writeStringField("created", DATE_FORMAT.format(Instant.ofEpochMilli(task.getCreated())));
+        json.writeNullField("due");
+        json.writeNullField("followUp");
+        json.writeNullField("delegationState");
+        json.writeNullField("description");
+        json.writeStringField("executionId", task.getProcessInstanceId());
+        json.writeNullField("owner");
+        json.writeNullField("parentTaskId");
+        json.writeNumberField("priority", 50);
+        json.writeStringField("processDefinitionId", StubEngine.PROCESS_DEFINITION_ID);
+        json.writeStringField("processInstanceId", task.getProcessInstanceId());
+        json.writeStringField("taskDefinitionKey", task.getTaskDefinitionKey());
+        json.writeBooleanField("suspended", false);
+        json.writeNullField("formKey");
+        json.writeNullField("tenantId");
+        json.writeEndObject();
+      }
+      json.writeEndArray();
+    }
+    exchange.getResponseHeaders().set("Content-Type", "application/json");
+    exchange.sendResponseHeaders(200, response.size());
+    response.writeTo(exchange.getResponseBody());
+  }
+
+  private void sendResult(HttpExchange exchange, StubEngine.Result result, String failure) throws IOException {
+    switch (result) {
+      case OK:
+        exchange.sendResponseHeaders(204, -1);
+        break;
+      case NOT_FOUND:
+        sendError(exchange, 404, "InvalidRequestException", failure + ": not found");
+        break;
+      case CONFLICT:
+        sendError(exchange, 500, "TaskAlreadyClaimedException", failure + ": already claimed by another user");
+        break;
+      default:
+        sendError(exchange, 400, "RestException", failure + ": No process definition or execution matches");
+    }
+  }
+
+  private void sendError(HttpExchange exchange, int status, String type, String message) throws IOException {
+    ByteArrayOutputStream response = new ByteArrayOutputStream(128);
+    try (JsonGenerator json = jsonFactory.createGenerator(response)) {
+      json.writeStartObject();
+      json.writeStringField("type", type);
+      json.writeStringField("message", message);
+      json.writeEndObject();
+    }
+    exchange.getResponseHeaders().set("Content-Type", "application/json");
+    exchange.sendResponseHeaders(status, response.size());
+    response.writeTo(exchange.getResponseBody());
+  }
+
+  /**
+   * Token bucket holding at most one second worth of requests.
+   */
+  private synchronized boolean acquireRateToken() {
+    if (rateLimit <= 0) {
+      return true;
+    }
+    long now = System.nanoTime();
+    rateTokens = Math.min(rateLimit, rateTokens + (now - rateRefillTime) * rateLimit / 1_000_000_000.0);
+    rateRefillTime = now;
+    if (rateTokens < 1) {
+      return false;
+    }
+    rateTokens--;
+    return true;
+  }
+
+  private static byte[] readBody(InputStream body) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+    byte[] buffer = new byte[4096];
+    int read;
+    while ((read = body.read(buffer)) >= 0) {
+      bytes.write(buffer, 0, read);
+    }
+    return bytes.toByteArray();
+  }
+
+  private static Map<String, String> parseQuery(String rawQuery) throws UnsupportedEncodingException {
+    Map<String, String> query = new HashMap<>();
+    if (rawQuery != null) {
+      for (String parameter : rawQuery.split("&")) {
+        int separator = parameter.indexOf('=');
+        if (separator > 0) {
+          query.put(
+            URLDecoder.decode(parameter.substring(0, separator), "UTF-8"),
+            URLDecoder.decode(parameter.substring(separator + 1), "UTF-8")
+          );
+        }
+      }
+    }
+    return query;
+  }
+
+  private static void sleep(long millis) {
+    if (millis <= 0) {
+      return;
+    }
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  public long getRequestCount() {
+    return requests.get();
+  }
+
+  /**
+   * @return the requests answered with 429 for exceeding the rate limit
+   */
+  public long getRateLimitedRequestCount() {
+    return rateLimitedRequests.get();
+  }
+
+  /**
+   * @return the requests answered with an injected 500
+   */
+  public long getFailedRequestCount() {
+    return failedRequests.get();
+  }
+
+  public String getStatistics() {
+    return String.format(
+      "Stub engine served %d requests (%d rate limited, %d failed, %d dropped): %s",
+      requests.get(), rateLimitedRequests.get(), failedRequests.get(), droppedRequests.get(), engine.getStatistics()
+    );
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+    executor.shutdownNow();
+    System.out.println(getStatistics());
+  }
+
+  /**
+   * Runs the stub engine on its own, e.g. to point several generator runs at it, until the JVM is stopped.
+   */
+  public static void main(String[] args) throws IOException, InterruptedException {
+    GenerationConfig config = GenerationConfig.fromArgs(args);
+    StubEngineServer server = new StubEngineServer(config);
+    Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+    System.out.println("Stub engine listening on " + server.getEngineUrl());
+    while (true) {
+      TimeUnit.SECONDS.sleep(10);
+      System.out.println(server.getStatistics());
+    }
+  }
+}
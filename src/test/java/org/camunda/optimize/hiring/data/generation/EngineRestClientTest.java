@@ -0,0 +1,160 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.camunda.optimize.hiring.data.generation;
+
+import org.camunda.optimize.hiring.data.generation.dto.MessageCorrelationDto;
+import org.camunda.optimize.hiring.data.generation.dto.TaskDto;
+import org.camunda.optimize.hiring.data.generation.stub.StubEngineServer;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import static org.camunda.optimize.hiring.data.generation.HiringProcess.CANDIDATE_APPLICATION;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs the REST client against a {@link StubEngineServer}, with the faults the stub injects.
+ */
+public class EngineRestClientTest {
+
+  private StubEngineServer stub;
+  private EngineRestClient client;
+
+  @After
+  public void close() throws IOException {
+    if (client != null) {
+      client.close();
+    }
+    if (stub != null) {
+      stub.close();
+    }
+  }
+
+  private void connect(String... args) throws IOException {
+    GenerationConfig config = GenerationConfig.fromArgs(args).set(GenerationConfig.STUB_PORT, "0");
+    stub = new StubEngineServer(config);
+    client = new EngineRestClient(config.copy().set(GenerationConfig.ENGINE_URL, stub.getEngineUrl()));
+  }
+
+  @Test
+  public void claimsAndCompletesTheTaskOfAnInstance() throws IOException {
+    connect();
+
+    assertTrue(client.correlateMessage(application("candidate-1")));
+    List<TaskDto> tasks = client.getTasksOfInstance("candidate-1");
+    assertEquals(1, tasks.size());
+    String taskId = tasks.get(0).getId();
+
+    assertTrue(client.claimTask(taskId, "anna"));
+    assertEquals("anna", stub.getEngine().getTasksOfInstance("candidate-1").get(0).getAssignee());
+    assertTrue(client.completeTask(taskId));
+    assertEquals(1, stub.getEngine().getCompletedTasks());
+    assertFalse(client.completeTask(taskId));
+  }
+
+  @Test
+  public void claimsForUsersWithCharactersToEscape() throws IOException {
+    connect();
+    start("candidate-1");
+
+    String userId = "o'neil \"jr\" \\ müller";
+    String taskId = client.getTasksOfInstance("candidate-1").get(0).getId();
+    assertTrue(client.claimTask(taskId, userId));
+
+    assertEquals(userId, stub.getEngine().getTasksOfInstance("candidate-1").get(0).getAssignee());
+  }
+
+  @Test
+  public void pagesThroughTheTaskList() throws IOException {
+    connect();
+    for (int i = 0; i < 25; i++) {
+      start("candidate-" + i);
+    }
+
+    Set<String> taskIds = new HashSet<>();
+    List<Integer> pageSizes = new ArrayList<>();
+    for (int firstResult = 0; ; firstResult += 10) {
+      List<String> page = new ArrayList<>();
+      int count = client.forEachTaskId(null, "candidate-%", firstResult, 10, page::add);
+      pageSizes.add(count);
+      taskIds.addAll(page);
+      if (count < 10) {
+        break;
+      }
+    }
+
+    assertEquals("[10, 10, 5]", pageSizes.toString());
+    assertEquals(25, taskIds.size());
+  }
+
+  @Test
+  public void resendsTaskCallsAnsweredWithServerErrors() throws IOException {
+    connect("--stub.errorRate=0.5", "--engine.maxAttempts=30", "--engine.retryBackoffMs=1",
+            "--engine.maxRetryBackoffMs=1");
+    start("candidate-1");
+
+    String taskId = client.getTasksOfInstance("candidate-1").get(0).getId();
+    assertTrue(client.claimTask(taskId, "anna"));
+    assertTrue(client.completeTask(taskId));
+
+    assertEquals(1, stub.getEngine().getCompletedTasks());
+    assertTrue(stub.getFailedRequestCount() > 0);
+  }
+
+  @Test
+  public void doesNotResendMessagesAnsweredWithServerErrors() throws IOException {
+    connect("--stub.errorRate=1", "--engine.maxAttempts=5", "--engine.retryBackoffMs=1");
+
+    assertFalse(client.correlateMessage(application("candidate-1")));
+
+    // the engine may have started the instance before it failed, so a second start could duplicate it
+    assertEquals(1, stub.getRequestCount());
+    assertEquals(0, stub.getEngine().getStartedInstances());
+  }
+
+  @Test
+  public void resendsMessagesRejectedForOverload() throws IOException {
+    connect("--stub.rateLimit=5", "--engine.maxAttempts=50", "--engine.retryBackoffMs=20",
+            "--engine.maxRetryBackoffMs=100");
+
+    for (int i = 0; i < 10; i++) {
+      assertTrue(client.correlateMessage(application("candidate-" + i)));
+    }
+
+    assertEquals(10, stub.getEngine().getStartedInstances());
+    assertTrue(stub.getRateLimitedRequestCount() > 0);
+  }
+
+  private void start(String businessKey) {
+    MessageCorrelationDto message = application(businessKey);
+    stub.getEngine().correlate(message.getMessageName(), businessKey, false, message.getProcessVariables());
+  }
+
+  private static MessageCorrelationDto application(String businessKey) {
+    MessageCorrelationDto message = new MessageCorrelationDto();
+    message.setMessageName(CANDIDATE_APPLICATION);
+    message.setBusinessKey(businessKey);
+    message.setProcessVariables(
+      Scenario.REJECT_AFTER_SCREENING.createVariables(new SplittableRandom(42), TaskDurations.defaults())
+    );
+    return message;
+  }
+}
@@ -0,0 +1,45 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.camunda.optimize.hiring.data.generation;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The seed of a run is printed so the run can be repeated, so it must not change while the run reads it.
+ */
+public class GenerationConfigTest {
+
+  @Test
+  public void drawsTheSeedOncePerRun() {
+    GenerationConfig config = GenerationConfig.fromArgs(new String[0]);
+
+    long seed = config.getRandomSeed();
+
+    assertEquals(seed, config.getRandomSeed());
+    assertEquals(seed, config.copy().getRandomSeed());
+    assertFalse(config.isRandomSeedConfigured());
+    assertFalse(config.copy().isRandomSeedConfigured());
+  }
+
+  @Test
+  public void keepsTheConfiguredSeed() {
+    GenerationConfig config = GenerationConfig.fromArgs(new String[] {"--random.seed=42"});
+
+    assertEquals(42, config.getRandomSeed());
+    assertTrue(config.isRandomSeedConfigured());
+  }
+}
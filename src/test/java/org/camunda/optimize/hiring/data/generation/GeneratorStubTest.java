@@ -0,0 +1,103 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.camunda.optimize.hiring.data.generation;
+
+import org.camunda.optimize.hiring.data.generation.stub.StubEngine;
+import org.camunda.optimize.hiring.data.generation.stub.StubEngineServer;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs a scaled down generation against a {@link StubEngineServer} and checks that every instance of the spec was
+ * started and driven to its end.
+ */
+public class GeneratorStubTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private StubEngineServer stub;
+
+  @After
+  public void close() {
+    if (stub != null) {
+      stub.close();
+    }
+  }
+
+  private void generate(String... args) throws IOException {
+    stub = new StubEngineServer(GenerationConfig.fromArgs(args).set(GenerationConfig.STUB_PORT, "0"));
+    List<String> runArgs = new ArrayList<>(Arrays.asList(
+      "--engine.url=" + stub.getEngineUrl(),
+      "--scenario.scale=0.05",
+      "--random.seed=42",
+      "--start.workers=2",
+      "--engine.retryBackoffMs=10",
+      "--engine.maxRetryBackoffMs=100",
+      "--metrics.intervalSeconds=0",
+      "--metrics.directory=" + folder.getRoot()
+    ));
+    runArgs.addAll(Arrays.asList(args));
+    Main.main(runArgs.toArray(new String[0]));
+  }
+
+  private void assertAllInstancesEnded(String... args) throws IOException {
+    StubEngine engine = stub.getEngine();
+    GenerationConfig config = GenerationConfig.fromArgs(args).set(GenerationConfig.SCENARIO_SCALE, "0.05");
+    assertEquals(ScenarioSpec.load(config).getTotalCount(), engine.getStartedInstances());
+    assertEquals(engine.getStartedInstances(), engine.getEndedInstances());
+    assertEquals(0, engine.getRunningInstances());
+  }
+
+  @Test
+  public void generatesEveryInstanceOfTheSpec() throws IOException {
+    generate();
+
+    assertAllInstancesEnded();
+  }
+
+  @Test
+  public void resendsRequestsTheEngineRejectedForOverload() throws IOException {
+    String[] args = {"--stub.rateLimit=300", "--engine.maxAttempts=100"};
+    generate(args);
+
+    assertAllInstancesEnded(args);
+    assertTrue(stub.getRateLimitedRequestCount() > 0);
+  }
+
+  @Test
+  public void generatesWithPipelinedTaskCalls() throws IOException {
+    String[] args = {"--engine.transport=async", "--tasks.pipeline=4", "--tasks.assignees=anna,ben"};
+    generate(args);
+
+    assertAllInstancesEnded(args);
+  }
+
+  @Test
+  public void generatesWithTheCompleteProtocol() throws IOException {
+    String[] args = {"--tasks.protocol=complete"};
+    generate(args);
+
+    assertAllInstancesEnded(args);
+  }
+}
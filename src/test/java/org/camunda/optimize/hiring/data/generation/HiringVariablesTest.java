@@ -0,0 +1,95 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.camunda.optimize.hiring.data.generation;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.camunda.optimize.hiring.data.generation.dto.MessageCorrelationDto;
+import org.camunda.optimize.hiring.data.generation.dto.VariableValue;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.camunda.optimize.hiring.data.generation.HiringProcess.CANDIDATE_APPLICATION;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The start messages have to stay byte for byte the ones sent when the path builders collected the variables in a
+ * {@link HashMap}, so recorded corpora and engine data of earlier runs with the same seed stay comparable.
+ */
+public class HiringVariablesTest {
+
+  private static final int SEEDS_PER_SCENARIO = 200;
+
+  private final ObjectWriter writer = new ObjectMapper().writerFor(MessageCorrelationDto.class);
+
+  @Test
+  public void serializesLikeAHashMapOfTheSameVariables() throws IOException {
+    for (Scenario scenario : Scenario.values()) {
+      for (long seed = 0; seed < SEEDS_PER_SCENARIO; seed++) {
+        Map<String, VariableValue> variables =
+          scenario.createVariables(new SplittableRandom(seed), TaskDurations.defaults());
+        assertTrue(variables instanceof HiringVariables);
+
+        byte[] expected = serialize(toHashMap((HiringVariables) variables));
+
+        assertArrayEquals(scenario + " with seed " + seed + ": " + new String(expected, StandardCharsets.UTF_8),
+                          expected, serialize(variables));
+      }
+    }
+  }
+
+  @Test
+  public void serializesSmallAndLargeVariableSets() throws IOException {
+    // 12 variables fit into the 16 buckets of a new HashMap, the 13th makes it grow to 32
+    for (int count = 1; count <= HiringVariable.values().length; count++) {
+      HiringVariables variables = new HiringVariables();
+      for (int i = 0; i < count; i++) {
+        HiringVariable variable = HiringVariable.values()[i];
+        if (variable.isBoolean()) {
+          variables.setBoolean(variable, i % 2 == 0);
+        } else {
+          variables.setLong(variable, 1000L * i);
+        }
+      }
+
+      assertArrayEquals(count + " variables", serialize(toHashMap(variables)), serialize(variables));
+    }
+  }
+
+  /**
+   * Puts the variables one by one into a new HashMap, in the order the path builders set them.
+   */
+  private static Map<String, VariableValue> toHashMap(HiringVariables variables) {
+    Map<String, VariableValue> hashMap = new HashMap<>();
+    for (HiringVariable variable : HiringVariable.values()) {
+      if (variables.isSet(variable)) {
+        hashMap.put(variable.getVariableName(), variables.get(variable.getVariableName()));
+      }
+    }
+    return hashMap;
+  }
+
+  private byte[] serialize(Map<String, VariableValue> variables) throws IOException {
+    MessageCorrelationDto message = new MessageCorrelationDto();
+    message.setMessageName(CANDIDATE_APPLICATION);
+    message.setBusinessKey("candidate-1");
+    message.setProcessVariables(variables);
+    return writer.writeValueAsBytes(message);
+  }
+}
@@ -0,0 +1,126 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.camunda.optimize.hiring.data.generation;
+
+import org.camunda.optimize.hiring.data.generation.stub.StubEngine;
+import org.camunda.optimize.hiring.data.generation.stub.StubEngineServer;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import static org.camunda.optimize.hiring.data.generation.HiringProcess.CANDIDATE_APPLICATION;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Sweeps the open tasks of a {@link StubEngineServer} in pages much smaller than the task list.
+ */
+public class UserTaskCompleterTest {
+
+  private static final int INSTANCES = 25;
+
+  private StubEngineServer stub;
+  private EngineRestClient client;
+
+  @After
+  public void close() throws IOException {
+    if (client != null) {
+      client.close();
+    }
+    if (stub != null) {
+      stub.close();
+    }
+  }
+
+  private void connect(String... args) throws IOException {
+    GenerationConfig config = GenerationConfig.fromArgs(args).set(GenerationConfig.STUB_PORT, "0");
+    stub = new StubEngineServer(config);
+    client = new EngineRestClient(config.copy().set(GenerationConfig.ENGINE_URL, stub.getEngineUrl()));
+    for (int i = 0; i < INSTANCES; i++) {
+      stub.getEngine().correlate(
+        CANDIDATE_APPLICATION, "candidate-" + i, false,
+        Scenario.HAPPY_PATH.createVariables(new SplittableRandom(i), TaskDurations.defaults())
+      );
+    }
+  }
+
+  @Test
+  public void completesTheTasksOfAllPages() throws IOException {
+    connect();
+
+    long completed;
+    try (UserTaskCompleter completer = new UserTaskCompleter(client, 2, 4)) {
+      completed = completer.completeAllUserTasks();
+    }
+
+    assertAllTasksCompleted(completed);
+  }
+
+  @Test
+  public void completesPipelinedTasksOfAllPages() throws IOException {
+    connect("--engine.transport=async", "--tasks.pipeline=3");
+    assertTrue(client.isPipelining());
+
+    long completed;
+    CompletionProtocol protocol = new CompletionProtocol(CompletionProtocol.CLAIM_COMPLETE, Arrays.asList("a", "b"));
+    try (UserTaskCompleter completer = new UserTaskCompleter(client, 2, 4, null, protocol, 3)) {
+      completed = completer.completeAllUserTasks();
+    }
+
+    assertAllTasksCompleted(completed);
+  }
+
+  @Test
+  public void completesTasksItCouldNotClaim() throws IOException {
+    connect("--engine.maxAttempts=1");
+    claimOpenTasksForAnotherUser();
+
+    long completed;
+    try (UserTaskCompleter completer = new UserTaskCompleter(client, 2, 4)) {
+      completed = completer.completeAllUserTasks();
+    }
+
+    assertAllTasksCompleted(completed);
+  }
+
+  @Test
+  public void completesPipelinedTasksItCouldNotClaim() throws IOException {
+    connect("--engine.maxAttempts=1", "--engine.transport=async", "--tasks.pipeline=3");
+    claimOpenTasksForAnotherUser();
+
+    long completed;
+    CompletionProtocol protocol = CompletionProtocol.claimAndComplete(CompletionProtocol.DEFAULT_ASSIGNEE);
+    try (UserTaskCompleter completer = new UserTaskCompleter(client, 2, 4, null, protocol, 3)) {
+      completed = completer.completeAllUserTasks();
+    }
+
+    assertAllTasksCompleted(completed);
+  }
+
+  private void claimOpenTasksForAnotherUser() {
+    StubEngine engine = stub.getEngine();
+    for (StubEngine.Task task : engine.getTasks(null, null, 0, Integer.MAX_VALUE)) {
+      engine.claim(task.getId(), "someone-else");
+    }
+  }
+
+  private void assertAllTasksCompleted(long completed) {
+    StubEngine engine = stub.getEngine();
+    assertTrue(completed >= INSTANCES);
+    assertEquals(engine.getCompletedTasks(), completed);
+    assertEquals(0, engine.getTasks(null, null, 0, Integer.MAX_VALUE).size());
+  }
+}